@@ -4,18 +4,24 @@ import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
+import opennlp.tools.util.Span;
+
 public class AbstractFeatureExtractor {
 
+	// the weight of the character n-grams
+	public static final float CHAR_NGRAMS_WEIGHT = 1.0f;
+
 	// The features index containing the mapping between the produced features
 	// and their pre-computed idf values and numeric IDs used by the classifiers.
 	// This index is produced during the classifier training phase and then is used
 	// during the classifier test phase.
-	protected HashMap<String, String> featuresWeightAndIndex;
+	protected FeaturesIndex featuresIndex;
 	// It is used to create a mapping between the labels of the annotated data
 	// set and their numeric IDs used by the classifiers.
 	// This index is produced during the classifier training phase and then is used
@@ -30,12 +36,25 @@ public class AbstractFeatureExtractor {
 	// text in input.
 	protected Set<String> stopWords;
 	// The list of words weighted by their idf values. The weights are used to build weighted features vectors.
-	protected Map<String,Float> weightedWords;
+	// It is memory-mapped and it is not loaded into the heap (@see IdfLexicon).
+	protected IdfLexicon weightedWords;
+	// The idf values computed from the training dataset; when they are given
+	// they are used for weighting the features instead of the weighted words.
+	protected CorpusIdf corpusIdf;
 	// Enable stop words removal.
 	protected boolean enableStopWordsRemoval;
+	// The settings of the feature extraction (e.g., feature hashing); they are
+	// saved with the model and loaded back during the classifier test phase.
+	protected FeaturesConfiguration configuration = new FeaturesConfiguration();
+	// true if the stop words and the weighted words have been acquired from the
+	// registry of the shared resources and then they have to be released
+	private boolean stopWordsAcquired;
+	private boolean weightedWordsAcquired;
 
 	/**
-	 * Generates the n-grams (i.e., bigrams) of the given tokens in input
+	 * Generates the n-grams of the given tokens in input: the word n-grams and
+	 * the character n-grams given by the settings of the feature extraction
+	 * (unigrams and bigrams by default)
 	 * 
 	 * @param tokens
 	 *            the tokens
@@ -44,18 +63,26 @@ public class AbstractFeatureExtractor {
 	 */
 	public String[] generateNGrams(String[] tokens) throws Exception {
 
-		// unigrams and bigrams
-		String[] result = new String[tokens.length + tokens.length - 1];
-
-		// copy unigrams
-		for (int i = 0; i < tokens.length; i++)
-			result[i] = tokens[i];
+		// the n-grams are produced by the same key used for extracting the
+		// features from the spans of the texts
+		StringBuilder text = new StringBuilder();
+		Span[] spans = new Span[tokens.length];
+		int[] positions = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			if (i > 0)
+				text.append(' ');
+			spans[i] = new Span(text.length(), text.length() + tokens[i].length());
+			positions[i] = i;
+			text.append(tokens[i]);
+		}
 
-		// generate bigrams
-		for (int i = 0; i < tokens.length - 1; i++)
-			result[tokens.length + i] = tokens[i] + "___" + tokens[i + 1];
+		List<String> result = new ArrayList<String>();
+		NGramKey key = new NGramKey();
+		key.reset(text.toString(), spans, positions, tokens.length, configuration);
+		while (key.next())
+			result.add(key.toString());
 
-		return result;
+		return result.toArray(new String[result.size()]);
 
 	}
 
@@ -81,6 +108,123 @@ public class AbstractFeatureExtractor {
 
 	}
 	
+	/**
+	 * Normalizes the given text and prepares the key for going through its
+	 * features (@see NGramKey): the tokens are normalized to lower case and
+	 * the stop words are removed (when stop words removal is enabled) in a
+	 * single pass over the tokens, without copying them into new strings or
+	 * arrays.
+	 * 
+	 * @param text
+	 *            the text containing the tokens
+	 * @param spans
+	 *            the spans of the tokens in the text
+	 * @param key
+	 *            the key going through the features of the text
+	 * @return the number of tokens that can be part of the n-grams
+	 * 
+	 * @throws Exception
+	 */
+	public int normalize(String text, Span[] spans, NGramKey key) throws Exception {
+
+		return key.reset(text, spans, enableStopWordsRemoval ? this.stopWords : null, configuration);
+
+	}
+
+	/**
+	 * Prepares the key for going through the features of a text that has
+	 * already been normalized by another key (@see NGramKey): the hash codes
+	 * of its tokens are reused and only the stop words are removed (when stop
+	 * words removal is enabled), e.g., for extracting the features of the same
+	 * text for many classifiers.
+	 * 
+	 * @param tokens
+	 *            the key that has normalized the text keeping all its tokens
+	 * @param key
+	 *            the key going through the features of the text
+	 * @return the number of tokens that can be part of the n-grams
+	 * 
+	 * @throws Exception
+	 */
+	public int normalize(NGramKey tokens, NGramKey key) throws Exception {
+
+		return key.reset(tokens, enableStopWordsRemoval ? this.stopWords : null, configuration);
+
+	}
+
+	/**
+	 * Generates the features of the text given to the key in the feature
+	 * hashing mode: the n-grams of the text are hashed into the space of the
+	 * features IDs without using the features index and they are weighted
+	 * (@see getFeatureWeight(NGramKey key)); the features with no weight are
+	 * discarded. The features are put into the buffer sorted by their IDs and
+	 * the weights of the features with the same ID (i.e., repeated n-grams and
+	 * hash collisions) are summed.
+	 * 
+	 * @param key
+	 *            the key prepared by
+	 *            {@link normalize(String text, Span[] spans, NGramKey key)}
+	 * @param buffer
+	 *            the buffer where to put the features
+	 * 
+	 * @throws Exception
+	 */
+	public void hashFeatures(NGramKey key, FeaturesBuffer buffer) throws Exception {
+
+		buffer.clear();
+		while (key.next()) {
+			float featureWeight = getFeatureWeight(key);
+			if (featureWeight > 0)
+				buffer.add(getHashedIndex(key), featureWeight);
+		}
+		buffer.merge();
+
+	}
+
+	/**
+	 * Gets the ID of the given feature in the feature hashing mode
+	 * 
+	 * @param feature
+	 *            the feature, as a string or as an n-gram key
+	 * @return the ID of the feature, between 1 and 2^bits
+	 */
+	protected int getHashedIndex(Object feature) {
+
+		// mix the bits of the hash code of the string (finalizer of MurmurHash3)
+		int h = feature.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+
+		return (h & ((1 << configuration.getHashingBits()) - 1)) + 1;
+
+	}
+
+	/**
+	 * Sets the settings of the feature extraction (e.g., feature hashing)
+	 * 
+	 * @param configuration
+	 *            the settings
+	 */
+	public void setConfiguration(FeaturesConfiguration configuration) {
+
+		this.configuration = configuration;
+
+	}
+
+	/**
+	 * Gets the settings of the feature extraction
+	 * 
+	 * @return the settings
+	 */
+	public FeaturesConfiguration getConfiguration() {
+
+		return this.configuration;
+
+	}
+
 	/**
 	 * Given a token it gets its weight (idf value)
 	 * 
@@ -92,15 +236,81 @@ public class AbstractFeatureExtractor {
 	 */
 	public float getWordWeight(String token) throws Exception {
 
-		float result = (float) - 1;
-		
-		if (weightedWords.containsKey(token))
-			result = this.weightedWords.get(token);
+		float result = this.weightedWords.getWeight(token);
 
 		return result;
 
 	}
 
+	/**
+	 * Given an n-gram it gets its weight (idf value) without copying its
+	 * tokens into a new string
+	 * 
+	 * @param key
+	 *            the n-gram
+	 * @return the weight of the n-gram in input; -1 if it has no weight
+	 * 
+	 * @throws Exception
+	 */
+	public float getWordWeight(NGramKey key) throws Exception {
+
+		float result = this.weightedWords.getWeight(key);
+
+		return result;
+
+	}
+
+	/**
+	 * Gets the weight of the given feature: the word n-grams are weighted by
+	 * their idf values while all the character n-grams have the same weight
+	 * (CHAR_NGRAMS_WEIGHT) since the list of weighted n-grams doesn't contain
+	 * them. When the idf values computed from the training dataset are given
+	 * (@see setCorpusIdf(CorpusIdf corpusIdf)) all the features are weighted
+	 * by them.
+	 * 
+	 * @param key
+	 *            the feature
+	 * @return the weight of the feature; -1 if it has no weight
+	 * 
+	 * @throws Exception
+	 */
+	public float getFeatureWeight(NGramKey key) throws Exception {
+
+		if (corpusIdf != null)
+			return corpusIdf.getWeight(key.hashCode());
+
+		if (key.isCharNGram())
+			return CHAR_NGRAMS_WEIGHT;
+
+		return getWordWeight(key);
+
+	}
+
+	/**
+	 * Sets the idf values computed from the training dataset for weighting
+	 * the features instead of the list of weighted n-grams
+	 * 
+	 * @param corpusIdf
+	 *            the idf values; null for using the list of weighted n-grams
+	 */
+	public void setCorpusIdf(CorpusIdf corpusIdf) {
+
+		this.corpusIdf = corpusIdf;
+
+	}
+
+	/**
+	 * Gets the idf values computed from the training dataset
+	 * 
+	 * @return the idf values; null if the features are weighted by the list
+	 *         of weighted n-grams
+	 */
+	public CorpusIdf getCorpusIdf() {
+
+		return this.corpusIdf;
+
+	}
+
 	/**
 	 * Normalizes the tokens in input to lower case
 	 * 
@@ -122,21 +332,46 @@ public class AbstractFeatureExtractor {
 	}
 
 	/**
-	 * Loads the stop words
+	 * Loads the stop words; they are shared with the other feature extractors
+	 * of the JVM (@see SharedResources) and they are read from the resources
+	 * folder only if no other feature extractor is using them.
 	 * 
 	 * @throws Exception
 	 */
 	public void loadStopWords() throws Exception {
 
+		Set<String> sharedStopWords = SharedResources.acquire(SharedResources.STOP_WORDS,
+				new SharedResources.Loader<Set<String>>() {
+					@Override
+					public Set<String> load() throws Exception {
+						return readStopWords();
+					}
+				});
+		releaseStopWords();
+		stopWords = sharedStopWords;
+		stopWordsAcquired = true;
+
+	}
+
+	/**
+	 * Reads the stop words from the resources folder
+	 * 
+	 * @return the stop words
+	 * 
+	 * @throws Exception
+	 */
+	private Set<String> readStopWords() throws Exception {
+
+		Set<String> result = new HashSet<String>();
 		BufferedReader buffer = null;
 
 		try {
 
-			buffer = new BufferedReader(new InputStreamReader(getClass().getResourceAsStream("/stopwords-de.txt"), "UTF-8"));
+			buffer = new BufferedReader(new InputStreamReader(getClass().getResourceAsStream(SharedResources.STOP_WORDS), "UTF-8"));
 
 			String str;
 			while ((str = buffer.readLine()) != null) {
-				stopWords.add(str);
+				result.add(str);
 			}
 
 		} catch (Exception ex) {
@@ -146,40 +381,62 @@ public class AbstractFeatureExtractor {
 				buffer.close();
 		}
 
+		return Collections.unmodifiableSet(result);
+
 	}
 	
 	/**
 	 * Loads the list of n-grams weighted by their idf values. They are used
-	 * to build weighted features vectors
+	 * to build weighted features vectors; like the stop words, the list is
+	 * shared with the other feature extractors of the JVM. The list is the
+	 * idf lexicon mapped into memory (@see IdfLexicon).
 	 * 
 	 * 
 	 * @throws Exception
 	 */
 	public void loadWeighteNgrams() throws Exception {
-		
-		BufferedReader buffer = null;
-		double nDocuments = (double)1424635; // set by default: it is the number of documents in the data collection
 
-		try {
+		IdfLexicon sharedWeightedWords = SharedResources.acquire(SharedResources.WEIGHTED_NGRAMS,
+				new SharedResources.Loader<IdfLexicon>() {
+					@Override
+					public IdfLexicon load() throws Exception {
+						return IdfLexicon.load();
+					}
+				});
+		releaseWeightedNgrams();
+		weightedWords = sharedWeightedWords;
+		weightedWordsAcquired = true;
 
-			buffer = new BufferedReader(new InputStreamReader(getClass().getResourceAsStream("/dewiki-20140216-ngram-1M.csv"), "UTF-8"));
-			
-			String str;
-			while ((str = buffer.readLine()) != null) {
-				String[] splitStr = str.split("\t");
-				double wordFrequency = Double.parseDouble(splitStr[0]);
-				String word = splitStr[2].toLowerCase().replace(" ", "___");
-				float idf = (float)Math.log10(nDocuments/wordFrequency);
-				weightedWords.put(word, idf);
-			}
+	}
 
-		} catch (Exception ex) {
-			throw (ex);
-		} finally {
-			if (buffer != null)
-				buffer.close();
+	/**
+	 * Releases the stop words and the list of weighted n-grams; they are
+	 * unloaded when no other feature extractor is using them. The feature
+	 * extractor can't be used anymore after calling this method.
+	 */
+	public void close() {
+
+		releaseStopWords();
+		releaseWeightedNgrams();
+
+	}
+
+	private void releaseStopWords() {
+
+		if (stopWordsAcquired) {
+			stopWordsAcquired = false;
+			SharedResources.release(SharedResources.STOP_WORDS);
 		}
-		
+
+	}
+
+	private void releaseWeightedNgrams() {
+
+		if (weightedWordsAcquired) {
+			weightedWordsAcquired = false;
+			SharedResources.release(SharedResources.WEIGHTED_NGRAMS);
+		}
+
 	}
 	
 	/**
@@ -0,0 +1,440 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.Span;
+
+/**
+ * ConcurrentTokenizerWrapper implements the interface ITokenizerWrapper for
+ * tokenizing data input from many threads at the same time. The OpenNLP
+ * tokenizer (TokenizerME) is not thread-safe while its model is immutable: the
+ * model is then loaded only once and each thread calling the tokenizer gets its
+ * own instance of TokenizerME built on top of the shared model.
+ *
+ * When the parallelism is greater than 1, the input file of
+ * {@link #tokenize(String, String)} is read in chunks of lines that are
+ * tokenized on a fork-join pool; the chunks are written into the output file
+ * in the same order of the input file and at most a fixed number of chunks is
+ * kept in memory at the same time. The same pool is used for tokenizing the
+ * arrays of texts given to {@link #tokenizePos(String[], int)}.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class ConcurrentTokenizerWrapper extends TokenizerWrapper {
+
+	// the number of texts tokenized by the same task of the fork-join pool
+	private static final int LINES_PER_TASK = 64;
+
+	// the model for tokenization shared by all the threads
+	private TokenizerModel model;
+	// the OpenNLP tokenizers, one for each thread using this wrapper
+	private ThreadLocal<Tokenizer> tokenizers;
+	// the number of threads used for tokenizing files (1 means sequential)
+	private int parallelism = 1;
+	// the number of lines read from the input file in each chunk
+	private int chunkSize = 4096;
+	// the maximum number of chunks being tokenized at the same time
+	private int maxChunksInFlight = 0;
+	// the pool of threads; it is created the first time it is needed
+	private ForkJoinPool pool;
+
+	/**
+	 * Initializes the tokenizer by loading the needed resources (e.g., the
+	 * model for tokenization); the tokenizer instances are then created lazily
+	 * the first time each thread tokenizes some text.
+	 */
+	@Override
+	public void init() throws Exception {
+
+		model = acquireModel();
+		tokenizers = new ThreadLocal<Tokenizer>() {
+			@Override
+			protected Tokenizer initialValue() {
+				return new TokenizerME(model);
+			}
+		};
+
+	}
+
+	@Override
+	public String[] tokenize(String text) throws Exception {
+
+		// the tokenized text
+		String tokens[] = null;
+
+		if (text == null)
+			return tokens;
+
+		tokens = getTokenizer().tokenize(text);
+
+		return tokens;
+
+	}
+
+	@Override
+	public Span[] tokenizePos(String text) throws Exception {
+
+		// the positions of the tokens
+		Span spans[] = null;
+
+		if (text == null)
+			return spans;
+
+		spans = getTokenizer().tokenizePos(text);
+
+		return spans;
+
+	}
+
+	/**
+	 * Releases the model for tokenization and stops the pool of threads
+	 */
+	@Override
+	public void close() {
+
+		synchronized (this) {
+			if (pool != null) {
+				pool.shutdown();
+				pool = null;
+			}
+		}
+		tokenizers = null;
+		model = null;
+		super.close();
+
+	}
+
+	/**
+	 * Tokenizes the given texts and returns the positions of their tokens; the
+	 * texts are tokenized in parallel when the parallelism is greater than 1.
+	 *
+	 * @param texts
+	 *            the texts to tokenize
+	 * @param size
+	 *            the number of texts to tokenize, starting from the first one
+	 * @return the spans of the tokens of each text
+	 *
+	 * @throws Exception
+	 */
+	public Span[][] tokenizePos(final String[] texts, int size) throws Exception {
+
+		final Span[][] spans = new Span[size][];
+
+		if (parallelism <= 1) {
+			for (int i = 0; i < size; i++)
+				spans[i] = tokenizePos(texts[i]);
+			return spans;
+		}
+
+		RangeTask task = new RangeTask(new Processor() {
+			@Override
+			public void process(int i) throws Exception {
+				spans[i] = tokenizePos(texts[i]);
+			}
+		}, 0, size);
+		getPool().execute(task);
+		join(task);
+
+		return spans;
+
+	}
+
+	/**
+	 * Gets the OpenNLP tokenizer of the calling thread
+	 *
+	 * @return the tokenizer
+	 */
+	protected Tokenizer getTokenizer() {
+
+		return tokenizers.get();
+
+	}
+
+	@Override
+	public void tokenize(String fileIn, String fileOut) throws Exception {
+
+		if (parallelism <= 1) {
+			super.tokenize(fileIn, fileOut);
+			return;
+		}
+
+		// buffer for reading input data (e.g., text to tokenize)
+		BufferedReader in = null;
+		// buffer for writing output data (e.g., tokenized text)
+		BufferedWriter out = null;
+		// the chunks being tokenized, in the same order of the input file
+		Deque<Chunk> inFlight = new ArrayDeque<Chunk>();
+		int maxInFlight = maxChunksInFlight > 0 ? maxChunksInFlight : 2 * parallelism;
+
+		try {
+
+			in = new BufferedReader(new InputStreamReader(new FileInputStream(fileIn), "UTF8"));
+			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileOut), "UTF-8"));
+
+			String[] lines = new String[chunkSize];
+			int size = 0;
+			int lineCounter = 0;
+			String str;
+			while ((str = in.readLine()) != null) {
+
+				lineCounter++;
+				lines[size++] = str;
+
+				if (size == chunkSize) {
+					// wait for the oldest chunk to be written before reading
+					// more data
+					if (inFlight.size() >= maxInFlight)
+						write(inFlight.poll(), out);
+					inFlight.add(new Chunk(lines, size, lineCounter - size + 1));
+					lines = new String[chunkSize];
+					size = 0;
+				}
+
+			}
+
+			if (size > 0) {
+				if (inFlight.size() >= maxInFlight)
+					write(inFlight.poll(), out);
+				inFlight.add(new Chunk(lines, size, lineCounter - size + 1));
+			}
+			while (!inFlight.isEmpty())
+				write(inFlight.poll(), out);
+
+		} catch (Exception ex) {
+			// stop tokenizing the remaining chunks
+			for (Chunk chunk : inFlight)
+				chunk.task.cancel(false);
+			throw (ex);
+		} finally {
+			if (in != null)
+				in.close();
+			if (out != null)
+				out.close();
+		}
+
+	}
+
+	/**
+	 * Sets the number of threads used for tokenizing files and arrays of texts;
+	 * 1 (the default) tokenizes them sequentially
+	 *
+	 * @param parallelism
+	 *            the number of threads
+	 */
+	public synchronized void setParallelism(int parallelism) {
+
+		if (pool != null && pool.getParallelism() != parallelism) {
+			pool.shutdown();
+			pool = null;
+		}
+		this.parallelism = parallelism;
+
+	}
+
+	/**
+	 * Gets the number of threads used for tokenizing files
+	 *
+	 * @return the number of threads
+	 */
+	public int getParallelism() {
+
+		return this.parallelism;
+
+	}
+
+	/**
+	 * Sets the number of lines read from the input file in each chunk
+	 *
+	 * @param chunkSize
+	 *            the number of lines
+	 */
+	public void setChunkSize(int chunkSize) {
+
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("The chunk size must be at least 1!");
+		this.chunkSize = chunkSize;
+
+	}
+
+	/**
+	 * Sets the maximum number of chunks that can be tokenized at the same time;
+	 * together with the chunk size it bounds the memory used for tokenizing a
+	 * file. The default (0) is twice the parallelism.
+	 *
+	 * @param maxChunksInFlight
+	 *            the maximum number of chunks
+	 */
+	public void setMaxChunksInFlight(int maxChunksInFlight) {
+
+		this.maxChunksInFlight = maxChunksInFlight;
+
+	}
+
+	/**
+	 * Gets the pool of threads, creating it the first time; its threads are
+	 * daemon threads and then the pool doesn't need to be shut down.
+	 */
+	private synchronized ForkJoinPool getPool() {
+
+		if (pool == null)
+			pool = new ForkJoinPool(parallelism);
+
+		return pool;
+
+	}
+
+	/**
+	 * Waits for the given chunk to be tokenized and writes it into the output
+	 * file
+	 */
+	private void write(Chunk chunk, BufferedWriter out) throws Exception {
+
+		join(chunk.task);
+
+		for (int i = 0; i < chunk.size; i++) {
+			out.write(chunk.lines[i]);
+			out.write("\n");
+		}
+
+	}
+
+	/**
+	 * Waits for the given task to complete and throws the original error if
+	 * the task failed (e.g., a wrong number of fields in a line)
+	 */
+	private static void join(ForkJoinTask<?> task) throws Exception {
+
+		try {
+			task.get();
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			while (cause instanceof TaskException)
+				cause = cause.getCause();
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+			throw ex;
+		}
+
+	}
+
+	/**
+	 * A chunk of lines of the input file submitted to the pool; the tokenized
+	 * lines replace the lines in input so that no other array is allocated.
+	 */
+	private class Chunk implements Processor {
+
+		// the lines of the chunk
+		private final String[] lines;
+		// the number of lines in the chunk
+		private final int size;
+		// the number of the first line of the chunk in the input file
+		private final int firstLine;
+		// the task tokenizing the chunk
+		private final RangeTask task;
+
+		Chunk(String[] lines, int size, int firstLine) {
+
+			this.lines = lines;
+			this.size = size;
+			this.firstLine = firstLine;
+			this.task = new RangeTask(this, 0, size);
+			getPool().execute(task);
+
+		}
+
+		@Override
+		public void process(int i) throws Exception {
+
+			lines[i] = tokenizeLine(lines[i], firstLine + i);
+
+		}
+
+	}
+
+	/**
+	 * Processes the element in a given position (e.g., a line of a chunk)
+	 */
+	private interface Processor {
+
+		void process(int i) throws Exception;
+
+	}
+
+	/**
+	 * The task processing a range of elements; the range is split in halves
+	 * until it is small enough to be processed by a single thread.
+	 */
+	private static class RangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		// the processor of the elements
+		private final Processor processor;
+		// the range of elements to process
+		private final int start;
+		private final int end;
+
+		RangeTask(Processor processor, int start, int end) {
+
+			this.processor = processor;
+			this.start = start;
+			this.end = end;
+
+		}
+
+		@Override
+		protected void compute() {
+
+			if (end - start > LINES_PER_TASK) {
+				int middle = (start + end) >>> 1;
+				ForkJoinTask.invokeAll(new RangeTask(processor, start, middle),
+						new RangeTask(processor, middle, end));
+				return;
+			}
+
+			try {
+				for (int i = start; i < end; i++)
+					processor.process(i);
+			} catch (RuntimeException ex) {
+				throw ex;
+			} catch (Exception ex) {
+				throw new TaskException(ex);
+			}
+
+		}
+
+	}
+
+	/**
+	 * The checked errors of the tasks, unwrapped when the tasks are joined
+	 */
+	private static class TaskException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		TaskException(Exception cause) {
+
+			super(cause);
+
+		}
+
+	}
+
+}
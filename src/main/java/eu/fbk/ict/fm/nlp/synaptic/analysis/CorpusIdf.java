@@ -0,0 +1,260 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * CorpusIdf contains the idf values of the n-grams computed from the training
+ * dataset instead of the data collection of the idf lexicon (@see IdfLexicon).
+ * The document frequencies of the n-grams are counted while going once through
+ * the dataset by a count-min sketch: a table of 'depth' rows of 'width'
+ * counters where each n-gram increments one counter for each row, chosen by
+ * hashing its hash code; the document frequency of an n-gram is the min of
+ * its counters. The memory used doesn't depend on the number of n-grams of the
+ * dataset, while the document frequencies can be overestimated because of the
+ * n-grams sharing the same counters (the counters are incremented only when
+ * they are the min ones, i.e., conservative update, to reduce the error).
+ *
+ * The weight of an n-gram occurring in df of the N examples of the dataset is
+ * log10(N / df), as for the idf lexicon; the n-grams that are not in the
+ * dataset have no weight (-1).
+ *
+ * The sketch is saved next to the model (file modelFileName.idf) so that the
+ * classifiers can weight the features in the same way, e.g., the features
+ * hashed into the space of the features IDs (@see FeaturesConfiguration):
+ *
+ * 		int			magic number
+ * 		int			version
+ * 		int			depth
+ * 		int			width (a power of 2)
+ * 		long		number of documents (N)
+ * 		int[depth*width]	the counters, row by row
+ *
+ * The sketch can be read from many threads at the same time once it has been
+ * built.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class CorpusIdf {
+
+	// the extension of the file of the sketch
+	public static final String FILE_EXTENSION = ".idf";
+
+	// the first bytes of the file of the sketch
+	private static final int MAGIC = 0x5359_4446; // 'SYDF'
+	// the version of the format of the file
+	private static final int VERSION = 1;
+	// the size of the header of the file
+	private static final int HEADER_SIZE = 24;
+	// the seeds of the hash functions of the rows
+	private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1, 0xD3A2646C,
+			0xFD7046C5, 0xB55A4F09 };
+
+	// the number of rows and of counters for each row
+	private final int depth;
+	private final int width;
+	// the counters
+	private final int[] counters;
+	// the number of documents
+	private long nDocuments;
+
+	/**
+	 * Class constructor of an empty sketch
+	 *
+	 * @param width
+	 *            the number of counters of each row; it is rounded up to a
+	 *            power of 2
+	 * @param depth
+	 *            the number of rows
+	 */
+	public CorpusIdf(int width, int depth) {
+
+		if (depth < 1 || depth > SEEDS.length)
+			throw new IllegalArgumentException("The depth of the sketch must be between 1 and " + SEEDS.length + "!");
+		if (width < 1 || width > (1 << 30) / depth)
+			throw new IllegalArgumentException("Wrong width of the sketch: " + width + "!");
+
+		int capacity = 1;
+		while (capacity < width)
+			capacity <<= 1;
+		this.depth = depth;
+		this.width = capacity;
+		this.counters = new int[depth * capacity];
+
+	}
+
+	/**
+	 * Counts a document given the hash codes of its n-grams
+	 *
+	 * @param hashes
+	 *            the hash codes of the n-grams of the document (@see
+	 *            NGramKey#hashCode()); they are sorted and the repeated ones
+	 *            are counted once
+	 * @param size
+	 *            the number of hash codes
+	 */
+	public void addDocument(int[] hashes, int size) {
+
+		Arrays.sort(hashes, 0, size);
+		for (int i = 0; i < size; i++)
+			if (i == 0 || hashes[i] != hashes[i - 1])
+				add(hashes[i]);
+		nDocuments++;
+
+	}
+
+	/**
+	 * Gets the weight (idf value) of the n-gram with the given hash code
+	 *
+	 * @param hash
+	 *            the hash code of the n-gram
+	 * @return the weight of the n-gram; -1 if it is not in the dataset
+	 */
+	public float getWeight(int hash) {
+
+		int documentFrequency = getDocumentFrequency(hash);
+		if (documentFrequency == 0)
+			return -1;
+
+		return (float) Math.log10((double) nDocuments / documentFrequency);
+
+	}
+
+	/**
+	 * Gets the number of documents containing the n-gram with the given hash
+	 * code; the number can be overestimated
+	 *
+	 * @param hash
+	 *            the hash code of the n-gram
+	 * @return the number of documents
+	 */
+	public int getDocumentFrequency(int hash) {
+
+		int result = Integer.MAX_VALUE;
+		for (int row = 0; row < depth; row++)
+			result = Math.min(result, counters[position(row, hash)]);
+
+		return result;
+
+	}
+
+	/**
+	 * Gets the number of documents of the dataset
+	 *
+	 * @return the number of documents
+	 */
+	public long getDocumentsNumber() {
+
+		return nDocuments;
+
+	}
+
+	/**
+	 * Saves the sketch into the given file
+	 *
+	 * @param fileName
+	 *            the file name (e.g., modelFileName.idf)
+	 *
+	 * @throws Exception
+	 */
+	public void save(String fileName) throws Exception {
+
+		DataOutputStream out = null;
+
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(depth);
+			out.writeInt(width);
+			out.writeLong(nDocuments);
+			for (int i = 0; i < counters.length; i++)
+				out.writeInt(counters[i]);
+		} finally {
+			if (out != null)
+				out.close();
+		}
+
+	}
+
+	/**
+	 * Loads the sketch from the given file
+	 *
+	 * @param fileName
+	 *            the file name (e.g., modelFileName.idf)
+	 * @return the sketch
+	 *
+	 * @throws Exception
+	 */
+	public static CorpusIdf load(String fileName) throws Exception {
+
+		RandomAccessFile in = null;
+
+		try {
+
+			in = new RandomAccessFile(new File(fileName), "r");
+			FileChannel channel = in.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining() && channel.read(header) != -1)
+				;
+			if (header.getInt(0) != MAGIC)
+				throw new Exception("Wrong format of the idf file " + fileName + "!");
+			if (header.getInt(4) != VERSION)
+				throw new Exception("Unsupported version of the idf file " + fileName + ": " + header.getInt(4) + "!");
+
+			CorpusIdf result = new CorpusIdf(header.getInt(12), header.getInt(8));
+			result.nDocuments = header.getLong(16);
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, 4L * result.counters.length);
+			buffer.asIntBuffer().get(result.counters);
+
+			return result;
+
+		} finally {
+			if (in != null)
+				in.close();
+		}
+
+	}
+
+	/**
+	 * Increments the counters of the given hash code that are the min ones
+	 */
+	private void add(int hash) {
+
+		int min = getDocumentFrequency(hash);
+		for (int row = 0; row < depth; row++) {
+			int position = position(row, hash);
+			if (counters[position] == min)
+				counters[position] = min + 1;
+		}
+
+	}
+
+	/**
+	 * Gets the position of the counter of the given hash code in the given row
+	 */
+	private int position(int row, int hash) {
+
+		// mix the bits of the hash code with the seed of the row (finalizer
+		// of MurmurHash3)
+		int h = (hash ^ SEEDS[row]) * 0x9E3779B9;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+
+		return row * width + (h & (width - 1));
+
+	}
+
+}
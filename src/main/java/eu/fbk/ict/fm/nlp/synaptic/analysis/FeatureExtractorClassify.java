@@ -1,13 +1,11 @@
 package eu.fbk.ict.fm.nlp.synaptic.analysis;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+
+import opennlp.tools.tokenize.WhitespaceTokenizer;
+import opennlp.tools.util.Span;
 
 /**
  * FeatureExtractorClassify is used during the classifier annotation phase to
@@ -27,6 +25,26 @@ public class FeatureExtractorClassify extends AbstractFeatureExtractor {
 	// private static final Logger LOGGER =
 	// Logger.getLogger(FeatureExtractorClassify.class.getName());
 
+	// the features index mapped into memory
+	private MappedFeaturesIndex mappedFeaturesIndex;
+	// the labels by their IDs
+	private String[] labels;
+
+	// the key and the buffer of the features of each thread using the feature
+	// extractor (e.g., the threads sharing the same classifier)
+	private final ThreadLocal<NGramKey> keys = new ThreadLocal<NGramKey>() {
+		@Override
+		protected NGramKey initialValue() {
+			return new NGramKey();
+		}
+	};
+	private final ThreadLocal<FeaturesBuffer> buffers = new ThreadLocal<FeaturesBuffer>() {
+		@Override
+		protected FeaturesBuffer initialValue() {
+			return new FeaturesBuffer();
+		}
+	};
+
 	/**
 	 * Class constructor that initializes some data structures and loads the
 	 * stop words, the features index and the labels index produced during the
@@ -43,12 +61,33 @@ public class FeatureExtractorClassify extends AbstractFeatureExtractor {
 	public FeatureExtractorClassify(String featuresIndexFileName, String labelsIndexFileName,
 			boolean enableStopWordsRemoval) throws Exception {
 
-		this.featuresWeightAndIndex = new HashMap<String, String>();
+		this(new FeaturesConfiguration(), featuresIndexFileName, labelsIndexFileName, enableStopWordsRemoval);
+
+	}
+
+	/**
+	 * Class constructor that uses the given settings of the feature extraction
+	 * (e.g., the settings saved with the model during the classifier training
+	 * phase); the features index is not loaded when feature hashing is enabled.
+	 * 
+	 * @param configuration
+	 *            the settings of the feature extraction
+	 * @param featuresIndexFileName
+	 *            the file containing the features index
+	 * @param labelsIndexFileName
+	 *            the file containing the labels index
+	 * @param enableStopWordsRemoval
+	 *            true for enabling stop words removal; false otherwise
+	 * 
+	 */
+	public FeatureExtractorClassify(FeaturesConfiguration configuration, String featuresIndexFileName,
+			String labelsIndexFileName, boolean enableStopWordsRemoval) throws Exception {
+
+		this.configuration = configuration;
 		this.labelsIndex = new HashMap<String, Integer>();
 		this.inverseLabelsIndex = new HashMap<Double, String>();
 		this.enableStopWordsRemoval = enableStopWordsRemoval;
 		this.stopWords = new HashSet<String>();
-		this.weightedWords = new HashMap<String,Float>();
 
 		// load the list of stop words that are in the resources directory
 		if (enableStopWordsRemoval)
@@ -56,9 +95,16 @@ public class FeatureExtractorClassify extends AbstractFeatureExtractor {
 		
 		this.loadWeighteNgrams();
 
-		// load the feaures index and labels index
-		loadFeaturesWeightAndIndex(new File(featuresIndexFileName));
-		loadLabelsIndex(new File(labelsIndexFileName));
+		// map the features index into memory and load the labels index
+		if (!configuration.isHashing())
+			mappedFeaturesIndex = MappedFeaturesIndex.open(new File(featuresIndexFileName));
+		inverseLabelsIndex.putAll(LabelsIndex.load(new File(labelsIndexFileName)));
+		int maxLabel = 0;
+		for (double labelId : inverseLabelsIndex.keySet())
+			maxLabel = Math.max(maxLabel, (int) labelId);
+		labels = new String[maxLabel + 1];
+		for (int i = 1; i <= maxLabel; i++)
+			labels[i] = inverseLabelsIndex.get((double) i);
 
 	}
 
@@ -73,98 +119,137 @@ public class FeatureExtractorClassify extends AbstractFeatureExtractor {
 	 */
 	public String[] extract(String[] text) throws Exception {
 
-		List<String> tmpList = new ArrayList<String>();
+		// the tokens are joined into a text and their features are extracted
+		// from their spans in the same way as during the training phase
+		String joinedText = String.join(" ", text);
 
-		// text normalization
-		String[] normalizedText = normalizeToLowerCase(text);
-		// stop words removal
-		if (enableStopWordsRemoval)
-			normalizedText = removeStopWords(normalizedText);
-		// generate the features vector; all the produced features have the same
-		// weight equals to 1
-		String[] features = generateNGrams(normalizedText);
-		for (String feature : features) {
-			float featureWeight = 0;
-			int featureIndex = 0;
-			if (featuresWeightAndIndex.containsKey(feature)) {
-				String featureWeightAndIndex = featuresWeightAndIndex.get(feature);
-				featureWeight = Float.parseFloat(featureWeightAndIndex.split("___")[0]);
-				featureIndex = Integer.parseInt(featureWeightAndIndex.split("___")[1]);
-				//tmpList.add(featureIndex + ":1");
-				tmpList.add(featureIndex + ":" + featureWeight);
-			}
-		}
+		return extract(joinedText, WhitespaceTokenizer.INSTANCE.tokenizePos(joinedText));
+
+	}
+
+	/**
+	 * Extracts the features vector from the given text in input whose tokens
+	 * produced by the pre-processor are given as spans of the text; differently
+	 * from {@link extract(String[] text)} the tokens and their n-grams are not
+	 * copied into new strings but they are looked up in the features index
+	 * directly from the text.
+	 * 
+	 * @param text
+	 *            the text
+	 * @param spans
+	 *            the spans of the pre-processed tokens in the text
+	 * @return the features vector
+	 * 
+	 * @throws Exception
+	 */
+	public String[] extract(String text, Span[] spans) throws Exception {
+
+		FeaturesBuffer buffer = extractFeatures(text, spans);
 
-		String[] result = tmpList.toArray(new String[tmpList.size()]);
+		String[] result = new String[buffer.size()];
+		for (int i = 0; i < buffer.size(); i++)
+			result[i] = buffer.getIndex(i) + ":" + buffer.getWeight(i);
 
 		return result;
 
 	}
 
 	/**
-	 * Loads the labels index produced during the classifier training phase
+	 * Extracts the features vector from the given text in input whose tokens
+	 * produced by the pre-processor are given as spans of the text. The text
+	 * is normalized, its stop words are removed and the IDs of its features
+	 * are looked up while going once through its tokens, and the features are
+	 * put into a buffer of the calling thread that is reused for all the texts
+	 * it classifies; no intermediate array or string is produced. The features
+	 * are sorted by their IDs and the weights of the features occurring many
+	 * times are summed (i.e., term frequency by idf).
 	 * 
-	 * @param file
-	 *            the labels index file name
+	 * @param text
+	 *            the text
+	 * @param spans
+	 *            the spans of the pre-processed tokens in the text
+	 * @return the features vector; it is valid until the calling thread
+	 *         extracts the features of another text
 	 * 
 	 * @throws Exception
 	 */
-	private void loadLabelsIndex(File file) throws Exception {
+	public FeaturesBuffer extractFeatures(String text, Span[] spans) throws Exception {
 
-		BufferedReader buffer = null;
+		NGramKey key = keys.get();
 
-		try {
+		// text normalization and stop words removal
+		normalize(text, spans, key);
 
-			buffer = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF8"));
+		return extractFeatures(key, buffers.get());
 
-			String str;
-			while ((str = buffer.readLine()) != null) {
-				String[] splitLine = str.split("\t");
-				String label = splitLine[0];
-				double index = Double.parseDouble(splitLine[1]);
-				this.inverseLabelsIndex.put(index, label);
-			}
-
-		} catch (Exception ex) {
-			throw (ex);
-		} finally {
-			if (buffer != null)
-				buffer.close();
-		}
 	}
 
 	/**
-	 * Loads the features index produced during the classifier training phase
+	 * Extracts the features vector from a text that has already been
+	 * normalized by the given key keeping all its tokens (@see
+	 * normalize(NGramKey, NGramKey)); only the stop words are removed, so
+	 * that the text is tokenized and normalized once for many classifiers.
 	 * 
-	 * @param file
-	 *            the features index file name
+	 * @param tokens
+	 *            the key that has normalized the text
+	 * @return the features vector; it is valid until the calling thread
+	 *         extracts the features of another text
 	 * 
 	 * @throws Exception
 	 */
-	private void loadFeaturesWeightAndIndex(File file) throws Exception {
+	public FeaturesBuffer extractFeatures(NGramKey tokens) throws Exception {
+
+		NGramKey key = keys.get();
 
-		BufferedReader buffer = null;
+		// stop words removal
+		normalize(tokens, key);
 
-		try {
+		return extractFeatures(key, buffers.get());
 
-			buffer = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF8"));
+	}
 
-			String str;
-			while ((str = buffer.readLine()) != null) {
-				String[] splitLine = str.split("\t");
-				float weight = Float.parseFloat(splitLine[1]);
-				int index = Integer.valueOf(splitLine[2]);
-				String featureWeightAndIndex = weight + "___" + index;
-				String feature = splitLine[0];
-				this.featuresWeightAndIndex.put(feature, featureWeightAndIndex);
-			}
+	/**
+	 * Puts the features of the text given to the key into the given buffer
+	 */
+	private FeaturesBuffer extractFeatures(NGramKey key, FeaturesBuffer buffer) throws Exception {
 
-		} catch (Exception ex) {
-			throw (ex);
-		} finally {
-			if (buffer != null)
-				buffer.close();
+		// generate the features vector: the n-grams given by the
+		// configuration (e.g., unigrams and then bigrams)
+		if (configuration.isHashing()) {
+			hashFeatures(key, buffer);
+			return buffer;
+		}
+		buffer.clear();
+		while (key.next()) {
+			int slot = mappedFeaturesIndex.find(key);
+			if (slot != -1)
+				buffer.add(mappedFeaturesIndex.getIndex(slot), mappedFeaturesIndex.getWeight(slot));
 		}
+		// sorted by the IDs of the features, as needed by the classifier,
+		// and with one entry for each feature
+		buffer.merge();
+
+		return buffer;
+
+	}
+
+	/**
+	 * Gets the label string given its numeric id, without boxing the id
+	 * 
+	 * @param labelId
+	 *            the label id
+	 * 
+	 * @return the label string
+	 */
+	@Override
+	public String getLabel(double labelId) {
+
+		int index = (int) labelId;
+		if (index == labelId && index >= 0 && index < labels.length)
+			return labels[index];
+
+		return super.getLabel(labelId);
+
 	}
 
 }
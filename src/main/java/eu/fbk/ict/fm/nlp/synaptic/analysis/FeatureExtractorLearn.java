@@ -2,21 +2,49 @@ package eu.fbk.ict.fm.nlp.synaptic.analysis;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
+import opennlp.tools.tokenize.WhitespaceTokenizer;
+import opennlp.tools.util.Span;
+
 /**
  * FeatureExtractorLearn is used during the classifier learning phase to produce
  * the features vectors of the examples in input and that have already been
  * pre-processed by the Preprocessor component @see
  * eu.fbk.ict.fm.nlp.analysisPreprocessor. The output is a file containing the
  * generated features index, a file with the labels index and the file
- * containing the features vectors of the given examples of the dataset.
+ * containing the features vectors of the given examples of the dataset. The
+ * features index and the labels index are saved in the binary formats mapped
+ * by the classifiers (@see MappedFeaturesIndex, LabelsIndex) and they can be
+ * exported into text files too (@see setTextIndexes(boolean)).
+ * 
+ * The features can be extracted by many threads (@see setParallelism(int)):
+ * each chunk of examples is split among the threads, which look up the
+ * n-grams of their examples into the features index without modifying it,
+ * and then the n-grams not yet in the index are added to it in the same order
+ * of the dataset, so that the features get the same IDs (i.e., from their
+ * first occurrence) and the produced files are the same whatever the number
+ * of threads.
+ * 
+ * The vocabulary can be pruned once all the features have been found (@see
+ * setMinDocumentFrequency(int), setMaxFeatures(int)): the features occurring
+ * in too few examples or with the lowest chi-square scores are removed and
+ * the remaining ones get new IDs without holes (@see FeaturesSelection), so
+ * that the features index, the features vectors and the model get smaller.
  * 
  * @author zanoli
  * 
@@ -28,18 +56,42 @@ public class FeatureExtractorLearn extends AbstractFeatureExtractor {
 	// the logger
 	private static final Logger LOGGER = Logger.getLogger(FeatureExtractorLearn.class.getName());
 
+	// the number of examples of the dataset read and pre-processed together
+	private static final int CHUNK_SIZE = 4096;
+	// the min number of examples given to each thread extracting the features
+	private static final int MIN_EXAMPLES_PER_THREAD = 256;
+
+	// the number of threads used for extracting the features (1 means
+	// sequential)
+	private int parallelism = 1;
+	// the pool of threads; it is created the first time it is needed
+	private ForkJoinPool pool;
+	// the extension of the text exports of the features index and of the
+	// labels index
+	public static final String TEXT_EXTENSION = ".txt";
+
+	// the min number of examples a feature has to occur in (1 means no
+	// pruning)
+	private int minDocumentFrequency = 1;
+	// the max number of features to keep (0 means no limit)
+	private int maxFeatures = 0;
+	// true for exporting the features index and the labels index into text
+	// files too
+	private boolean textIndexes = false;
+	// true for saving the features vectors in the binary format
+	private boolean binaryVectors = false;
+
 	/**
 	 * Class constructor that initialized some data structures, and loads the
 	 * stop words
 	 */
 	public FeatureExtractorLearn(boolean enableStopWordsRemoval) throws Exception {
 
-		this.featuresWeightAndIndex = new HashMap<String, String>();
+		this.featuresIndex = new FeaturesIndex();
 		this.labelsIndex = new HashMap<String, Integer>();
 		this.inverseLabelsIndex = new HashMap<Double, String>();
 		this.enableStopWordsRemoval = enableStopWordsRemoval;
 		this.stopWords = new HashSet<String>();
-		this.weightedWords = new HashMap<String,Float>();
 		// load the list of stop words that are in the resources directory
 		if (enableStopWordsRemoval)
 			loadStopWords();
@@ -58,7 +110,8 @@ public class FeatureExtractorLearn extends AbstractFeatureExtractor {
 	 * @param featuresVectorFileName
 	 *            the output file of the features vectors
 	 * @param featuresIndexFileName
-	 *            the output file of the features index
+	 *            the output file of the features index; it is not produced
+	 *            when feature hashing is enabled
 	 * @param labelsIndexFileName
 	 *            the output file of the labels index
 	 * @param datasetLabelIndex
@@ -70,118 +123,256 @@ public class FeatureExtractorLearn extends AbstractFeatureExtractor {
 	public void extract(String datasetFileName, String featuresVectorFileName, String featuresIndexFileName,
 			String labelsIndexFileName, int datasetLabelIndex) throws Exception {
 
+		extract(datasetFileName, null, null, featuresVectorFileName, featuresIndexFileName, labelsIndexFileName,
+				datasetLabelIndex, false);
+
+	}
+
+	/**
+	 * Pre-processes the given dataset in input and extracts its features
+	 * vectors in a single pass: the pre-processed examples are not written into
+	 * a file and read back but their features are extracted directly and put
+	 * into memory. The files of the features index and of the labels index are
+	 * produced as usual, while the pre-processed dataset and the features
+	 * vectors can be also saved into files for debugging purposes.
+	 * 
+	 * @param datasetFileName
+	 *            the input file containing the dataset (not pre-processed)
+	 * @param preprocessor
+	 *            the preprocessor for pre-processing the examples
+	 * @param preprocessedDataSetFileName
+	 *            the output file of the pre-processed dataset; null for not
+	 *            saving it
+	 * @param featuresVectorFileName
+	 *            the output file of the features vectors; null for not saving
+	 *            them
+	 * @param featuresIndexFileName
+	 *            the output file of the features index; it is not produced
+	 *            when feature hashing is enabled
+	 * @param labelsIndexFileName
+	 *            the output file of the labels index
+	 * @param datasetLabelIndex
+	 *            the label field position in the input dataset corresponding to
+	 *            the gold label to learn (e.g., 2 that is sentiment)
+	 * @return the features vectors of the examples of the dataset
+	 * 
+	 * @throws Exception
+	 */
+	public FeaturesVectors extract(String datasetFileName, IPreprocessor preprocessor,
+			String preprocessedDataSetFileName, String featuresVectorFileName, String featuresIndexFileName,
+			String labelsIndexFileName, int datasetLabelIndex) throws Exception {
+
+		return extract(datasetFileName, preprocessor, preprocessedDataSetFileName, featuresVectorFileName,
+				featuresIndexFileName, labelsIndexFileName, datasetLabelIndex, true);
+
+	}
+
+	/**
+	 * Extracts the features vectors of the given dataset; the dataset is read
+	 * in chunks of examples that are pre-processed together (e.g., in parallel)
+	 * when a preprocessor is given, otherwise the dataset has to be already
+	 * pre-processed.
+	 */
+	private FeaturesVectors extract(String datasetFileName, IPreprocessor preprocessor,
+			String preprocessedDataSetFileName, String featuresVectorFileName, String featuresIndexFileName,
+			String labelsIndexFileName, int datasetLabelIndex, boolean keepFeaturesVectors) throws Exception {
+
 		LOGGER.info("Extracting features....");
 
-		// the pre-processed dataset in input
+		// the dataset in input
 		BufferedReader in = null;
-		// the file that will contain the features index
-		BufferedWriter outFeaturesIndex = null;
-		// the file that will contain the labels index
-		BufferedWriter outLabelsIndex = null;
 		// the file that will contain the generated features vectors
 		BufferedWriter outFeaturesVector = null;
+		// the file that will contain the pre-processed dataset
+		BufferedWriter outPreprocessedDataSet = null;
+		// the vocabulary is pruned after finding all the features; then the
+		// features vectors have to be kept in memory and they are written at
+		// the end, as in the binary format
+		boolean pruning = isPruning();
+		boolean writeAtEnd = pruning || (binaryVectors && featuresVectorFileName != null);
+		// the generated features vectors
+		FeaturesVectors featuresVectors = keepFeaturesVectors || writeAtEnd ? new FeaturesVectors() : null;
 
 		try {
 
 			in = new BufferedReader(new InputStreamReader(new FileInputStream(datasetFileName), "UTF8"));
-			outLabelsIndex = new BufferedWriter(
-					new OutputStreamWriter(new FileOutputStream(labelsIndexFileName), "UTF-8"));
-			outFeaturesIndex = new BufferedWriter(
-					new OutputStreamWriter(new FileOutputStream(featuresIndexFileName), "UTF-8"));
-			outFeaturesVector = new BufferedWriter(
-					new OutputStreamWriter(new FileOutputStream(featuresVectorFileName), "UTF-8"));
-
-			String str;
+			if (featuresVectorFileName != null && !writeAtEnd)
+				outFeaturesVector = new BufferedWriter(
+						new OutputStreamWriter(new FileOutputStream(featuresVectorFileName), "UTF-8"));
+			if (preprocessedDataSetFileName != null)
+				outPreprocessedDataSet = new BufferedWriter(
+						new OutputStreamWriter(new FileOutputStream(preprocessedDataSetFileName), "UTF-8"));
+
+			// the fields and the texts of the examples in the current chunk
+			String[][] fields = new String[CHUNK_SIZE][];
+			String[] texts = new String[CHUNK_SIZE];
+			// the features of the examples in the current chunk, as they are
+			// found by the workers before merging them into the features index
+			ExampleFeatures[] examples = new ExampleFeatures[CHUNK_SIZE];
+			for (int e = 0; e < CHUNK_SIZE; e++)
+				examples[e] = new ExampleFeatures();
+			// the features of the current example, sorted by their IDs and
+			// with one entry for each feature
+			FeaturesBuffer vector = new FeaturesBuffer();
+			// the features vector of the current example
+			int[] featureIndexes = new int[256];
+			double[] featureWeights = new double[256];
+			StringBuilder builder = new StringBuilder();
+
 			int lineCounter = 0;
-			// for each example in the pre-processed dataset
-			while ((str = in.readLine()) != null) {
-
-				lineCounter++;
-
-				if (lineCounter == 1) // this line contains the fields names
-										// (e.g., start/end time, sentiment)
-					continue;
-
-				// check if the number of fields of the current example is
-				// correct
-				String[] splitLine = str.split("\t");
-				if (splitLine.length != FileTSV.FIELDS_NUMBER)
-					throw new Exception("Error in line " + lineCounter + ": wrong number of fields in the input file!");
-
-				// get the label of the current example
-				String label = splitLine[datasetLabelIndex];
-				// check the current label
-				//if (label.indexOf(" ") != -1)
-				//throw new Exception("Error in line " + lineCounter + ": labels can not contain space characters!");
-				if (label.length() == 0)
-					throw new Exception(
-							"Error in line " + lineCounter + ": labels must consist of at least one character!");
-				// build the labels index
-				int index = 0;
-				if (labelsIndex.containsKey(label))
-					index = labelsIndex.get(label);
-				else {
-					index = labelsIndex.size() + 1; // labels start from index 1
-					labelsIndex.put(label, index);
-					outLabelsIndex.write(label + "\t" + index + "\n"); // update
-																		// the
-																		// labels
-																		// index
-				}
-				outFeaturesVector.write(String.valueOf(index)); // print the
-																// label as the
-																// first element
-																// of the
-																// feature
-																// vector
-
-				// get the pre-processed text
-				String[] preprocessedText = splitLine[FileTSV.CONTENT].split(" ");
-				// text normalization
-				preprocessedText = normalizeToLowerCase(preprocessedText);
-				// stop words removal
-				if (enableStopWordsRemoval)
-					preprocessedText = removeStopWords(preprocessedText);
-
-				// generate the features vector of the current example
-				String[] features = generateNGrams(preprocessedText);
-				for (String feature : features) {
-					float featureWeight = 0;
-					int featureIndex = 0;
-					if (featuresWeightAndIndex.containsKey(feature)) {
-						String featureWeightAndIndex = featuresWeightAndIndex.get(feature);
-						featureWeight = Float.parseFloat(featureWeightAndIndex.split("___")[0]);
-						featureIndex = Integer.parseInt(featureWeightAndIndex.split("___")[1]);
+			boolean endOfFile = false;
+			while (!endOfFile) {
+
+				// read the next chunk of examples and tokenize them
+				int size = readChunk(in, fields, texts, lineCounter);
+				endOfFile = size < CHUNK_SIZE;
+				Span[][] spans = tokenize(preprocessor, texts, size);
+
+				// find the features of the examples (in parallel); the first
+				// line of the dataset contains the fields names
+				findFeatures(texts, spans, lineCounter == 0 ? 1 : 0, size, examples);
+
+				// merge the features of the examples into the features index
+				// in the same order of the dataset; the new features get their
+				// IDs from their first occurrence as when the examples are
+				// processed one by one
+				for (int e = 0; e < size; e++) {
+
+					lineCounter++;
+					String[] splitLine = fields[e];
+					String preprocessedText = texts[e];
+
+					// save the pre-processed example
+					if (outPreprocessedDataSet != null) {
+						for (int i = 0; i < FileTSV.FIELDS_NUMBER - 1; i++) {
+							outPreprocessedDataSet.write(splitLine[i]);
+							outPreprocessedDataSet.write("\t");
+						}
+						for (int i = 0; i < spans[e].length; i++) {
+							if (i > 0)
+								outPreprocessedDataSet.write(" ");
+							outPreprocessedDataSet.write(preprocessedText, spans[e][i].getStart(),
+									spans[e][i].length());
+						}
+						outPreprocessedDataSet.write("\n");
 					}
+
+					if (lineCounter == 1) // this line contains the fields names
+											// (e.g., start/end time, sentiment)
+						continue;
+
+					// get the label of the current example
+					String label = splitLine[datasetLabelIndex];
+					// check the current label
+					//if (label.indexOf(" ") != -1)
+					//throw new Exception("Error in line " + lineCounter + ": labels can not contain space characters!");
+					if (label.length() == 0)
+						throw new Exception(
+								"Error in line " + lineCounter + ": labels must consist of at least one character!");
+					// build the labels index
+					int index = 0;
+					if (labelsIndex.containsKey(label))
+						index = labelsIndex.get(label);
 					else {
-						featureWeight = getWordWeight(feature);
-						featureIndex = featuresWeightAndIndex.size() + 1;
-						String featureWeightAndIndex = featureWeight + "___" + featureIndex;
-						featuresWeightAndIndex.put(feature, featureWeightAndIndex);
-						if (featureWeight > 0)
-							outFeaturesIndex.write(feature + "\t" + featureWeight + "\t" + featureIndex + "\n");
+						index = labelsIndex.size() + 1; // labels start from index 1
+						labelsIndex.put(label, index);
+					}
+					builder.setLength(0);
+					builder.append(index); // print the label as the first
+											// element of the feature vector
+
+					// the features vector of the current example: the n-grams
+					// given by the configuration (e.g., unigrams and then
+					// bigrams)
+					ExampleFeatures example = examples[e];
+					int nFeatures = 0;
+					if (configuration.isHashing()) {
+						// the IDs of the n-grams are given by their hash codes
+						// and the features index is not used
+						FeaturesBuffer hashedFeatures = example.getHashedFeatures();
+						nFeatures = hashedFeatures.size();
+						if (featureIndexes.length < nFeatures) {
+							featureIndexes = new int[nFeatures];
+							featureWeights = new double[nFeatures];
+						}
+						for (int i = 0; i < nFeatures; i++) {
+							featureIndexes[i] = hashedFeatures.getIndex(i);
+							featureWeights[i] = hashedFeatures.getWeight(i);
+							if (outFeaturesVector != null)
+								builder.append(' ').append(featureIndexes[i]).append(':')
+										.append(hashedFeatures.getWeight(i));
+						}
+					} else {
+						vector.clear();
+						for (int f = 0; f < example.size; f++) {
+							int featureIndex = example.indexes[f];
+							float featureWeight = example.weights[f];
+							if (featureIndex < 0) {
+								// the feature was not in the index when it was
+								// found but a previous example could have added it
+								String feature = example.newFeatures[-featureIndex - 1];
+								int slot = featuresIndex.find(feature);
+								if (slot == -1) {
+									featureIndex = featuresIndex.size() + 1;
+									featuresIndex.add(feature, featureWeight, featureIndex);
+								} else {
+									featureIndex = featuresIndex.getIndex(slot);
+								}
+							}
+							// all features have weight equals to their idf
+							// value; the features with no weight are discarded
+							if (featureWeight > 0)
+								vector.add(featureIndex, featureWeight);
+						}
+						// the features occurring many times get the sum of
+						// their weights (i.e., term frequency by idf)
+						vector.merge();
+						nFeatures = vector.size();
+						if (featureIndexes.length < nFeatures) {
+							featureIndexes = new int[nFeatures];
+							featureWeights = new double[nFeatures];
+						}
+						for (int i = 0; i < nFeatures; i++) {
+							int featureIndex = vector.getIndex(i);
+							float featureWeight = vector.getWeight(i);
+							featureIndexes[i] = featureIndex;
+							featureWeights[i] = featureWeight;
+							if (outFeaturesVector != null)
+								builder.append(' ').append(featureIndex).append(':').append(featureWeight);
+						}
 					}
-					// write the example: all features have weight equals to 1
-					//outFeaturesVector.write(" " + featureIndex + ":1"); // print
-																		// the
-																		// feature
-																		// (all
-																		// the
-																		// features
-																		// have
-																		// the
-																		// same
-																		// weight
-																		// equals
-																		// to 1)
-					// write the example: all features have weight equals to their idf value
-					if (featureWeight > 0)
-						outFeaturesVector.write(" " + featureIndex + ":" + featureWeight);
+
+					// write the example
+					if (outFeaturesVector != null) {
+						outFeaturesVector.write(builder.toString());
+						outFeaturesVector.write("\n");
+					}
+					if (featuresVectors != null)
+						featuresVectors.add(index, featureIndexes, featureWeights, nFeatures);
+
 				}
-				outFeaturesVector.write("\n");
 
 			}
 
+			if (pruning)
+				prune(featuresVectors, binaryVectors ? null : featuresVectorFileName);
+			if (binaryVectors && featuresVectorFileName != null)
+				featuresVectors.save(new File(featuresVectorFileName));
+
+			// save the features index and the labels index in the binary
+			// format read by the classifiers and, for debugging, in the text
+			// format
+			if (!configuration.isHashing()) {
+				File featuresIndexFile = new File(featuresIndexFileName);
+				MappedFeaturesIndex.write(featuresIndex, featuresIndexFile);
+				if (textIndexes)
+					MappedFeaturesIndex.open(featuresIndexFile).export(new File(featuresIndexFileName + TEXT_EXTENSION));
+			}
+			File labelsIndexFile = new File(labelsIndexFileName);
+			LabelsIndex.save(labelsIndex, labelsIndexFile);
+			if (textIndexes)
+				LabelsIndex.export(LabelsIndex.load(labelsIndexFile), new File(labelsIndexFileName + TEXT_EXTENSION));
+
 			LOGGER.info("done.");
 
 		} catch (Exception ex) {
@@ -189,14 +380,521 @@ public class FeatureExtractorLearn extends AbstractFeatureExtractor {
 		} finally {
 			if (in != null)
 				in.close();
-			if (outLabelsIndex != null)
-				outLabelsIndex.close();
-			if (outFeaturesIndex != null)
-				outFeaturesIndex.close();
-			if (outFeaturesIndex != null)
-				outFeaturesIndex.close();
 			if (outFeaturesVector != null)
 				outFeaturesVector.close();
+			if (outPreprocessedDataSet != null)
+				outPreprocessedDataSet.close();
+		}
+
+		return featuresVectors;
+
+	}
+
+	/**
+	 * Prunes the vocabulary of the features found in the dataset and saves
+	 * the features vectors with the new IDs of the features
+	 */
+	private void prune(FeaturesVectors featuresVectors, String featuresVectorFileName) throws Exception {
+
+		int[] newIndexes = new FeaturesSelection(minDocumentFrequency, maxFeatures).select(featuresVectors,
+				featuresIndex.size());
+		featuresVectors.reindex(newIndexes);
+
+		// the selected features by their new IDs
+		int nFeatures = 0;
+		for (int index = 1; index < newIndexes.length; index++)
+			nFeatures = Math.max(nFeatures, newIndexes[index]);
+		LOGGER.info("Pruning features: " + nFeatures + " of " + featuresIndex.size() + " kept.");
+		FeaturesIndex prunedFeaturesIndex = new FeaturesIndex(nFeatures);
+		for (int slot = 0; slot < featuresIndex.capacity(); slot++) {
+			if (featuresIndex.getFeature(slot) == null)
+				continue;
+			int newIndex = newIndexes[featuresIndex.getIndex(slot)];
+			if (newIndex != 0)
+				prunedFeaturesIndex.add(featuresIndex.getFeature(slot), featuresIndex.getWeight(slot), newIndex);
+		}
+		featuresIndex = prunedFeaturesIndex;
+
+		if (featuresVectorFileName == null)
+			return;
+		BufferedWriter out = null;
+		try {
+			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(featuresVectorFileName), "UTF-8"));
+			StringBuilder builder = new StringBuilder();
+			for (int e = 0; e < featuresVectors.size(); e++) {
+				int[] indexes = featuresVectors.getIndexes(e);
+				double[] weights = featuresVectors.getWeights(e);
+				builder.setLength(0);
+				builder.append((int) featuresVectors.getLabel(e));
+				for (int i = 0; i < indexes.length; i++)
+					builder.append(' ').append(indexes[i]).append(':').append((float) weights[i]);
+				out.write(builder.toString());
+				out.write("\n");
+			}
+		} finally {
+			if (out != null)
+				out.close();
+		}
+
+	}
+
+	/**
+	 * Gets if the vocabulary has to be pruned; it is never pruned in the
+	 * feature hashing mode, where the IDs of the features are given by their
+	 * hash codes
+	 */
+	private boolean isPruning() {
+
+		if (minDocumentFrequency == 1 && maxFeatures == 0)
+			return false;
+		if (configuration.isHashing()) {
+			LOGGER.warning("The vocabulary is not pruned in the feature hashing mode.");
+			return false;
+		}
+
+		return true;
+
+	}
+
+	/**
+	 * Counts the document frequencies of the n-grams of the given dataset in
+	 * input for weighting the features by the idf values of the dataset (@see
+	 * setCorpusIdf(CorpusIdf corpusIdf)). The dataset is read once in chunks
+	 * of examples, as while extracting the features, and the memory used by
+	 * the counters doesn't depend on the size of the dataset (@see
+	 * CorpusIdf).
+	 * 
+	 * @param datasetFileName
+	 *            the input file containing the dataset (not pre-processed
+	 *            when a preprocessor is given)
+	 * @param preprocessor
+	 *            the preprocessor for pre-processing the examples; null if the
+	 *            dataset is already pre-processed
+	 * @return the idf values of the n-grams of the dataset
+	 * 
+	 * @throws Exception
+	 */
+	public CorpusIdf countDocumentFrequencies(String datasetFileName, IPreprocessor preprocessor) throws Exception {
+
+		LOGGER.info("Counting document frequencies....");
+
+		CorpusIdf result = new CorpusIdf(configuration.getCorpusIdfWidth(), configuration.getCorpusIdfDepth());
+		BufferedReader in = null;
+
+		try {
+
+			in = new BufferedReader(new InputStreamReader(new FileInputStream(datasetFileName), "UTF8"));
+
+			final String[][] fields = new String[CHUNK_SIZE][];
+			final String[] texts = new String[CHUNK_SIZE];
+			final ExampleFeatures[] examples = new ExampleFeatures[CHUNK_SIZE];
+			for (int e = 0; e < CHUNK_SIZE; e++)
+				examples[e] = new ExampleFeatures();
+
+			int lineCounter = 0;
+			boolean endOfFile = false;
+			while (!endOfFile) {
+
+				int size = readChunk(in, fields, texts, lineCounter);
+				endOfFile = size < CHUNK_SIZE;
+				final Span[][] spans = tokenize(preprocessor, texts, size);
+
+				// the hash codes of the n-grams of the examples are collected
+				// in parallel and then counted in the same order of the
+				// dataset; the first line contains the fields names
+				int start = lineCounter == 0 ? 1 : 0;
+				processExamples(start, size, new ExampleProcessor() {
+					@Override
+					public void process(int e, NGramKey key) throws Exception {
+						normalize(texts[e], spans[e], key);
+						examples[e].clear();
+						while (key.next())
+							examples[e].add(key.hashCode(), 0);
+					}
+				});
+				for (int e = start; e < size; e++)
+					result.addDocument(examples[e].indexes, examples[e].size);
+				lineCounter += size;
+
+			}
+
+			LOGGER.info("done (" + result.getDocumentsNumber() + " documents).");
+
+		} catch (Exception ex) {
+			throw (ex);
+		} finally {
+			if (in != null)
+				in.close();
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * Reads the next chunk of examples of the dataset
+	 * 
+	 * @return the number of examples read; less than the size of a chunk at
+	 *         the end of the dataset
+	 */
+	private static int readChunk(BufferedReader in, String[][] fields, String[] texts, int lineCounter)
+			throws Exception {
+
+		int size = 0;
+		String str;
+		while (size < CHUNK_SIZE && (str = in.readLine()) != null) {
+
+			// check if the number of fields of the current example is
+			// correct
+			String[] splitLine = str.split("\t");
+			if (splitLine.length != FileTSV.FIELDS_NUMBER)
+				throw new Exception("Error in line " + (lineCounter + size + 1)
+						+ ": wrong number of fields in the input file!");
+			fields[size] = splitLine;
+			texts[size] = splitLine[FileTSV.CONTENT];
+			size++;
+
+		}
+
+		return size;
+
+	}
+
+	/**
+	 * Gets the tokens of the given examples: the examples are pre-processed
+	 * by the given preprocessor, otherwise they are already pre-processed and
+	 * have their tokens separated by a space character
+	 */
+	private static Span[][] tokenize(IPreprocessor preprocessor, String[] texts, int size) throws Exception {
+
+		if (preprocessor != null)
+			return preprocessor.processPos(texts, size);
+
+		Span[][] spans = new Span[size][];
+		for (int i = 0; i < size; i++)
+			spans[i] = WhitespaceTokenizer.INSTANCE.tokenizePos(texts[i]);
+
+		return spans;
+
+	}
+
+	/**
+	 * Finds the features of the given examples: each thread looks up the
+	 * n-grams of its examples into the features index, which is not modified
+	 * in the meanwhile; the n-grams that are not in the index are kept with
+	 * the features of their examples, to be added to the index later in the
+	 * same order of the dataset.
+	 */
+	private void findFeatures(final String[] texts, final Span[][] spans, int start, int end,
+			final ExampleFeatures[] examples) throws Exception {
+
+		processExamples(start, end, new ExampleProcessor() {
+			@Override
+			public void process(int e, NGramKey key) throws Exception {
+				findFeatures(texts[e], spans[e], key, examples[e]);
+			}
+		});
+
+	}
+
+	/**
+	 * Processes the examples in the given range: the examples are split into
+	 * as many partitions as the number of threads and each thread processes
+	 * the examples of its partition with its own n-gram key
+	 */
+	private void processExamples(int start, int end, final ExampleProcessor processor) throws Exception {
+
+		int nPartitions = Math.max(1, Math.min(parallelism, (end - start) / MIN_EXAMPLES_PER_THREAD));
+		if (nPartitions == 1) {
+			NGramKey key = new NGramKey();
+			for (int e = start; e < end; e++)
+				processor.process(e, key);
+			return;
+		}
+
+		List<Future<Void>> tasks = new ArrayList<Future<Void>>();
+		for (int p = 0; p < nPartitions; p++) {
+			final int from = start + (int) ((long) (end - start) * p / nPartitions);
+			final int to = start + (int) ((long) (end - start) * (p + 1) / nPartitions);
+			tasks.add(getPool().submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					NGramKey key = new NGramKey();
+					for (int e = from; e < to; e++)
+						processor.process(e, key);
+					return null;
+				}
+			}));
+		}
+
+		try {
+			for (Future<Void> task : tasks)
+				task.get();
+		} catch (ExecutionException ex) {
+			for (Future<Void> task : tasks)
+				task.cancel(false);
+			if (ex.getCause() instanceof Exception)
+				throw (Exception) ex.getCause();
+			throw ex;
+		}
+
+	}
+
+	/**
+	 * Finds the features of the given example
+	 */
+	private void findFeatures(String text, Span[] spans, NGramKey key, ExampleFeatures example) throws Exception {
+
+		// text normalization and stop words removal; the tokens are looked up
+		// in the features index without copying them
+		normalize(text, spans, key);
+
+		if (configuration.isHashing()) {
+			hashFeatures(key, example.getHashedFeatures());
+			return;
+		}
+
+		example.clear();
+		while (key.next()) {
+			int slot = featuresIndex.find(key);
+			if (slot != -1)
+				example.add(featuresIndex.getIndex(slot), featuresIndex.getWeight(slot));
+			else
+				example.addNew(key.toString(), getFeatureWeight(key));
+		}
+
+	}
+
+	/**
+	 * Sets the number of threads used for extracting the features of the
+	 * dataset; 1 (the default) extracts them sequentially. The features index,
+	 * the labels index and the features vectors are the same whatever the
+	 * number of threads.
+	 * 
+	 * @param parallelism
+	 *            the number of threads
+	 */
+	public synchronized void setParallelism(int parallelism) {
+
+		if (pool != null && pool.getParallelism() != parallelism) {
+			pool.shutdown();
+			pool = null;
+		}
+		this.parallelism = parallelism;
+
+	}
+
+	/**
+	 * Gets the number of threads used for extracting the features
+	 * 
+	 * @return the number of threads
+	 */
+	public int getParallelism() {
+
+		return this.parallelism;
+
+	}
+
+	/**
+	 * Sets if the features index and the labels index have to be exported
+	 * into text files too (e.g., modelFileName.features.index.txt), for
+	 * debugging; the classifiers read the binary ones.
+	 * 
+	 * @param textIndexes
+	 *            true for exporting the indexes into text files
+	 */
+	public void setTextIndexes(boolean textIndexes) {
+
+		this.textIndexes = textIndexes;
+
+	}
+
+	/**
+	 * Gets if the features index and the labels index are exported into text
+	 * files too
+	 * 
+	 * @return true if the indexes are exported into text files
+	 */
+	public boolean getTextIndexes() {
+
+		return this.textIndexes;
+
+	}
+
+	/**
+	 * Sets if the file of the features vectors has to be saved in the binary
+	 * format (@see FeaturesVectors), which is read much faster than the text
+	 * one for training the classifier again on the same features
+	 * 
+	 * @param binaryVectors
+	 *            true for the binary format
+	 */
+	public void setBinaryVectors(boolean binaryVectors) {
+
+		this.binaryVectors = binaryVectors;
+
+	}
+
+	/**
+	 * Gets if the file of the features vectors is saved in the binary format
+	 * 
+	 * @return true for the binary format
+	 */
+	public boolean getBinaryVectors() {
+
+		return this.binaryVectors;
+
+	}
+
+	/**
+	 * Sets the min number of examples a feature has to occur in not to be
+	 * removed from the vocabulary; 1 (the default) keeps all the features
+	 * 
+	 * @param minDocumentFrequency
+	 *            the min number of examples
+	 */
+	public void setMinDocumentFrequency(int minDocumentFrequency) {
+
+		if (minDocumentFrequency < 1)
+			throw new IllegalArgumentException(
+					"The min document frequency must be at least 1: " + minDocumentFrequency + "!");
+		this.minDocumentFrequency = minDocumentFrequency;
+
+	}
+
+	/**
+	 * Gets the min number of examples a feature has to occur in
+	 * 
+	 * @return the min number of examples
+	 */
+	public int getMinDocumentFrequency() {
+
+		return this.minDocumentFrequency;
+
+	}
+
+	/**
+	 * Sets the max number of features of the vocabulary: the features with the
+	 * highest chi-square scores are kept; 0 (the default) for no limit
+	 * 
+	 * @param maxFeatures
+	 *            the max number of features
+	 */
+	public void setMaxFeatures(int maxFeatures) {
+
+		if (maxFeatures < 0)
+			throw new IllegalArgumentException("Wrong max number of features: " + maxFeatures + "!");
+		this.maxFeatures = maxFeatures;
+
+	}
+
+	/**
+	 * Gets the max number of features of the vocabulary
+	 * 
+	 * @return the max number of features; 0 for no limit
+	 */
+	public int getMaxFeatures() {
+
+		return this.maxFeatures;
+
+	}
+
+	/**
+	 * Stops the pool of threads and releases the resources shared with the
+	 * other feature extractors
+	 */
+	@Override
+	public void close() {
+
+		synchronized (this) {
+			if (pool != null) {
+				pool.shutdown();
+				pool = null;
+			}
+		}
+		super.close();
+
+	}
+
+	/**
+	 * Gets the pool of threads, creating it the first time
+	 */
+	private synchronized ForkJoinPool getPool() {
+
+		if (pool == null)
+			pool = new ForkJoinPool(parallelism);
+
+		return pool;
+
+	}
+
+	/**
+	 * Processes an example of a chunk with the n-gram key of the calling
+	 * thread
+	 */
+	private interface ExampleProcessor {
+
+		void process(int e, NGramKey key) throws Exception;
+
+	}
+
+	/**
+	 * The features of an example found before merging them into the features
+	 * index; the arrays are reused for the examples of the next chunks.
+	 */
+	private static class ExampleFeatures {
+
+		// the IDs of the features that are in the features index or, for the
+		// features that are not in the index, -1 minus their position in
+		// 'newFeatures'
+		private int[] indexes = new int[64];
+		// the weights of the features
+		private float[] weights = new float[64];
+		// the number of features
+		private int size;
+		// the features that are not in the features index
+		private String[] newFeatures = new String[16];
+		private int nNewFeatures;
+		// the features of the feature hashing mode
+		private FeaturesBuffer hashedFeatures;
+
+		void clear() {
+
+			size = 0;
+			for (int i = 0; i < nNewFeatures; i++)
+				newFeatures[i] = null;
+			nNewFeatures = 0;
+
+		}
+
+		void add(int index, float weight) {
+
+			if (size == indexes.length) {
+				indexes = Arrays.copyOf(indexes, 2 * size);
+				weights = Arrays.copyOf(weights, 2 * size);
+			}
+			indexes[size] = index;
+			weights[size] = weight;
+			size++;
+
+		}
+
+		void addNew(String feature, float weight) {
+
+			if (nNewFeatures == newFeatures.length)
+				newFeatures = Arrays.copyOf(newFeatures, 2 * nNewFeatures);
+			newFeatures[nNewFeatures++] = feature;
+			add(-nNewFeatures, weight);
+
+		}
+
+		FeaturesBuffer getHashedFeatures() {
+
+			if (hashedFeatures == null)
+				hashedFeatures = new FeaturesBuffer(64);
+
+			return hashedFeatures;
+
 		}
 
 	}
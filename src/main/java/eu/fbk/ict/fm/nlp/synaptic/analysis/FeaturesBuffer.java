@@ -0,0 +1,195 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import java.util.Arrays;
+
+/**
+ * FeaturesBuffer is a reusable buffer where the feature extractors put the
+ * features vector of an example, i.e., the IDs of its features and their
+ * weights, into arrays of primitive types that grow when needed and are then
+ * reused for the next examples, e.g.,
+ *
+ * 		buffer.clear();
+ * 		buffer.add(index, weight);
+ * 		...
+ * 		for (int i = 0; i < buffer.size(); i++)
+ * 			... buffer.getIndex(i) ... buffer.getWeight(i) ...
+ *
+ * After merge() the buffer is a sparse vector with strictly increasing IDs,
+ * as needed by the classifier, and the features occurring many times in the
+ * example have a single entry whose weight is the sum of their weights.
+ *
+ * The features can be given to the classifier without copying them (@see
+ * getIndexes(), getValues()).
+ *
+ * Instances are mutable and must not be shared among threads.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class FeaturesBuffer {
+
+	// the IDs of the features
+	private int[] indexes;
+	// the weights of the features
+	private float[] weights;
+	// the number of features
+	private int size;
+	// the features packed for sorting them (@see merge())
+	private long[] packed;
+	// the values of the features for the classifier (@see getValues())
+	private double[] values;
+
+	/**
+	 * Class constructor
+	 */
+	public FeaturesBuffer() {
+
+		this(256);
+
+	}
+
+	/**
+	 * Class constructor
+	 *
+	 * @param capacity
+	 *            the number of features the buffer can contain before growing
+	 */
+	public FeaturesBuffer(int capacity) {
+
+		indexes = new int[capacity];
+		weights = new float[capacity];
+		packed = new long[0];
+
+	}
+
+	/**
+	 * Removes all the features
+	 */
+	public void clear() {
+
+		size = 0;
+
+	}
+
+	/**
+	 * Adds a feature
+	 *
+	 * @param index
+	 *            the ID of the feature
+	 * @param weight
+	 *            the weight of the feature
+	 */
+	public void add(int index, float weight) {
+
+		if (size == indexes.length) {
+			indexes = Arrays.copyOf(indexes, 2 * size);
+			weights = Arrays.copyOf(weights, 2 * size);
+		}
+		indexes[size] = index;
+		weights[size] = weight;
+		size++;
+
+	}
+
+	/**
+	 * Sorts the features by their IDs and sums the weights of the features
+	 * with the same ID (e.g., the hash collisions of the feature hashing mode)
+	 */
+	public void merge() {
+
+		// sort the ID and the weight of each feature together: the IDs are
+		// positive and then they are in the high bits of the sorted values
+		if (packed.length < size)
+			packed = new long[indexes.length];
+		for (int i = 0; i < size; i++)
+			packed[i] = ((long) indexes[i] << 32) | (Float.floatToRawIntBits(weights[i]) & 0xffffffffL);
+		Arrays.sort(packed, 0, size);
+
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			int index = (int) (packed[i] >>> 32);
+			float weight = Float.intBitsToFloat((int) packed[i]);
+			if (n > 0 && indexes[n - 1] == index) {
+				weights[n - 1] += weight;
+			} else {
+				indexes[n] = index;
+				weights[n] = weight;
+				n++;
+			}
+		}
+		size = n;
+
+	}
+
+	/**
+	 * Gets the number of features
+	 *
+	 * @return the number of features
+	 */
+	public int size() {
+
+		return size;
+
+	}
+
+	/**
+	 * Gets the ID of the feature at the given position
+	 *
+	 * @param i
+	 *            the position of the feature
+	 * @return the ID of the feature
+	 */
+	public int getIndex(int i) {
+
+		return indexes[i];
+
+	}
+
+	/**
+	 * Gets the IDs of the features; the array can be longer than the number
+	 * of features and it is valid until the buffer is modified
+	 *
+	 * @return the IDs of the features
+	 */
+	public int[] getIndexes() {
+
+		return indexes;
+
+	}
+
+	/**
+	 * Gets the values of the features for the classifier, i.e., the exact
+	 * double values of their float weights, the same values the classifier
+	 * has been trained on (@see FeatureExtractorLearn); the
+	 * array can be longer than the number of features and it is reused for
+	 * the next features vectors.
+	 *
+	 * @return the values of the features
+	 */
+	public double[] getValues() {
+
+		if (values == null || values.length < size)
+			values = new double[indexes.length];
+		for (int i = 0; i < size; i++)
+			values[i] = weights[i];
+
+		return values;
+
+	}
+
+	/**
+	 * Gets the weight of the feature at the given position
+	 *
+	 * @param i
+	 *            the position of the feature
+	 * @return the weight of the feature
+	 */
+	public float getWeight(int i) {
+
+		return weights[i];
+
+	}
+
+}
@@ -0,0 +1,347 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.util.Properties;
+
+/**
+ * FeaturesConfiguration contains the settings of the feature extraction that
+ * the classifier has to use in the same way during the training phase and the
+ * annotation phase. It is saved next to the model while training (file
+ * modelFileName.features.properties) and it is loaded back by the classifier
+ * together with the model, so that the settings don't have to be given again
+ * while annotating new examples. The models produced before this file was
+ * introduced have no such file and they use the default settings.
+ *
+ * Settings:
+ *
+ * 		hashing.bits	the number of bits of the space where the features are
+ * 						hashed into (feature hashing); 0 (the default) for using
+ * 						the features index
+ * 		word.ngrams.min	the min and the max number of tokens of the word n-grams
+ * 		word.ngrams.max	(1 and 2 by default, i.e., unigrams and bigrams)
+ * 		char.ngrams.min	the min and the max number of characters of the character
+ * 		char.ngrams.max	n-grams of the tokens; 0 (the default) for no character
+ * 						n-grams
+ * 		corpus.idf		true for weighting the features by the idf values
+ * 						computed from the training dataset (@see CorpusIdf)
+ * 						instead of the idf lexicon; false by default
+ * 		corpus.idf.width	the number of counters of each row and the number
+ * 		corpus.idf.depth	of rows of the sketch of the document frequencies
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class FeaturesConfiguration {
+
+	// the extension of the file of the configuration
+	public static final String FILE_EXTENSION = ".features.properties";
+
+	// the max number of bits of the space of the hashed features; the
+	// features IDs have to be positive integers
+	public static final int MAX_HASHING_BITS = 30;
+
+	// the max number of tokens of the word n-grams and of characters of the
+	// character n-grams
+	public static final int MAX_NGRAMS_ORDER = 10;
+
+	// the number of bits of the space of the hashed features; 0 for disabling
+	// feature hashing
+	private int hashingBits;
+	// the min and the max number of tokens of the word n-grams
+	private int wordNGramsMin = 1;
+	private int wordNGramsMax = 2;
+	// the min and the max number of characters of the character n-grams; 0
+	// for no character n-grams
+	private int charNGramsMin;
+	private int charNGramsMax;
+	// true for the idf values computed from the training dataset and the size
+	// of the sketch counting the document frequencies
+	private boolean corpusIdf;
+	private int corpusIdfWidth = 1 << 18;
+	private int corpusIdfDepth = 4;
+
+	/**
+	 * Sets the number of bits of the space where the features are hashed into;
+	 * each feature gets an ID between 1 and 2^bits without using the features
+	 * index. 0 (the default) disables feature hashing.
+	 *
+	 * @param hashingBits
+	 *            the number of bits (e.g., 20 for about one million features)
+	 */
+	public void setHashingBits(int hashingBits) {
+
+		if (hashingBits < 0 || hashingBits > MAX_HASHING_BITS)
+			throw new IllegalArgumentException(
+					"The number of hashing bits must be between 0 and " + MAX_HASHING_BITS + "!");
+		this.hashingBits = hashingBits;
+
+	}
+
+	/**
+	 * Gets the number of bits of the space where the features are hashed into
+	 *
+	 * @return the number of bits; 0 if feature hashing is disabled
+	 */
+	public int getHashingBits() {
+
+		return this.hashingBits;
+
+	}
+
+	/**
+	 * Checks if the features are hashed instead of being put into the features
+	 * index
+	 *
+	 * @return true if feature hashing is enabled; false otherwise
+	 */
+	public boolean isHashing() {
+
+		return this.hashingBits > 0;
+
+	}
+
+	/**
+	 * Sets the orders of the word n-grams, e.g., 1 and 3 for unigrams, bigrams
+	 * and trigrams
+	 *
+	 * @param min
+	 *            the min number of tokens of the n-grams
+	 * @param max
+	 *            the max number of tokens of the n-grams
+	 */
+	public void setWordNGrams(int min, int max) {
+
+		if (min < 1 || max < min || max > MAX_NGRAMS_ORDER)
+			throw new IllegalArgumentException(
+					"The orders of the word n-grams must be between 1 and " + MAX_NGRAMS_ORDER + "!");
+		this.wordNGramsMin = min;
+		this.wordNGramsMax = max;
+
+	}
+
+	/**
+	 * Gets the min number of tokens of the word n-grams
+	 *
+	 * @return the min number of tokens
+	 */
+	public int getWordNGramsMin() {
+
+		return this.wordNGramsMin;
+
+	}
+
+	/**
+	 * Gets the max number of tokens of the word n-grams
+	 *
+	 * @return the max number of tokens
+	 */
+	public int getWordNGramsMax() {
+
+		return this.wordNGramsMax;
+
+	}
+
+	/**
+	 * Sets the orders of the character n-grams of the tokens, e.g., 3 and 5
+	 * for the 3-grams, 4-grams and 5-grams; 0 and 0 (the default) disable them
+	 *
+	 * @param min
+	 *            the min number of characters of the n-grams
+	 * @param max
+	 *            the max number of characters of the n-grams
+	 */
+	public void setCharNGrams(int min, int max) {
+
+		if (!(min == 0 && max == 0) && (min < 1 || max < min || max > MAX_NGRAMS_ORDER))
+			throw new IllegalArgumentException(
+					"The orders of the character n-grams must be between 1 and " + MAX_NGRAMS_ORDER + "!");
+		this.charNGramsMin = min;
+		this.charNGramsMax = max;
+
+	}
+
+	/**
+	 * Gets the min number of characters of the character n-grams
+	 *
+	 * @return the min number of characters; 0 if there are no character
+	 *         n-grams
+	 */
+	public int getCharNGramsMin() {
+
+		return this.charNGramsMin;
+
+	}
+
+	/**
+	 * Gets the max number of characters of the character n-grams
+	 *
+	 * @return the max number of characters; 0 if there are no character
+	 *         n-grams
+	 */
+	public int getCharNGramsMax() {
+
+		return this.charNGramsMax;
+
+	}
+
+	/**
+	 * Checks if the character n-grams of the tokens are features
+	 *
+	 * @return true if the character n-grams are features; false otherwise
+	 */
+	public boolean hasCharNGrams() {
+
+		return this.charNGramsMax > 0;
+
+	}
+
+	/**
+	 * Sets if the features have to be weighted by the idf values computed
+	 * from the training dataset (@see CorpusIdf) instead of the idf lexicon
+	 *
+	 * @param corpusIdf
+	 *            true for the idf values of the training dataset
+	 */
+	public void setCorpusIdf(boolean corpusIdf) {
+
+		this.corpusIdf = corpusIdf;
+
+	}
+
+	/**
+	 * Checks if the features are weighted by the idf values computed from the
+	 * training dataset
+	 *
+	 * @return true for the idf values of the training dataset; false for the
+	 *         idf lexicon
+	 */
+	public boolean isCorpusIdf() {
+
+		return this.corpusIdf;
+
+	}
+
+	/**
+	 * Sets the size of the sketch counting the document frequencies of the
+	 * n-grams of the training dataset; the memory used is 4 * width * depth
+	 * bytes (4 MB by default)
+	 *
+	 * @param width
+	 *            the number of counters of each row (2^18 by default)
+	 * @param depth
+	 *            the number of rows (4 by default)
+	 */
+	public void setCorpusIdfSketch(int width, int depth) {
+
+		if (width < 1 || depth < 1)
+			throw new IllegalArgumentException("The size of the sketch must be positive!");
+		this.corpusIdfWidth = width;
+		this.corpusIdfDepth = depth;
+
+	}
+
+	/**
+	 * Gets the number of counters of each row of the sketch of the document
+	 * frequencies
+	 *
+	 * @return the number of counters
+	 */
+	public int getCorpusIdfWidth() {
+
+		return this.corpusIdfWidth;
+
+	}
+
+	/**
+	 * Gets the number of rows of the sketch of the document frequencies
+	 *
+	 * @return the number of rows
+	 */
+	public int getCorpusIdfDepth() {
+
+		return this.corpusIdfDepth;
+
+	}
+
+	/**
+	 * Saves the configuration into the given file
+	 *
+	 * @param fileName
+	 *            the file name (e.g., modelFileName.features.properties)
+	 *
+	 * @throws Exception
+	 */
+	public void save(String fileName) throws Exception {
+
+		// the settings are written one per line, without the time stamp that
+		// Properties.store would add, so that the same settings produce the
+		// same file
+		BufferedWriter out = null;
+
+		try {
+			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), "ISO-8859-1"));
+			out.write("hashing.bits=" + hashingBits + "\n");
+			out.write("word.ngrams.min=" + wordNGramsMin + "\n");
+			out.write("word.ngrams.max=" + wordNGramsMax + "\n");
+			out.write("char.ngrams.min=" + charNGramsMin + "\n");
+			out.write("char.ngrams.max=" + charNGramsMax + "\n");
+			out.write("corpus.idf=" + corpusIdf + "\n");
+			out.write("corpus.idf.width=" + corpusIdfWidth + "\n");
+			out.write("corpus.idf.depth=" + corpusIdfDepth + "\n");
+		} finally {
+			if (out != null)
+				out.close();
+		}
+
+	}
+
+	/**
+	 * Loads the configuration from the given file; the default configuration
+	 * is returned if the file doesn't exist (e.g., the models produced by the
+	 * previous versions of the classifiers)
+	 *
+	 * @param fileName
+	 *            the file name (e.g., modelFileName.features.properties)
+	 * @return the configuration
+	 *
+	 * @throws Exception
+	 */
+	public static FeaturesConfiguration load(String fileName) throws Exception {
+
+		FeaturesConfiguration configuration = new FeaturesConfiguration();
+
+		if (!new File(fileName).exists())
+			return configuration;
+
+		Properties properties = new Properties();
+		InputStream in = null;
+
+		try {
+			in = new FileInputStream(fileName);
+			properties.load(in);
+		} finally {
+			if (in != null)
+				in.close();
+		}
+
+		configuration.setHashingBits(Integer.parseInt(properties.getProperty("hashing.bits", "0").trim()));
+		configuration.setWordNGrams(Integer.parseInt(properties.getProperty("word.ngrams.min", "1").trim()),
+				Integer.parseInt(properties.getProperty("word.ngrams.max", "2").trim()));
+		configuration.setCharNGrams(Integer.parseInt(properties.getProperty("char.ngrams.min", "0").trim()),
+				Integer.parseInt(properties.getProperty("char.ngrams.max", "0").trim()));
+		configuration.setCorpusIdf(Boolean.parseBoolean(properties.getProperty("corpus.idf", "false").trim()));
+		configuration.setCorpusIdfSketch(Integer.parseInt(properties.getProperty("corpus.idf.width", "262144").trim()),
+				Integer.parseInt(properties.getProperty("corpus.idf.depth", "4").trim()));
+
+		return configuration;
+
+	}
+
+}
@@ -0,0 +1,219 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+/**
+ * FeaturesIndex contains the mapping between the features (i.e., the n-grams
+ * of the texts) and their weights (idf values) and numeric IDs used by the
+ * classifiers. It is a hash table with open addressing where each feature is
+ * put into a slot; the IDs and the weights of the features are kept into
+ * arrays of primitive types at the position of their slots, so that looking up
+ * a feature doesn't need to box, split or parse any value, e.g.,
+ *
+ * 		int slot = featuresIndex.find(key);
+ * 		if (slot != -1) {
+ * 			int index = featuresIndex.getIndex(slot);
+ * 			float weight = featuresIndex.getWeight(slot);
+ * 		}
+ *
+ * The features can be looked up by strings as well as by n-gram keys (@see
+ * NGramKey) without copying the tokens of the text. The index can be read from
+ * many threads at the same time as long as no feature is added.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class FeaturesIndex {
+
+	// the features; null for the empty slots
+	private String[] features;
+	// the IDs of the features
+	private int[] indexes;
+	// the weights of the features
+	private float[] weights;
+	// the number of features
+	private int size;
+
+	/**
+	 * Class constructor
+	 */
+	public FeaturesIndex() {
+
+		this(1024);
+
+	}
+
+	/**
+	 * Class constructor
+	 *
+	 * @param expectedSize
+	 *            the number of features the index is expected to contain
+	 */
+	public FeaturesIndex(int expectedSize) {
+
+		int capacity = 16;
+		while (capacity < 2 * expectedSize)
+			capacity <<= 1;
+		features = new String[capacity];
+		indexes = new int[capacity];
+		weights = new float[capacity];
+
+	}
+
+	/**
+	 * Finds the slot of the given feature
+	 *
+	 * @param feature
+	 *            the feature, as a string or as an n-gram key; its hash code
+	 *            must be the hash code of the string of the feature
+	 * @return the slot of the feature or -1 if the feature is not in the
+	 *         index
+	 */
+	public int find(Object feature) {
+
+		int mask = features.length - 1;
+		int slot = spread(feature.hashCode()) & mask;
+		while (features[slot] != null) {
+			if (feature.equals(features[slot]))
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+
+		return -1;
+
+	}
+
+	/**
+	 * Adds a new feature; the feature must not be already in the index
+	 *
+	 * @param feature
+	 *            the feature
+	 * @param weight
+	 *            the weight of the feature
+	 * @param index
+	 *            the ID of the feature
+	 * @return the slot of the feature
+	 */
+	public int add(String feature, float weight, int index) {
+
+		if (2 * (size + 1) > features.length)
+			resize(2 * features.length);
+
+		int mask = features.length - 1;
+		int slot = spread(feature.hashCode()) & mask;
+		while (features[slot] != null)
+			slot = (slot + 1) & mask;
+		features[slot] = feature;
+		indexes[slot] = index;
+		weights[slot] = weight;
+		size++;
+
+		return slot;
+
+	}
+
+	/**
+	 * Gets the ID of the feature in the given slot
+	 *
+	 * @param slot
+	 *            the slot returned by {@link find(Object feature)}
+	 * @return the ID of the feature
+	 */
+	public int getIndex(int slot) {
+
+		return indexes[slot];
+
+	}
+
+	/**
+	 * Gets the weight of the feature in the given slot
+	 *
+	 * @param slot
+	 *            the slot returned by {@link find(Object feature)}
+	 * @return the weight of the feature
+	 */
+	public float getWeight(int slot) {
+
+		return weights[slot];
+
+	}
+
+	/**
+	 * Gets the feature in the given slot
+	 *
+	 * @param slot
+	 *            the slot, from 0 to {@link capacity()} - 1
+	 * @return the feature or null if the slot is empty
+	 */
+	public String getFeature(int slot) {
+
+		return features[slot];
+
+	}
+
+	/**
+	 * Gets the number of slots of the index, for going through its features,
+	 * e.g.,
+	 *
+	 * 		for (int slot = 0; slot < featuresIndex.capacity(); slot++)
+	 * 			if (featuresIndex.getFeature(slot) != null)
+	 * 				...
+	 *
+	 * @return the number of slots
+	 */
+	public int capacity() {
+
+		return features.length;
+
+	}
+
+	/**
+	 * Gets the number of features of the index
+	 *
+	 * @return the number of features
+	 */
+	public int size() {
+
+		return size;
+
+	}
+
+	/**
+	 * Mixes the bits of the hash code so that the features whose hash codes
+	 * differ only in their high bits don't end in the same slots
+	 */
+	private static int spread(int hash) {
+
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+
+	}
+
+	/**
+	 * Moves the features into a table with the given number of slots
+	 */
+	private void resize(int capacity) {
+
+		String[] oldFeatures = features;
+		int[] oldIndexes = indexes;
+		float[] oldWeights = weights;
+
+		features = new String[capacity];
+		indexes = new int[capacity];
+		weights = new float[capacity];
+
+		int mask = capacity - 1;
+		for (int i = 0; i < oldFeatures.length; i++) {
+			if (oldFeatures[i] == null)
+				continue;
+			int slot = spread(oldFeatures[i].hashCode()) & mask;
+			while (features[slot] != null)
+				slot = (slot + 1) & mask;
+			features[slot] = oldFeatures[i];
+			indexes[slot] = oldIndexes[i];
+			weights[slot] = oldWeights[i];
+		}
+
+	}
+
+}
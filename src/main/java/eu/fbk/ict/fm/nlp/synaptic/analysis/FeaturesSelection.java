@@ -0,0 +1,177 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * FeaturesSelection prunes the vocabulary of the features extracted from the
+ * training dataset (@see FeatureExtractorLearn) before learning the
+ * classifier: the features occurring in less than a given number of examples
+ * are removed and, when a max number of features is given, only the features
+ * with the highest chi-square scores are kept, i.e., the features whose
+ * occurrences depend most on the labels of the examples. The score of a
+ * feature is the max of its scores for each label.
+ *
+ * The selected features get new IDs from 1 without holes, in the same order of
+ * their old IDs, e.g.,
+ *
+ * 		int[] newIndexes = new FeaturesSelection(2, 100000).select(featuresVectors, maxIndex);
+ * 		featuresVectors.reindex(newIndexes);
+ *
+ * where newIndexes[oldIndex] is the new ID of a feature or 0 if the feature has
+ * been removed.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class FeaturesSelection {
+
+	// the min number of examples a feature has to occur in
+	private final int minDocumentFrequency;
+	// the max number of features to keep; 0 for no limit
+	private final int maxFeatures;
+
+	/**
+	 * Class constructor
+	 *
+	 * @param minDocumentFrequency
+	 *            the min number of examples a feature has to occur in (1 for
+	 *            keeping all the features)
+	 * @param maxFeatures
+	 *            the max number of features to keep, chosen by their
+	 *            chi-square scores; 0 for no limit
+	 */
+	public FeaturesSelection(int minDocumentFrequency, int maxFeatures) {
+
+		if (minDocumentFrequency < 1)
+			throw new IllegalArgumentException(
+					"The min document frequency must be at least 1: " + minDocumentFrequency + "!");
+		if (maxFeatures < 0)
+			throw new IllegalArgumentException("Wrong max number of features: " + maxFeatures + "!");
+
+		this.minDocumentFrequency = minDocumentFrequency;
+		this.maxFeatures = maxFeatures;
+
+	}
+
+	/**
+	 * Selects the features of the given features vectors
+	 *
+	 * @param featuresVectors
+	 *            the features vectors of the examples; their labels are the
+	 *            numeric IDs of the labels index (i.e., from 1)
+	 * @param maxIndex
+	 *            the greatest ID of the features
+	 * @return the new IDs of the features by their old IDs; 0 for the removed
+	 *         features
+	 */
+	public int[] select(FeaturesVectors featuresVectors, int maxIndex) {
+
+		int nExamples = featuresVectors.size();
+		int nLabels = 0;
+		for (int e = 0; e < nExamples; e++)
+			nLabels = Math.max(nLabels, (int) featuresVectors.getLabel(e));
+
+		// the number of examples of each label and, for each feature, the
+		// number of examples it occurs in, for each label too; a feature
+		// occurring many times in an example is counted once
+		boolean scoring = maxFeatures > 0;
+		if (scoring && (long) (maxIndex + 1) * nLabels > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many features for computing their scores: " + maxIndex + "!");
+		int[] labelSizes = new int[nLabels + 1];
+		int[] documentFrequencies = new int[maxIndex + 1];
+		int[] labelDocumentFrequencies = scoring ? new int[(maxIndex + 1) * nLabels] : null;
+		int[] lastExamples = new int[maxIndex + 1];
+		Arrays.fill(lastExamples, -1);
+		for (int e = 0; e < nExamples; e++) {
+			int label = (int) featuresVectors.getLabel(e);
+			labelSizes[label]++;
+			int[] indexes = featuresVectors.getIndexes(e);
+			for (int i = 0; i < indexes.length; i++) {
+				int index = indexes[i];
+				if (lastExamples[index] == e)
+					continue;
+				lastExamples[index] = e;
+				documentFrequencies[index]++;
+				if (scoring)
+					labelDocumentFrequencies[index * nLabels + label - 1]++;
+			}
+		}
+
+		// the features occurring in enough examples
+		int nCandidates = 0;
+		Integer[] candidates = new Integer[maxIndex];
+		for (int index = 1; index <= maxIndex; index++)
+			if (documentFrequencies[index] >= minDocumentFrequency)
+				candidates[nCandidates++] = index;
+
+		// the features with the highest scores; the features with the same
+		// score are taken by their IDs
+		if (scoring && nCandidates > maxFeatures) {
+			final double[] scores = new double[maxIndex + 1];
+			for (int c = 0; c < nCandidates; c++) {
+				int index = candidates[c];
+				double score = 0;
+				for (int label = 1; label <= nLabels; label++)
+					score = Math.max(score, chiSquare(labelDocumentFrequencies[index * nLabels + label - 1],
+							documentFrequencies[index], labelSizes[label], nExamples));
+				scores[index] = score;
+			}
+			Arrays.sort(candidates, 0, nCandidates, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer index1, Integer index2) {
+					int result = Double.compare(scores[index2], scores[index1]);
+					return result != 0 ? result : Integer.compare(index1, index2);
+				}
+			});
+			nCandidates = maxFeatures;
+		}
+
+		// the new IDs, in the same order of the old ones
+		int[] result = new int[maxIndex + 1];
+		for (int c = 0; c < nCandidates; c++)
+			result[candidates[c]] = 1;
+		int newIndex = 0;
+		for (int index = 1; index <= maxIndex; index++)
+			if (result[index] != 0)
+				result[index] = ++newIndex;
+
+		return result;
+
+	}
+
+	/**
+	 * Gets the chi-square score of a feature for a label
+	 *
+	 * @param a
+	 *            the number of examples of the label containing the feature
+	 * @param documentFrequency
+	 *            the number of examples containing the feature
+	 * @param labelSize
+	 *            the number of examples of the label
+	 * @param nExamples
+	 *            the number of examples
+	 * @return the score
+	 */
+	static double chiSquare(int a, int documentFrequency, int labelSize, int nExamples) {
+
+		// the examples of the other labels containing the feature, the
+		// examples of the label without the feature and the examples of the
+		// other labels without the feature
+		double b = documentFrequency - a;
+		double c = labelSize - a;
+		double d = nExamples - documentFrequency - c;
+
+		double denominator = (a + c) * (b + d) * (a + b) * (c + d);
+		if (denominator == 0)
+			return 0;
+
+		double difference = a * d - c * b;
+
+		return nExamples * difference * difference / denominator;
+
+	}
+
+}
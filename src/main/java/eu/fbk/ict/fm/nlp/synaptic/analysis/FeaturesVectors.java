@@ -0,0 +1,406 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * FeaturesVectors contains in memory the features vectors of the examples of a
+ * dataset produced by the FeatureExtractorLearn component; each example
+ * consists of the numeric id of its label and of the sparse vector of its
+ * features, i.e., the indexes of the features and their weights. It is the in
+ * memory equivalent of the file of the features vectors and it is used for
+ * training the classifiers without writing and reading back that file.
+ *
+ * The features vectors can be saved into a binary file that is read back
+ * much faster than the text one, e.g., for training the classifier again on
+ * the same features with other parameters (file
+ * datasetFileName.token.vectors.bin):
+ *
+ * 		int		magic number
+ * 		int		version
+ * 		int		number of examples
+ * 		int		greatest feature index
+ * 		for each example:
+ * 		int		number of bytes of the example
+ * 		varint		its label
+ * 		varint		its number of features
+ * 		for each feature:
+ * 		varint		its index minus the index of the previous feature
+ * 		float		its weight
+ *
+ * where the varints take 1 byte for each 7 bits of the number (the least
+ * significant bits first and the high bit set on all the bytes but the last
+ * one). The indexes of the features of each example have to be in increasing
+ * order (@see FeaturesBuffer); the weights are given back as the exact double
+ * values of the float weights, as when they are read from the text file
+ * (@see AbstractLearn).
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class FeaturesVectors {
+
+	// the extension of the binary file of the features vectors
+	public static final String FILE_EXTENSION = ".bin";
+
+	// the first bytes of the binary file
+	private static final int MAGIC = 0x5359_5658; // 'SYVX'
+	// the version of the format of the binary file
+	private static final int VERSION = 1;
+	// the size of the header of the binary file
+	private static final int HEADER_SIZE = 16;
+	// the size of the buffer for reading the binary file
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	// the labels of the examples
+	private double[] labels;
+	// the indexes of the features of each example
+	private int[][] indexes;
+	// the weights of the features of each example
+	private double[][] weights;
+	// the number of examples
+	private int size;
+	// the greatest feature index
+	private int maxIndex;
+
+	/**
+	 * Class constructor
+	 */
+	public FeaturesVectors() {
+
+		labels = new double[1024];
+		indexes = new int[1024][];
+		weights = new double[1024][];
+
+	}
+
+	/**
+	 * Adds a new example
+	 *
+	 * @param label
+	 *            the label of the example
+	 * @param featureIndexes
+	 *            the indexes of the features of the example
+	 * @param featureWeights
+	 *            the weights of the features of the example
+	 * @param length
+	 *            the number of features of the example, i.e., the number of
+	 *            elements of the two arrays to copy
+	 */
+	public void add(double label, int[] featureIndexes, double[] featureWeights, int length) {
+
+		if (size == labels.length) {
+			int capacity = size + (size >> 1);
+			labels = Arrays.copyOf(labels, capacity);
+			indexes = Arrays.copyOf(indexes, capacity);
+			weights = Arrays.copyOf(weights, capacity);
+		}
+
+		labels[size] = label;
+		indexes[size] = Arrays.copyOf(featureIndexes, length);
+		weights[size] = Arrays.copyOf(featureWeights, length);
+		size++;
+
+		for (int i = 0; i < length; i++)
+			maxIndex = Math.max(maxIndex, featureIndexes[i]);
+
+	}
+
+	/**
+	 * Gives new IDs to the features of the examples (e.g., after pruning the
+	 * vocabulary, @see FeaturesSelection) and removes the features with no
+	 * new ID; the order of the remaining features of each example doesn't
+	 * change.
+	 *
+	 * @param newIndexes
+	 *            the new IDs of the features by their old IDs; 0 for the
+	 *            features to remove
+	 */
+	public void reindex(int[] newIndexes) {
+
+		maxIndex = 0;
+		for (int e = 0; e < size; e++) {
+			int[] exampleIndexes = indexes[e];
+			double[] exampleWeights = weights[e];
+			int length = 0;
+			for (int i = 0; i < exampleIndexes.length; i++) {
+				int newIndex = newIndexes[exampleIndexes[i]];
+				if (newIndex == 0)
+					continue;
+				exampleIndexes[length] = newIndex;
+				exampleWeights[length] = exampleWeights[i];
+				length++;
+				maxIndex = Math.max(maxIndex, newIndex);
+			}
+			if (length < exampleIndexes.length) {
+				indexes[e] = Arrays.copyOf(exampleIndexes, length);
+				weights[e] = Arrays.copyOf(exampleWeights, length);
+			}
+		}
+
+	}
+
+	/**
+	 * Gets the number of examples
+	 *
+	 * @return the number of examples
+	 */
+	public int size() {
+
+		return size;
+
+	}
+
+	/**
+	 * Gets the label of the given example
+	 *
+	 * @param example
+	 *            the position of the example
+	 * @return the label
+	 */
+	public double getLabel(int example) {
+
+		return labels[example];
+
+	}
+
+	/**
+	 * Gets the indexes of the features of the given example
+	 *
+	 * @param example
+	 *            the position of the example
+	 * @return the indexes of the features
+	 */
+	public int[] getIndexes(int example) {
+
+		return indexes[example];
+
+	}
+
+	/**
+	 * Gets the weights of the features of the given example
+	 *
+	 * @param example
+	 *            the position of the example
+	 * @return the weights of the features
+	 */
+	public double[] getWeights(int example) {
+
+		return weights[example];
+
+	}
+
+	/**
+	 * Saves the features vectors into the given binary file
+	 *
+	 * @param file
+	 *            the file
+	 *
+	 * @throws Exception
+	 */
+	public void save(File file) throws Exception {
+
+		DataOutputStream out = null;
+
+		try {
+
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(size);
+			out.writeInt(maxIndex);
+
+			byte[] row = new byte[1024];
+			for (int e = 0; e < size; e++) {
+				int[] exampleIndexes = indexes[e];
+				double[] exampleWeights = weights[e];
+				// each feature takes at most 5 bytes for its index and 4 bytes
+				// for its weight
+				int capacity = 10 + 9 * exampleIndexes.length;
+				if (row.length < capacity)
+					row = new byte[capacity];
+				int length = putVarint(row, 0, (int) labels[e]);
+				length = putVarint(row, length, exampleIndexes.length);
+				int previousIndex = 0;
+				for (int i = 0; i < exampleIndexes.length; i++) {
+					if (exampleIndexes[i] <= previousIndex)
+						throw new IllegalStateException("The indexes of the features of example " + (e + 1)
+								+ " are not in increasing order!");
+					length = putVarint(row, length, exampleIndexes[i] - previousIndex);
+					previousIndex = exampleIndexes[i];
+					int bits = Float.floatToIntBits((float) exampleWeights[i]);
+					row[length++] = (byte) (bits >>> 24);
+					row[length++] = (byte) (bits >>> 16);
+					row[length++] = (byte) (bits >>> 8);
+					row[length++] = (byte) bits;
+				}
+				out.writeInt(length);
+				out.write(row, 0, length);
+			}
+
+		} finally {
+			if (out != null)
+				out.close();
+		}
+
+	}
+
+	/**
+	 * Loads the features vectors from the given binary file
+	 *
+	 * @param file
+	 *            the file
+	 * @return the features vectors
+	 *
+	 * @throws Exception
+	 */
+	public static FeaturesVectors load(File file) throws Exception {
+
+		FileInputStream in = null;
+
+		try {
+
+			in = new FileInputStream(file);
+			FileChannel channel = in.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			buffer.flip();
+
+			buffer = fill(channel, buffer, HEADER_SIZE);
+			if (buffer.getInt() != MAGIC)
+				throw new Exception("Wrong format of the features vectors file " + file + "!");
+			int version = buffer.getInt();
+			if (version != VERSION)
+				throw new Exception("Unsupported version of the features vectors file " + file + ": " + version + "!");
+			int nExamples = buffer.getInt();
+			buffer.getInt(); // the greatest feature index
+
+			FeaturesVectors result = new FeaturesVectors();
+			result.labels = new double[Math.max(nExamples, 16)];
+			result.indexes = new int[result.labels.length][];
+			result.weights = new double[result.labels.length][];
+
+			for (int e = 0; e < nExamples; e++) {
+				buffer = fill(channel, buffer, 4);
+				buffer = fill(channel, buffer, buffer.getInt());
+				double label = getVarint(buffer);
+				int length = getVarint(buffer);
+				int[] exampleIndexes = new int[length];
+				double[] exampleWeights = new double[length];
+				int index = 0;
+				for (int i = 0; i < length; i++) {
+					index += getVarint(buffer);
+					exampleIndexes[i] = index;
+					exampleWeights[i] = buffer.getFloat();
+					result.maxIndex = Math.max(result.maxIndex, index);
+				}
+				result.labels[e] = label;
+				result.indexes[e] = exampleIndexes;
+				result.weights[e] = exampleWeights;
+			}
+			result.size = nExamples;
+
+			return result;
+
+		} finally {
+			if (in != null)
+				in.close();
+		}
+
+	}
+
+	/**
+	 * Checks if the given file is a binary file of features vectors
+	 *
+	 * @param file
+	 *            the file
+	 * @return true for the binary format
+	 *
+	 * @throws Exception
+	 */
+	public static boolean isBinary(File file) throws Exception {
+
+		return MappedFeaturesIndex.isBinary(file, MAGIC);
+
+	}
+
+	/**
+	 * Reads from the channel until the buffer has the given number of bytes
+	 * to read; the buffer is replaced by a bigger one when it is too small
+	 */
+	private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, int length) throws Exception {
+
+		if (buffer.remaining() >= length)
+			return buffer;
+
+		if (buffer.capacity() < length) {
+			ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(length, 2 * buffer.capacity()));
+			bigger.put(buffer);
+			buffer = bigger;
+		} else {
+			buffer.compact();
+		}
+		while (buffer.position() < length)
+			if (channel.read(buffer) == -1)
+				throw new EOFException("Unexpected end of the features vectors file!");
+		buffer.flip();
+
+		return buffer;
+
+	}
+
+	/**
+	 * Writes the given number as a varint into the given array
+	 *
+	 * @return the position after the varint
+	 */
+	private static int putVarint(byte[] array, int position, int value) {
+
+		while ((value & ~0x7f) != 0) {
+			array[position++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		array[position++] = (byte) value;
+
+		return position;
+
+	}
+
+	/**
+	 * Reads a varint from the given buffer
+	 */
+	private static int getVarint(ByteBuffer buffer) {
+
+		int result = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			result |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+
+		return result;
+
+	}
+
+	/**
+	 * Gets the greatest feature index of all the examples
+	 *
+	 * @return the greatest feature index
+	 */
+	public int getMaxIndex() {
+
+		return maxIndex;
+
+	}
+
+}
@@ -0,0 +1,91 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import opennlp.tools.util.Span;
+import opennlp.tools.util.StringUtil;
+
+/**
+ * HybridTokenizerWrapper implements the interface ITokenizerWrapper by calling
+ * the OpenNLP maxent model only where it is needed. The OpenNLP tokenizer
+ * first splits the text on white spaces and then evaluates the model on each
+ * chunk independently from the others; most of the chunks are plain words made
+ * of letters only that the model never splits, and they are then copied as
+ * they are without running the model. The chunks containing punctuation,
+ * digits or any other character are instead tokenized by the model.
+ *
+ * The produced tokens are the same produced by TokenizerWrapper and, like
+ * ConcurrentTokenizerWrapper, the same instance can be used from many threads.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class HybridTokenizerWrapper extends ConcurrentTokenizerWrapper {
+
+	@Override
+	public String[] tokenize(String text) throws Exception {
+
+		// the tokenized text
+		String tokens[] = null;
+
+		if (text == null)
+			return tokens;
+
+		tokens = Span.spansToStrings(tokenizePos(text), text);
+
+		return tokens;
+
+	}
+
+	@Override
+	public Span[] tokenizePos(String text) throws Exception {
+
+		// the positions of the tokens
+		Span spans[] = null;
+
+		if (text == null)
+			return spans;
+
+		List<Span> tmpList = new ArrayList<Span>();
+
+		int length = text.length();
+		int start = 0;
+		while (start < length) {
+
+			// skip the white spaces before the chunk
+			if (StringUtil.isWhitespace(text.charAt(start))) {
+				start++;
+				continue;
+			}
+
+			// find the end of the chunk and check if it is a plain word
+			boolean plainWord = true;
+			int end = start;
+			while (end < length && !StringUtil.isWhitespace(text.charAt(end))) {
+				if (!Character.isLetter(text.charAt(end)))
+					plainWord = false;
+				end++;
+			}
+
+			// the model can't split single characters
+			if (plainWord || end - start < 2) {
+				tmpList.add(new Span(start, end));
+			} else {
+				for (Span span : getTokenizer().tokenizePos(text.substring(start, end)))
+					tmpList.add(new Span(span, start));
+			}
+
+			start = end;
+
+		}
+
+		spans = tmpList.toArray(new Span[tmpList.size()]);
+
+		return spans;
+
+	}
+
+}
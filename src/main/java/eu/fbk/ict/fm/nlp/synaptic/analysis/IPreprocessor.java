@@ -1,10 +1,14 @@
 package eu.fbk.ict.fm.nlp.synaptic.analysis;
 
+import opennlp.tools.util.Span;
+
 /**
  * IProcessor is the interface of the class Processor for pre-processing input
- * data (e.g., tokenization, lemmatization, pos-tagging, ...). Two methods have
- * to be implemented: {@link process(String text)} accepts in input a text
- * (i.e., the content) and returns an array of pre-processed tokens.
+ * data (e.g., tokenization, lemmatization, pos-tagging, ...). Two methods
+ * have to be implemented: {@link process(String text)} accepts in input a text
+ * (i.e., the content) and returns an array of pre-processed tokens, while
+ * {@link processPos(String text)}, which has a default implementation,
+ * returns the positions of the tokens in the text without copying them.
  * {@link process(String fileIn, String fileOut)} accepts in input a tsv file
  * containing the field 'content' to pre=process, analyzes it and then saves the
  * produced tokens into the given output file. The input file is a tsv file
@@ -31,6 +35,49 @@ public interface IPreprocessor {
 	 */
 	public String[] process(String text) throws Exception;
 
+	/**
+	 * Pre-process the input text and returns the positions of the
+	 * pre-processed tokens in the text; by default the tokens returned by
+	 * {@link process(String text)} are located in the text
+	 * 
+	 * @param text
+	 *            the text to pre-process
+	 * @return the spans of the pre-processed tokens in the text
+	 * 
+	 * @exception Exception
+	 * 
+	 */
+	public default Span[] processPos(String text) throws Exception {
+
+		return ITokenizerWrapper.toSpans(text, process(text));
+
+	}
+
+	/**
+	 * Pre-process the given texts and returns the positions of the
+	 * pre-processed tokens of each text; the implementations can process the
+	 * texts in parallel, by default they are processed one after the other.
+	 * 
+	 * @param texts
+	 *            the texts to pre-process
+	 * @param size
+	 *            the number of texts to pre-process, starting from the first
+	 *            one
+	 * @return the spans of the pre-processed tokens of each text
+	 * 
+	 * @exception Exception
+	 * 
+	 */
+	public default Span[][] processPos(String[] texts, int size) throws Exception {
+
+		Span[][] result = new Span[size][];
+		for (int i = 0; i < size; i++)
+			result[i] = processPos(texts[i]);
+
+		return result;
+
+	}
+
 	/**
 	 * Pre-process the text that is in the input file (in the 'content' field)
 	 * and saves the result into the output file. The output file is exactly the
@@ -48,4 +95,12 @@ public interface IPreprocessor {
 	 */
 	public void process(String fileIn, String fileOut) throws Exception;
 
-}
+	/**
+	 * Releases the resources used by the preprocessor (e.g., the model for
+	 * tokenization); the preprocessor can't be used anymore after calling this
+	 * method. By default there is nothing to release.
+	 */
+	public default void close() {
+	}
+
+}
\ No newline at end of file
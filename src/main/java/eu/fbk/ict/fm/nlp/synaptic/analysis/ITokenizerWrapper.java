@@ -3,12 +3,16 @@ package eu.fbk.ict.fm.nlp.synaptic.analysis;
 import java.io.IOException;
 
 import opennlp.tools.util.InvalidFormatException;
+import opennlp.tools.util.Span;
 
 /**
  * ITokenizerWrapper is the interface implemented by TokenizerWrapper for
  * tokenizing data. Two methods have to be implemented: {@link tokenize(String
  * content)} accepts in input a string text and returns an array of tokenized
- * tokens. {@link tokenize(String fileIn, String fileOut)} accepts in input a
+ * tokens, while {@link tokenizePos(String content)}, which has a default
+ * implementation, returns the positions of the tokens in the text without
+ * copying them. {@link tokenize(String fileIn,
+ * String fileOut)} accepts in input a
  * tsv file containing the text to tokenize, analyzes it and then saves the
  * produced tokens into the provided output file. The input file is a tsv file
  * containing the fields: id, start/end time, sentiment, type and content (the
@@ -28,6 +32,14 @@ public interface ITokenizerWrapper {
 	 */
 	public void init() throws Exception;
 
+	/**
+	 * Releases the resources loaded by {@link init()}; they are shared with the
+	 * other tokenizers of the JVM and they are unloaded when no tokenizer uses
+	 * them. By default there is nothing to release.
+	 */
+	public default void close() {
+	}
+
 	/**
 	 * Tokenizes the input raw text and returns it as an array of tokenized
 	 * tokens
@@ -43,6 +55,56 @@ public interface ITokenizerWrapper {
 	 */
 	public String[] tokenize(String text) throws Exception;
 
+	/**
+	 * Tokenizes the input raw text and returns the positions of the tokens in
+	 * the text as spans of start (inclusive) and end (exclusive) offsets; the
+	 * tokens are the same returned by {@link tokenize(String text)} but they
+	 * are not copied into new strings. By default the tokens returned by
+	 * {@link tokenize(String text)} are located in the text; the
+	 * implementations should override it for not copying them.
+	 * 
+	 * @param text
+	 *            the text to tokenize
+	 * @return the spans of the tokens in the text
+	 * 
+	 * @exception Exception
+	 * 
+	 */
+	public default Span[] tokenizePos(String text) throws Exception {
+
+		return toSpans(text, tokenize(text));
+
+	}
+
+	/**
+	 * Locates the given tokens in the text they come from, in order
+	 * 
+	 * @param text
+	 *            the text
+	 * @param tokens
+	 *            the tokens of the text
+	 * @return the spans of the tokens in the text
+	 * 
+	 * @exception Exception
+	 *                if a token is not in the text
+	 * 
+	 */
+	public static Span[] toSpans(String text, String[] tokens) throws Exception {
+
+		Span[] spans = new Span[tokens.length];
+		int position = 0;
+		for (int i = 0; i < tokens.length; i++) {
+			int start = text.indexOf(tokens[i], position);
+			if (start == -1)
+				throw new Exception("The token '" + tokens[i] + "' is not in the text!");
+			position = start + tokens[i].length();
+			spans[i] = new Span(start, position);
+		}
+
+		return spans;
+
+	}
+
 	/**
 	 * Tokenizes the text that is in the input file (field 'content') in the tsv
 	 * file format and saves the result into the output file. The output
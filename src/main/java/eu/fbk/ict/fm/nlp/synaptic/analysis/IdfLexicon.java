@@ -0,0 +1,446 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * IdfLexicon contains the list of n-grams weighted by their idf values in a
+ * compact binary format that is memory-mapped instead of being loaded into the
+ * Java heap. The lexicon is produced from the csv file of the n-grams
+ * (dewiki-20140216-ngram-1M.csv) at build time, e.g.,
+ *
+ * 		java IdfLexicon -i dewiki-20140216-ngram-1M.csv -o dewiki-20140216-ngram-1M.lex
+ *
+ * and it consists of a hash table of the n-grams, normalized as they are
+ * used for the features (lower case, with the tokens joined by '___'), and of
+ * the sorted table of their characters:
+ *
+ * 		int		magic number
+ * 		int		version
+ * 		int		number of n-grams (n)
+ * 		int		number of characters of all the n-grams (c)
+ * 		int		number of slots of the hash table (t, a power of 2)
+ * 		int[3]		reserved
+ * 		int[4*t]	for each slot: the hash code of the n-gram, the offset + 1
+ * 					of its first character (0 for the empty slots), its
+ * 					length and its weight
+ * 		char[c]		the characters of the n-grams, in alphabetical order
+ *
+ * A word is looked up into the hash table (with linear probing) directly into
+ * the mapped file without copying any n-gram; the hash code of the n-grams is
+ * the hash code of their strings, that the n-gram keys (@see NGramKey) compute
+ * without building them. Each slot takes 16 bytes so that looking up a word
+ * reads one slot and the characters of the n-gram with the same hash code. The lexicon is immutable and can be used from many
+ * threads at the same time.
+ *
+ * At run time the lexicon is looked for in this order: the file given by the
+ * system property 'synaptic.idf.lexicon', the resource
+ * dewiki-20140216-ngram-1M.lex in the class path and finally the csv file in
+ * the class path, that is compiled into a temporary file.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class IdfLexicon {
+
+	// the logger
+	private static final Logger LOGGER = Logger.getLogger(IdfLexicon.class.getName());
+
+	// the system property with the file name of the lexicon
+	public static final String LEXICON_PROPERTY = "synaptic.idf.lexicon";
+	// the lexicon in the resources folder
+	public static final String LEXICON_RESOURCE = "/dewiki-20140216-ngram-1M.lex";
+
+	// the number of documents of the data collection the n-grams come from
+	private static final double N_DOCUMENTS = 1424635;
+
+	// the first bytes of the file of the lexicon
+	private static final int MAGIC = 0x5359_4C58; // 'SYLX'
+	// the version of the format of the file
+	private static final int VERSION = 1;
+	// the size of the header of the file
+	private static final int HEADER_SIZE = 32;
+
+	// the hash table of the n-grams
+	private final ByteBuffer table;
+	// the characters of the n-grams
+	private final ByteBuffer chars;
+	// the number of n-grams
+	private final int size;
+	// the mask of the positions of the slots of the hash table
+	private final int mask;
+
+	private IdfLexicon(ByteBuffer buffer) throws Exception {
+
+		if (buffer.getInt(0) != MAGIC)
+			throw new Exception("Wrong format of the idf lexicon!");
+		if (buffer.getInt(4) != VERSION)
+			throw new Exception("Unsupported version of the idf lexicon: " + buffer.getInt(4) + "!");
+
+		size = buffer.getInt(8);
+		int nChars = buffer.getInt(12);
+		int nSlots = buffer.getInt(16);
+		mask = nSlots - 1;
+
+		table = slice(buffer, HEADER_SIZE, 16 * nSlots);
+		chars = slice(buffer, HEADER_SIZE + 16 * nSlots, 2 * nChars);
+
+	}
+
+	/**
+	 * Maps the given file of the lexicon into memory
+	 *
+	 * @param file
+	 *            the file of the lexicon
+	 * @return the lexicon
+	 *
+	 * @throws Exception
+	 */
+	public static IdfLexicon open(File file) throws Exception {
+
+		RandomAccessFile in = null;
+
+		try {
+			in = new RandomAccessFile(file, "r");
+			// the mapping stays valid after closing the file
+			MappedByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+			return new IdfLexicon(buffer);
+		} finally {
+			if (in != null)
+				in.close();
+		}
+
+	}
+
+	/**
+	 * Loads the lexicon of the n-grams used by the feature extractors; it
+	 * maps the lexicon produced at build time or, if there isn't any, compiles
+	 * the csv file in the class path into a temporary lexicon.
+	 *
+	 * @return the lexicon
+	 *
+	 * @throws Exception
+	 */
+	public static IdfLexicon load() throws Exception {
+
+		// the lexicon given by the user
+		String fileName = System.getProperty(LEXICON_PROPERTY);
+		if (fileName != null)
+			return open(new File(fileName));
+
+		// the lexicon in the resources folder: if it is in a jar it has to be
+		// copied into a file for being mapped
+		URL url = IdfLexicon.class.getResource(LEXICON_RESOURCE);
+		if (url != null) {
+			if ("file".equals(url.getProtocol()))
+				return open(new File(url.toURI()));
+			File file = createTempFile();
+			copy(url.openStream(), file);
+			return open(file);
+		}
+
+		// the csv file of the n-grams
+		InputStream csv = IdfLexicon.class.getResourceAsStream(SharedResources.WEIGHTED_NGRAMS);
+		if (csv == null)
+			throw new Exception("Neither the idf lexicon nor " + SharedResources.WEIGHTED_NGRAMS + " can be found!");
+		LOGGER.warning("The idf lexicon is missing, compiling it from " + SharedResources.WEIGHTED_NGRAMS
+				+ " at each start; it can be produced at build time by IdfLexicon.");
+		File file = createTempFile();
+		compile(csv, file);
+		return open(file);
+
+	}
+
+	/**
+	 * Gets the weight (idf value) of the given word
+	 *
+	 * @param word
+	 *            the word (e.g., a token or an n-gram with the tokens joined by
+	 *            '___') normalized to lower case
+	 * @return the weight of the word; -1 if the word is not in the lexicon
+	 */
+	public float getWeight(String word) {
+
+		return getWeight(word, word.hashCode());
+
+	}
+
+	/**
+	 * Gets the weight (idf value) of the given n-gram without building its
+	 * string
+	 *
+	 * @param key
+	 *            the n-gram
+	 * @return the weight of the n-gram; -1 if the n-gram is not in the lexicon
+	 */
+	public float getWeight(NGramKey key) {
+
+		return getWeight(key, key.hashCode());
+
+	}
+
+	/**
+	 * Looks up the given word into the hash table
+	 */
+	private float getWeight(CharSequence word, int hash) {
+
+		int slot = spread(hash) & mask;
+		int offset;
+		while ((offset = table.getInt(16 * slot + 4)) != 0) {
+			if (table.getInt(16 * slot) == hash && matches(offset - 1, table.getInt(16 * slot + 8), word))
+				return table.getFloat(16 * slot + 12);
+			slot = (slot + 1) & mask;
+		}
+
+		return -1;
+
+	}
+
+	/**
+	 * Gets the number of n-grams of the lexicon
+	 *
+	 * @return the number of n-grams
+	 */
+	public int size() {
+
+		return size;
+
+	}
+
+	/**
+	 * Checks if the n-gram with the given offset and length is the given word
+	 */
+	private boolean matches(int start, int length, CharSequence word) {
+
+		if (length != word.length())
+			return false;
+		for (int i = 0; i < length; i++)
+			if (chars.getChar(2 * (start + i)) != word.charAt(i))
+				return false;
+
+		return true;
+
+	}
+
+	/**
+	 * Mixes the bits of the hash code so that the n-grams whose hash codes
+	 * differ only in their high bits don't end in the same slots
+	 */
+	private static int spread(int hash) {
+
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+
+	}
+
+	/**
+	 * Compiles the csv file of the n-grams into the lexicon; each line of the
+	 * csv file contains the frequency of an n-gram, a field that is not used,
+	 * and the n-gram whose tokens are separated by a space character. When an
+	 * n-gram is repeated its last weight is kept.
+	 *
+	 * @param csv
+	 *            the csv file
+	 * @param file
+	 *            the file of the lexicon to produce
+	 *
+	 * @throws Exception
+	 */
+	public static void compile(InputStream csv, File file) throws Exception {
+
+		Map<String, Float> weightedWords = new HashMap<String, Float>();
+		BufferedReader buffer = null;
+
+		try {
+
+			buffer = new BufferedReader(new InputStreamReader(csv, "UTF-8"));
+
+			String str;
+			while ((str = buffer.readLine()) != null) {
+				String[] splitStr = str.split("\t");
+				double wordFrequency = Double.parseDouble(splitStr[0]);
+				String word = splitStr[2].toLowerCase().replace(" ", NGramKey.SEPARATOR);
+				float idf = (float) Math.log10(N_DOCUMENTS / wordFrequency);
+				weightedWords.put(word, idf);
+			}
+
+		} finally {
+			if (buffer != null)
+				buffer.close();
+		}
+
+		String[] words = weightedWords.keySet().toArray(new String[weightedWords.size()]);
+		Arrays.sort(words);
+
+		DataOutputStream out = null;
+
+		try {
+
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+
+			int nChars = 0;
+			for (String word : words)
+				nChars += word.length();
+
+			// the hash table is at most half full
+			int nSlots = 16;
+			while (nSlots < 2 * words.length)
+				nSlots <<= 1;
+			int[] table = new int[4 * nSlots];
+			int offset = 0;
+			for (String word : words) {
+				int hash = word.hashCode();
+				int slot = spread(hash) & (nSlots - 1);
+				while (table[4 * slot + 1] != 0)
+					slot = (slot + 1) & (nSlots - 1);
+				table[4 * slot] = hash;
+				table[4 * slot + 1] = offset + 1;
+				table[4 * slot + 2] = word.length();
+				table[4 * slot + 3] = Float.floatToIntBits(weightedWords.get(word));
+				offset += word.length();
+			}
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(words.length);
+			out.writeInt(nChars);
+			out.writeInt(nSlots);
+			for (int i = 0; i < 3; i++)
+				out.writeInt(0);
+			for (int i = 0; i < table.length; i++)
+				out.writeInt(table[i]);
+			for (String word : words)
+				out.writeChars(word);
+
+		} finally {
+			if (out != null)
+				out.close();
+		}
+
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+
+		ByteBuffer result = buffer.duplicate();
+		result.position(position);
+		result.limit(position + length);
+
+		return result.slice();
+
+	}
+
+	private static File createTempFile() throws Exception {
+
+		File file = File.createTempFile("synaptic-idf-", ".lex");
+		file.deleteOnExit();
+
+		return file;
+
+	}
+
+	private static void copy(InputStream in, File file) throws Exception {
+
+		OutputStream out = null;
+
+		try {
+			out = new FileOutputStream(file);
+			byte[] buffer = new byte[1 << 16];
+			int n;
+			while ((n = in.read(buffer)) != -1)
+				out.write(buffer, 0, n);
+		} finally {
+			in.close();
+			if (out != null)
+				out.close();
+		}
+
+	}
+
+	/**
+	 * Compiles the csv file of the n-grams into the lexicon
+	 *
+	 * Usage: java IdfLexicon -i csvFileName -o lexiconFileName
+	 *
+	 * The errors are thrown after being logged, so that the JVM exits with a
+	 * non-zero status and the build compiling the lexicon fails.
+	 *
+	 */
+	public static void main(String[] args) throws Exception {
+
+		// create Options object
+		Options options = new Options();
+
+		// add input option
+		Option input = new Option("i", "input", true, "csv file of the weighted n-grams");
+		input.setRequired(true);
+		options.addOption(input);
+
+		// add output option
+		Option output = new Option("o", "output", true, "lexicon to produce");
+		output.setRequired(true);
+		options.addOption(output);
+
+		// create the command line parser
+		CommandLineParser parser = new BasicParser();
+		// the formatter for parse exception
+		HelpFormatter formatter = new HelpFormatter();
+		StringWriter out = new StringWriter();
+		PrintWriter pw = new PrintWriter(out);
+
+		try {
+
+			// parse the command line arguments
+			CommandLine cmd = parser.parse(options, args);
+
+			File lexiconFile = new File(cmd.getOptionValue("output"));
+			compile(new FileInputStream(cmd.getOptionValue("input")), lexiconFile);
+
+			LOGGER.info("idf lexicon: " + open(lexiconFile).size() + " n-grams");
+
+		} catch (ParseException e) {
+
+			formatter.printHelp(pw, 80, "", "IdfLexicon", options, formatter.getLeftPadding(),
+					formatter.getDescPadding(), "");
+			pw.flush();
+			LOGGER.log(Level.WARNING, out.toString());
+			throw e;
+
+		} catch (Exception ex) {
+
+			LOGGER.log(Level.SEVERE, ex.getMessage());
+			throw ex;
+
+		}
+
+	}
+
+}
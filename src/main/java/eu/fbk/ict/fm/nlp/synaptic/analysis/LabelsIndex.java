@@ -0,0 +1,182 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * LabelsIndex reads and writes the labels index produced during the
+ * classifier training phase, i.e., the mapping between the labels and their
+ * numeric IDs used by the classifiers, in a binary format
+ * (modelFileName.labels.index):
+ *
+ * 		int		magic number
+ * 		int		version
+ * 		int		number of labels
+ * 		for each label:
+ * 		int		its ID
+ * 		int		its number of characters (l)
+ * 		char[l]		its characters
+ *
+ * The labels indexes of the models produced before this format are text
+ * files with a label and its ID on each line, and they are read as well.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class LabelsIndex {
+
+	// the first bytes of the file of the index
+	private static final int MAGIC = 0x5359_4C42; // 'SYLB'
+	// the version of the format of the file
+	private static final int VERSION = 1;
+
+	private LabelsIndex() {
+
+	}
+
+	/**
+	 * Saves the given labels index into the given file
+	 *
+	 * @param labelsIndex
+	 *            the IDs of the labels
+	 * @param file
+	 *            the file of the index to produce
+	 *
+	 * @throws Exception
+	 */
+	public static void save(Map<String, Integer> labelsIndex, File file) throws Exception {
+
+		DataOutputStream out = null;
+
+		try {
+
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(labelsIndex.size());
+			for (Map.Entry<String, Integer> entry : new TreeMap<String, Integer>(labelsIndex).entrySet()) {
+				out.writeInt(entry.getValue());
+				out.writeInt(entry.getKey().length());
+				out.writeChars(entry.getKey());
+			}
+
+		} finally {
+			if (out != null)
+				out.close();
+		}
+
+	}
+
+	/**
+	 * Loads the labels index from the given file
+	 *
+	 * @param file
+	 *            the file of the index, in the binary or in the text format
+	 * @return the labels by their IDs
+	 *
+	 * @throws Exception
+	 */
+	public static Map<Double, String> load(File file) throws Exception {
+
+		Map<Double, String> result = new HashMap<Double, String>();
+
+		if (!isBinary(file)) {
+			BufferedReader buffer = null;
+			try {
+				buffer = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF8"));
+				String str;
+				while ((str = buffer.readLine()) != null) {
+					String[] splitLine = str.split("\t");
+					result.put(Double.parseDouble(splitLine[1]), splitLine[0]);
+				}
+			} finally {
+				if (buffer != null)
+					buffer.close();
+			}
+			return result;
+		}
+
+		RandomAccessFile in = null;
+
+		try {
+
+			in = new RandomAccessFile(file, "r");
+			ByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+			if (buffer.getInt(4) != VERSION)
+				throw new Exception("Unsupported version of the labels index: " + buffer.getInt(4) + "!");
+			int size = buffer.getInt(8);
+			buffer.position(12);
+			for (int i = 0; i < size; i++) {
+				int index = buffer.getInt();
+				char[] label = new char[buffer.getInt()];
+				buffer.asCharBuffer().get(label);
+				buffer.position(buffer.position() + 2 * label.length);
+				result.put((double) index, new String(label));
+			}
+
+		} finally {
+			if (in != null)
+				in.close();
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * Exports the given labels index into a text file with a label and its ID
+	 * on each line, in the order of their IDs
+	 *
+	 * @param labels
+	 *            the labels by their IDs
+	 * @param file
+	 *            the text file to produce
+	 *
+	 * @throws Exception
+	 */
+	public static void export(Map<Double, String> labels, File file) throws Exception {
+
+		BufferedWriter out = null;
+
+		try {
+			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+			for (Map.Entry<Double, String> entry : new TreeMap<Double, String>(labels).entrySet())
+				out.write(entry.getValue() + "\t" + entry.getKey().intValue() + "\n");
+		} finally {
+			if (out != null)
+				out.close();
+		}
+
+	}
+
+	/**
+	 * Checks if the given file is a labels index in the binary format
+	 *
+	 * @param file
+	 *            the file
+	 * @return true for the binary format
+	 *
+	 * @throws Exception
+	 */
+	public static boolean isBinary(File file) throws Exception {
+
+		return MappedFeaturesIndex.isBinary(file, MAGIC);
+
+	}
+
+}
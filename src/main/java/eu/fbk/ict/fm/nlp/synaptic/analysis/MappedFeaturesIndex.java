@@ -0,0 +1,501 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * MappedFeaturesIndex is the features index produced during the classifier
+ * training phase (@see FeaturesIndex) saved in a binary format that the
+ * classifiers memory-map instead of reading and parsing it line by line
+ * (modelFileName.features.index):
+ *
+ * 		int		magic number
+ * 		int		version
+ * 		int		number of features (n)
+ * 		int		number of characters of all the features (c)
+ * 		int		number of slots of the hash table (t, a power of 2)
+ * 		int		greatest ID of the features (m)
+ * 		int[2]		reserved
+ * 		int[4*t]	for each slot: the hash code of the feature, the offset + 1
+ * 					of its first character (0 for the empty slots), its
+ * 					length and its ID
+ * 		float[m+1]	the weights of the features by their IDs
+ * 		char[c]		the characters of the features, in the order of their IDs
+ *
+ * The features are looked up by strings as well as by n-gram keys (@see
+ * NGramKey) directly into the mapped file, in the same way as the idf lexicon
+ * (@see IdfLexicon). The index is immutable and can be used from many threads
+ * at the same time.
+ *
+ * The features indexes of the models produced before this format are text
+ * files with a feature, its weight and its ID on each line; they are
+ * compiled into a temporary file when they are opened, that is deleted as
+ * soon as it has been mapped into memory. The binary index can
+ * be exported into the same text format for debugging, e.g.,
+ *
+ * 		java MappedFeaturesIndex -i modelFileName.features.index -o features.txt
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class MappedFeaturesIndex {
+
+	// the logger
+	private static final Logger LOGGER = Logger.getLogger(MappedFeaturesIndex.class.getName());
+
+	// the first bytes of the file of the index
+	private static final int MAGIC = 0x5359_4658; // 'SYFX'
+	// the version of the format of the file
+	private static final int VERSION = 1;
+	// the size of the header of the file
+	private static final int HEADER_SIZE = 32;
+
+	// the hash table of the features
+	private final ByteBuffer table;
+	// the weights of the features
+	private final ByteBuffer weights;
+	// the characters of the features
+	private final ByteBuffer chars;
+	// the number of features
+	private final int size;
+	// the greatest ID of the features
+	private final int maxIndex;
+	// the mask of the positions of the slots of the hash table
+	private final int mask;
+
+	private MappedFeaturesIndex(ByteBuffer buffer) throws Exception {
+
+		if (buffer.getInt(0) != MAGIC)
+			throw new Exception("Wrong format of the features index!");
+		if (buffer.getInt(4) != VERSION)
+			throw new Exception("Unsupported version of the features index: " + buffer.getInt(4) + "!");
+
+		size = buffer.getInt(8);
+		int nChars = buffer.getInt(12);
+		int nSlots = buffer.getInt(16);
+		maxIndex = buffer.getInt(20);
+		mask = nSlots - 1;
+
+		table = slice(buffer, HEADER_SIZE, 16 * nSlots);
+		weights = slice(buffer, HEADER_SIZE + 16 * nSlots, 4 * (maxIndex + 1));
+		chars = slice(buffer, HEADER_SIZE + 16 * nSlots + 4 * (maxIndex + 1), 2 * nChars);
+
+	}
+
+	/**
+	 * Maps the given file of the features index into memory; a text file is
+	 * compiled into a temporary file first, deleted once mapped (the mapping
+	 * stays valid) so that reloading an old model doesn't leave copies of its
+	 * index behind
+	 *
+	 * @param file
+	 *            the file of the features index
+	 * @return the features index
+	 *
+	 * @throws Exception
+	 */
+	public static MappedFeaturesIndex open(File file) throws Exception {
+
+		// the file to map
+		File binaryFile = file;
+		RandomAccessFile in = null;
+
+		try {
+			if (!isBinary(file, MAGIC)) {
+				FeaturesIndex featuresIndex = read(file);
+				binaryFile = File.createTempFile("synaptic-features-", ".index");
+				write(featuresIndex, binaryFile);
+			}
+			in = new RandomAccessFile(binaryFile, "r");
+			// the mapping stays valid after closing the file
+			MappedByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+			return new MappedFeaturesIndex(buffer);
+		} finally {
+			if (in != null)
+				in.close();
+			// the file systems that can't delete a mapped file delete it
+			// at exit
+			if (binaryFile != file && !binaryFile.delete())
+				binaryFile.deleteOnExit();
+		}
+
+	}
+
+	/**
+	 * Finds the slot of the given feature
+	 *
+	 * @param feature
+	 *            the feature, as a string or as an n-gram key; its hash code
+	 *            must be the hash code of the string of the feature
+	 * @return the slot of the feature or -1 if the feature is not in the
+	 *         index
+	 */
+	public int find(CharSequence feature) {
+
+		int hash = feature.hashCode();
+		int slot = spread(hash) & mask;
+		int offset;
+		while ((offset = table.getInt(16 * slot + 4)) != 0) {
+			if (table.getInt(16 * slot) == hash && matches(offset - 1, table.getInt(16 * slot + 8), feature))
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+
+		return -1;
+
+	}
+
+	/**
+	 * Gets the ID of the feature in the given slot
+	 *
+	 * @param slot
+	 *            the slot returned by {@link #find(CharSequence)}
+	 * @return the ID of the feature
+	 */
+	public int getIndex(int slot) {
+
+		return table.getInt(16 * slot + 12);
+
+	}
+
+	/**
+	 * Gets the weight of the feature in the given slot
+	 *
+	 * @param slot
+	 *            the slot returned by {@link #find(CharSequence)}
+	 * @return the weight of the feature
+	 */
+	public float getWeight(int slot) {
+
+		return weights.getFloat(4 * getIndex(slot));
+
+	}
+
+	/**
+	 * Gets the number of features of the index
+	 *
+	 * @return the number of features
+	 */
+	public int size() {
+
+		return size;
+
+	}
+
+	/**
+	 * Gets the greatest ID of the features
+	 *
+	 * @return the greatest ID
+	 */
+	public int getMaxIndex() {
+
+		return maxIndex;
+
+	}
+
+	/**
+	 * Saves the features of the given features index into the given file;
+	 * the features with no weight are not saved since they are not used by
+	 * the classifiers. The index is written into a temporary file that then
+	 * replaces the given file, so that the classifiers that have mapped the
+	 * old index into memory (e.g., while a model is trained again in the same
+	 * place) keep reading it.
+	 *
+	 * @param featuresIndex
+	 *            the features index
+	 * @param file
+	 *            the file of the index to produce
+	 *
+	 * @throws Exception
+	 */
+	public static void write(FeaturesIndex featuresIndex, File file) throws Exception {
+
+		// the slots of the features by their IDs
+		int maxIndex = 0;
+		for (int slot = 0; slot < featuresIndex.capacity(); slot++)
+			if (featuresIndex.getFeature(slot) != null && featuresIndex.getWeight(slot) > 0)
+				maxIndex = Math.max(maxIndex, featuresIndex.getIndex(slot));
+		int[] slots = new int[maxIndex + 1];
+		Arrays.fill(slots, -1);
+		int nFeatures = 0;
+		int nChars = 0;
+		for (int slot = 0; slot < featuresIndex.capacity(); slot++) {
+			String feature = featuresIndex.getFeature(slot);
+			if (feature != null && featuresIndex.getWeight(slot) > 0) {
+				slots[featuresIndex.getIndex(slot)] = slot;
+				nFeatures++;
+				nChars += feature.length();
+			}
+		}
+
+		// the hash table is at most half full
+		int nSlots = 16;
+		while (nSlots < 2 * nFeatures)
+			nSlots <<= 1;
+		int[] table = new int[4 * nSlots];
+		float[] featureWeights = new float[maxIndex + 1];
+		int offset = 0;
+		for (int index = 1; index <= maxIndex; index++) {
+			if (slots[index] == -1)
+				continue;
+			String feature = featuresIndex.getFeature(slots[index]);
+			int hash = feature.hashCode();
+			int slot = spread(hash) & (nSlots - 1);
+			while (table[4 * slot + 1] != 0)
+				slot = (slot + 1) & (nSlots - 1);
+			table[4 * slot] = hash;
+			table[4 * slot + 1] = offset + 1;
+			table[4 * slot + 2] = feature.length();
+			table[4 * slot + 3] = index;
+			featureWeights[index] = featuresIndex.getWeight(slots[index]);
+			offset += feature.length();
+		}
+
+		File tmpFile = new File(file.getPath() + ".tmp");
+		DataOutputStream out = null;
+
+		try {
+
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16));
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(nFeatures);
+			out.writeInt(nChars);
+			out.writeInt(nSlots);
+			out.writeInt(maxIndex);
+			for (int i = 0; i < 2; i++)
+				out.writeInt(0);
+			for (int i = 0; i < table.length; i++)
+				out.writeInt(table[i]);
+			for (int i = 0; i < featureWeights.length; i++)
+				out.writeFloat(featureWeights[i]);
+			for (int index = 1; index <= maxIndex; index++)
+				if (slots[index] != -1)
+					out.writeChars(featuresIndex.getFeature(slots[index]));
+			out.close();
+			out = null;
+
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+
+		} finally {
+			if (out != null)
+				out.close();
+			tmpFile.delete();
+		}
+
+	}
+
+	/**
+	 * Exports the features of the index into a text file with a feature, its
+	 * weight and its ID on each line, in the order of their IDs
+	 *
+	 * @param file
+	 *            the text file to produce
+	 *
+	 * @throws Exception
+	 */
+	public void export(File file) throws Exception {
+
+		// the slots of the features by their IDs
+		int[] slots = new int[maxIndex + 1];
+		Arrays.fill(slots, -1);
+		for (int slot = 0; slot <= mask; slot++)
+			if (table.getInt(16 * slot + 4) != 0)
+				slots[getIndex(slot)] = slot;
+
+		BufferedWriter out = null;
+
+		try {
+
+			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+
+			StringBuilder builder = new StringBuilder();
+			for (int index = 1; index <= maxIndex; index++) {
+				if (slots[index] == -1)
+					continue;
+				int start = table.getInt(16 * slots[index] + 4) - 1;
+				int length = table.getInt(16 * slots[index] + 8);
+				builder.setLength(0);
+				for (int i = 0; i < length; i++)
+					builder.append(chars.getChar(2 * (start + i)));
+				builder.append('\t').append(getWeight(slots[index])).append('\t').append(index).append('\n');
+				out.write(builder.toString());
+			}
+
+		} finally {
+			if (out != null)
+				out.close();
+		}
+
+	}
+
+	/**
+	 * Reads a features index in the text format
+	 */
+	private static FeaturesIndex read(File file) throws Exception {
+
+		FeaturesIndex result = new FeaturesIndex();
+		BufferedReader buffer = null;
+
+		try {
+
+			buffer = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF8"));
+
+			String str;
+			while ((str = buffer.readLine()) != null) {
+				String[] splitLine = str.split("\t");
+				float weight = Float.parseFloat(splitLine[1]);
+				int index = Integer.valueOf(splitLine[2]);
+				String feature = splitLine[0];
+				result.add(feature, weight, index);
+			}
+
+		} finally {
+			if (buffer != null)
+				buffer.close();
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * Checks if the given file starts with the given magic number
+	 */
+	static boolean isBinary(File file, int magic) throws Exception {
+
+		RandomAccessFile in = null;
+
+		try {
+			in = new RandomAccessFile(file, "r");
+			return in.length() >= 4 && in.readInt() == magic;
+		} finally {
+			if (in != null)
+				in.close();
+		}
+
+	}
+
+	/**
+	 * Checks if the feature with the given offset and length is the given one
+	 */
+	private boolean matches(int start, int length, CharSequence feature) {
+
+		if (length != feature.length())
+			return false;
+		for (int i = 0; i < length; i++)
+			if (chars.getChar(2 * (start + i)) != feature.charAt(i))
+				return false;
+
+		return true;
+
+	}
+
+	/**
+	 * Mixes the bits of the hash code so that the features whose hash codes
+	 * differ only in their high bits don't end in the same slots
+	 */
+	private static int spread(int hash) {
+
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+
+		ByteBuffer result = buffer.duplicate();
+		result.position(position);
+		result.limit(position + length);
+
+		return result.slice();
+
+	}
+
+	/**
+	 * Exports the features index or the labels index of a model into a text
+	 * file
+	 *
+	 * Usage: java MappedFeaturesIndex -i indexFileName -o textFileName
+	 *
+	 */
+	public static void main(String[] args) {
+
+		// create Options object
+		Options options = new Options();
+
+		// add input option
+		Option input = new Option("i", "input", true, "features index or labels index of the model");
+		input.setRequired(true);
+		options.addOption(input);
+
+		// add output option
+		Option output = new Option("o", "output", true, "text file to produce");
+		output.setRequired(true);
+		options.addOption(output);
+
+		// create the command line parser
+		CommandLineParser parser = new BasicParser();
+		// the formatter for parse exception
+		HelpFormatter formatter = new HelpFormatter();
+		StringWriter out = new StringWriter();
+		PrintWriter pw = new PrintWriter(out);
+
+		try {
+
+			// parse the command line arguments
+			CommandLine cmd = parser.parse(options, args);
+
+			File indexFile = new File(cmd.getOptionValue("input"));
+			File textFile = new File(cmd.getOptionValue("output"));
+			if (LabelsIndex.isBinary(indexFile))
+				LabelsIndex.export(LabelsIndex.load(indexFile), textFile);
+			else
+				open(indexFile).export(textFile);
+
+		} catch (ParseException e) {
+
+			formatter.printHelp(pw, 80, "", "MappedFeaturesIndex", options, formatter.getLeftPadding(),
+					formatter.getDescPadding(), "");
+			pw.flush();
+			LOGGER.log(Level.WARNING, out.toString());
+
+		} catch (Exception ex) {
+
+			LOGGER.log(Level.SEVERE, ex.getMessage());
+
+		}
+
+	}
+
+}
@@ -0,0 +1,560 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import java.util.Set;
+
+import opennlp.tools.util.Span;
+
+/**
+ * NGramKey is a reusable key for looking up the n-grams of a text into the
+ * indexes (e.g., the features index, the stop words) without copying the
+ * tokens into new strings. The n-gram is given by the spans of its tokens in
+ * the text and it is normalized to lower case character by character while
+ * computing its hash code, which is the same hash code of the string
+ * (@see java.lang.String#hashCode()) that would be produced by lowercasing the
+ * tokens and joining them with the separator '___', e.g.,
+ *
+ * 		Kessel funktioniert --> kessel___funktioniert
+ *
+ * The key can then be used for calling the methods 'get' and 'contains' of the
+ * hash based collections of strings (e.g., HashMap, HashSet): its method
+ * 'equals' compares the n-gram with the given string without building it.
+ * The key is also the CharSequence of the normalized n-gram (e.g., for looking
+ * up the n-gram into the idf lexicon); its characters are put into a buffer of
+ * the key, that is reused for all the n-grams, the first time they are read.
+ *
+ * The key can also go through all the features of a text given by the
+ * settings of the feature extraction (@see FeaturesConfiguration), e.g.,
+ *
+ * 		key.reset(text, spans, stopWords, configuration);
+ * 		while (key.next()) {
+ * 			int slot = featuresIndex.find(key);
+ * 			...
+ * 		}
+ *
+ * i.e., the word n-grams of each order (unigrams, then bigrams, ...) and then
+ * the character n-grams of each order of the tokens, where each token is put
+ * between the markers '&lt;' and '&gt;' and the n-grams start with the prefix
+ * 'c ' (the word n-grams can't contain spaces), e.g., the 3-grams of 'Kessel':
+ *
+ * 		c &lt;ke, c kes, c ess, c sse, c sel, c el&gt;
+ *
+ * The hash code of each token is computed once and the hash codes of the word
+ * n-grams are combined from the ones of their tokens, while the hash codes of
+ * the character n-grams are rolled from one n-gram to the next one; this
+ * gives the same hash codes of the strings without building them.
+ * Instances are mutable and must not be shared among threads.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class NGramKey implements CharSequence {
+
+	// the separator between the tokens of the n-grams
+	public static final String SEPARATOR = "___";
+	// the prefix of the character n-grams
+	public static final String CHAR_PREFIX = "c ";
+	// the markers of the begin and the end of the tokens in the character
+	// n-grams
+	public static final char BEGIN = '<';
+	public static final char END = '>';
+
+	// the hash codes of the separator and of the prefix and 31^length, for
+	// appending them to a hash code
+	private static final int SEPARATOR_HASH = SEPARATOR.hashCode();
+	private static final int SEPARATOR_POWER = power(SEPARATOR.length());
+	private static final int CHAR_PREFIX_HASH = CHAR_PREFIX.hashCode();
+
+	// the text containing the tokens
+	private String text;
+	// the spans of the tokens in the text
+	private Span[] spans;
+	// the positions in 'spans' of the tokens that can be part of the n-grams
+	// (e.g., the tokens that are not stop words)
+	private int[] tokens;
+	// the number of tokens in 'tokens' and the settings giving the n-grams
+	// to go through
+	private int nTokens;
+	private FeaturesConfiguration configuration;
+	// the buffer of the positions of the tokens selected while normalizing
+	// the text (@see reset(String, Span[], Set, FeaturesConfiguration))
+	private int[] selectedTokens = new int[64];
+	// the hash code of each token in 'tokens' and 31^length of the token
+	private int[] tokenHashes = new int[64];
+	private int[] tokenPowers = new int[64];
+	// true if the n-gram is a character n-gram
+	private boolean charNGram;
+	// the position in 'tokens' of the first token of the n-gram (the token
+	// of the character n-grams)
+	private int first;
+	// the number of tokens of the n-gram (e.g., 2 for bigrams); the number of
+	// characters for the character n-grams
+	private int n;
+	// the position of the character n-gram in its token, where the marker
+	// of the begin of the token is at position 0
+	private int offset;
+	// the hash code of the characters of the character n-gram and 31^n
+	private int charsHash;
+	private int charsPower;
+	// the hash code of the n-gram
+	private int hash;
+	// the characters of the normalized n-gram and if they have been put into
+	// the buffer for the current n-gram
+	private char[] chars = new char[64];
+	private boolean charsReady;
+
+	/**
+	 * Sets the n-gram represented by the key
+	 *
+	 * @param text
+	 *            the text containing the tokens
+	 * @param spans
+	 *            the spans of the tokens in the text
+	 * @param tokens
+	 *            the positions in 'spans' of the tokens that can be part of
+	 *            the n-grams
+	 * @param first
+	 *            the position in 'tokens' of the first token of the n-gram
+	 * @param n
+	 *            the number of tokens of the n-gram
+	 * @return the key itself
+	 */
+	public NGramKey set(String text, Span[] spans, int[] tokens, int first, int n) {
+
+		this.text = text;
+		this.spans = spans;
+		this.tokens = tokens;
+		this.first = first;
+		this.n = n;
+		this.charNGram = false;
+
+		int h = 0;
+		for (int t = 0; t < n; t++) {
+			if (t > 0)
+				for (int i = 0; i < SEPARATOR.length(); i++)
+					h = 31 * h + SEPARATOR.charAt(i);
+			Span span = spans[tokens[first + t]];
+			for (int i = span.getStart(); i < span.getEnd(); i++)
+				h = 31 * h + Character.toLowerCase(text.charAt(i));
+		}
+		this.hash = h;
+		this.charsReady = false;
+
+		return this;
+
+	}
+
+	/**
+	 * Prepares the key for going through the features of the given tokens by
+	 * calling {@link next()}; the hash codes of the tokens are computed here
+	 * once for all the n-grams.
+	 *
+	 * @param text
+	 *            the text containing the tokens
+	 * @param spans
+	 *            the spans of the tokens in the text
+	 * @param tokens
+	 *            the positions in 'spans' of the tokens that can be part of
+	 *            the n-grams
+	 * @param nTokens
+	 *            the number of tokens in 'tokens'
+	 * @param configuration
+	 *            the settings giving the orders of the n-grams
+	 */
+	public void reset(String text, Span[] spans, int[] tokens, int nTokens, FeaturesConfiguration configuration) {
+
+		this.text = text;
+		this.spans = spans;
+		this.tokens = tokens;
+
+		ensureCapacity(nTokens);
+		for (int t = 0; t < nTokens; t++)
+			hashToken(t);
+
+		start(nTokens, configuration);
+
+	}
+
+	/**
+	 * Prepares the key for going through the features of the given text by
+	 * calling {@link next()}. The tokens are normalized to lower case, they
+	 * are compared with the stop words and their hash codes are computed in a
+	 * single pass over the tokens, without copying them; the positions of the
+	 * selected tokens are kept in a buffer of the key, that is reused for all
+	 * the texts.
+	 *
+	 * @param text
+	 *            the text containing the tokens
+	 * @param spans
+	 *            the spans of the tokens in the text
+	 * @param stopWords
+	 *            the stop words to remove; null for keeping all the tokens
+	 * @param configuration
+	 *            the settings giving the orders of the n-grams
+	 * @return the number of selected tokens
+	 */
+	public int reset(String text, Span[] spans, Set<String> stopWords, FeaturesConfiguration configuration) {
+
+		this.text = text;
+		this.spans = spans;
+		if (selectedTokens.length < spans.length)
+			selectedTokens = new int[Math.max(spans.length, 2 * selectedTokens.length)];
+		this.tokens = selectedTokens;
+
+		ensureCapacity(spans.length);
+		int nTokens = 0;
+		for (int i = 0; i < spans.length; i++) {
+			selectedTokens[nTokens] = i;
+			hashToken(nTokens);
+			if (stopWords != null) {
+				// the key is the token itself for looking it up in the stop
+				// words
+				charNGram = false;
+				first = nTokens;
+				n = 1;
+				hash = tokenHashes[nTokens];
+				charsReady = false;
+				if (stopWords.contains(this))
+					continue;
+			}
+			nTokens++;
+		}
+
+		start(nTokens, configuration);
+
+		return nTokens;
+
+	}
+
+	/**
+	 * Prepares the key for going through the features of the tokens of the
+	 * given key, that has already normalized the text (e.g., without removing
+	 * the stop words), by calling {@link next()}. The hash codes of the tokens
+	 * are copied from the given key instead of being computed again and the
+	 * stop words are removed, so that the same text can be normalized once for
+	 * many feature extractors differing only in their stop words.
+	 *
+	 * @param key
+	 *            the key that has normalized the text
+	 * @param stopWords
+	 *            the stop words to remove; null for keeping all the tokens
+	 * @param configuration
+	 *            the settings giving the orders of the n-grams
+	 * @return the number of selected tokens
+	 */
+	public int reset(NGramKey key, Set<String> stopWords, FeaturesConfiguration configuration) {
+
+		this.text = key.text;
+		this.spans = key.spans;
+		if (selectedTokens.length < key.nTokens)
+			selectedTokens = new int[Math.max(key.nTokens, 2 * selectedTokens.length)];
+		this.tokens = selectedTokens;
+
+		ensureCapacity(key.nTokens);
+		int nTokens = 0;
+		for (int t = 0; t < key.nTokens; t++) {
+			selectedTokens[nTokens] = key.tokens[t];
+			tokenHashes[nTokens] = key.tokenHashes[t];
+			tokenPowers[nTokens] = key.tokenPowers[t];
+			if (stopWords != null) {
+				charNGram = false;
+				first = nTokens;
+				n = 1;
+				hash = tokenHashes[nTokens];
+				charsReady = false;
+				if (stopWords.contains(this))
+					continue;
+			}
+			nTokens++;
+		}
+
+		start(nTokens, configuration);
+
+		return nTokens;
+
+	}
+
+	/**
+	 * Gets the number of tokens that can be part of the n-grams, e.g., the
+	 * tokens that are not stop words
+	 *
+	 * @return the number of tokens
+	 */
+	public int getTokensNumber() {
+
+		return nTokens;
+
+	}
+
+	/**
+	 * Puts the word n-grams of the first order before the first token
+	 */
+	private void start(int nTokens, FeaturesConfiguration configuration) {
+
+		this.nTokens = nTokens;
+		this.configuration = configuration;
+		this.charNGram = false;
+		this.n = configuration.getWordNGramsMin();
+		this.first = -1;
+
+	}
+
+	/**
+	 * Grows the buffers of the hash codes of the tokens
+	 */
+	private void ensureCapacity(int nTokens) {
+
+		if (tokenHashes.length < nTokens) {
+			tokenHashes = new int[Math.max(nTokens, 2 * tokenHashes.length)];
+			tokenPowers = new int[tokenHashes.length];
+		}
+
+	}
+
+	/**
+	 * Computes the hash code of the given token in 'tokens' and 31^length of
+	 * the token
+	 */
+	private void hashToken(int token) {
+
+		Span span = spans[tokens[token]];
+		int h = 0;
+		int p = 1;
+		for (int i = span.getStart(); i < span.getEnd(); i++) {
+			h = 31 * h + Character.toLowerCase(text.charAt(i));
+			p *= 31;
+		}
+		tokenHashes[token] = h;
+		tokenPowers[token] = p;
+
+	}
+
+	/**
+	 * Moves the key to the next feature of the tokens given to
+	 * {@link reset(String text, Span[] spans, int[] tokens, int nTokens, FeaturesConfiguration configuration)}
+	 *
+	 * @return true if the key is the next feature; false if there are no more
+	 *         features
+	 */
+	public boolean next() {
+
+		if (!charNGram) {
+			while (n <= configuration.getWordNGramsMax()) {
+				if (++first + n <= nTokens) {
+					int h = tokenHashes[first];
+					for (int t = 1; t < n; t++)
+						h = (h * SEPARATOR_POWER + SEPARATOR_HASH) * tokenPowers[first + t] + tokenHashes[first + t];
+					hash = h;
+					charsReady = false;
+					return true;
+				}
+				n++;
+				first = -1;
+			}
+			if (!configuration.hasCharNGrams())
+				return false;
+			// go on with the character n-grams
+			charNGram = true;
+			n = configuration.getCharNGramsMin();
+			charsPower = power(n);
+			first = 0;
+			offset = -1;
+		}
+
+		while (n <= configuration.getCharNGramsMax()) {
+			if (first < nTokens) {
+				if (++offset + n <= spans[tokens[first]].length() + 2) {
+					if (offset == 0) {
+						charsHash = 0;
+						for (int i = 0; i < n; i++)
+							charsHash = 31 * charsHash + tokenChar(first, i);
+					} else {
+						charsHash = 31 * charsHash - charsPower * tokenChar(first, offset - 1)
+								+ tokenChar(first, offset + n - 1);
+					}
+					hash = CHAR_PREFIX_HASH * charsPower + charsHash;
+					charsReady = false;
+					return true;
+				}
+				first++;
+				offset = -1;
+			} else {
+				n++;
+				charsPower = power(n);
+				first = 0;
+			}
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * Checks if the n-gram is a character n-gram
+	 *
+	 * @return true for the character n-grams; false for the word n-grams
+	 */
+	public boolean isCharNGram() {
+
+		return charNGram;
+
+	}
+
+	/**
+	 * Gets the length of the n-gram
+	 *
+	 * @return the number of characters of the n-gram
+	 */
+	public int length() {
+
+		if (charNGram)
+			return CHAR_PREFIX.length() + n;
+
+		int length = (n - 1) * SEPARATOR.length();
+		for (int t = 0; t < n; t++)
+			length += spans[tokens[first + t]].length();
+
+		return length;
+
+	}
+
+	@Override
+	public int hashCode() {
+
+		return hash;
+
+	}
+
+	/**
+	 * Compares the n-gram with the given string (e.g., a key of a HashMap of
+	 * strings)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+
+		if (this == obj)
+			return true;
+		if (!(obj instanceof CharSequence))
+			return false;
+
+		CharSequence other = (CharSequence) obj;
+		if (other.length() != length())
+			return false;
+
+		if (charNGram) {
+			if (!charsReady)
+				fillChars();
+			for (int j = 0; j < other.length(); j++)
+				if (other.charAt(j) != chars[j])
+					return false;
+			return true;
+		}
+
+		int j = 0;
+		for (int t = 0; t < n; t++) {
+			if (t > 0)
+				for (int i = 0; i < SEPARATOR.length(); i++)
+					if (other.charAt(j++) != SEPARATOR.charAt(i))
+						return false;
+			Span span = spans[tokens[first + t]];
+			for (int i = span.getStart(); i < span.getEnd(); i++)
+				if (other.charAt(j++) != Character.toLowerCase(text.charAt(i)))
+					return false;
+		}
+
+		return true;
+
+	}
+
+	@Override
+	public char charAt(int index) {
+
+		if (!charsReady)
+			fillChars();
+
+		return chars[index];
+
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+
+		return toString().substring(start, end);
+
+	}
+
+	/**
+	 * Builds the string of the n-gram (e.g., to be saved into the features
+	 * index)
+	 */
+	@Override
+	public String toString() {
+
+		if (!charsReady)
+			fillChars();
+
+		return new String(chars, 0, length());
+
+	}
+
+	/**
+	 * Puts the characters of the normalized n-gram into the buffer
+	 */
+	private void fillChars() {
+
+		int length = length();
+		if (chars.length < length)
+			chars = new char[Math.max(length, 2 * chars.length)];
+
+		int j = 0;
+		if (charNGram) {
+			for (int i = 0; i < CHAR_PREFIX.length(); i++)
+				chars[j++] = CHAR_PREFIX.charAt(i);
+			for (int i = 0; i < n; i++)
+				chars[j++] = tokenChar(first, offset + i);
+		} else {
+			for (int t = 0; t < n; t++) {
+				if (t > 0)
+					for (int i = 0; i < SEPARATOR.length(); i++)
+						chars[j++] = SEPARATOR.charAt(i);
+				Span span = spans[tokens[first + t]];
+				for (int i = span.getStart(); i < span.getEnd(); i++)
+					chars[j++] = Character.toLowerCase(text.charAt(i));
+			}
+		}
+		charsReady = true;
+
+	}
+
+	/**
+	 * Gets the character at the given position of the normalized token between
+	 * its markers, e.g., 0 for the marker of the begin of the token
+	 */
+	private char tokenChar(int token, int position) {
+
+		Span span = spans[tokens[token]];
+		if (position == 0)
+			return BEGIN;
+		if (position > span.length())
+			return END;
+
+		return Character.toLowerCase(text.charAt(span.getStart() + position - 1));
+
+	}
+
+	/**
+	 * Computes 31^exponent, i.e., the factor that shifts a hash code to the
+	 * left of a string of the given length
+	 */
+	private static int power(int exponent) {
+
+		int p = 1;
+		for (int i = 0; i < exponent; i++)
+			p *= 31;
+
+		return p;
+
+	}
+
+}
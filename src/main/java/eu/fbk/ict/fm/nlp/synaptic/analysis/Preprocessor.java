@@ -3,9 +3,14 @@ package eu.fbk.ict.fm.nlp.synaptic.analysis;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import opennlp.tools.util.Span;
+
 /**
  * Preprocessor implements the interface IPreprocessor for pre-processing input
- * data.
+ * data. The same instance of the preprocessor can be shared among many threads
+ * since it uses a thread-safe tokenizer (@see ConcurrentTokenizerWrapper), and
+ * all the preprocessors of the JVM share the same model for tokenization
+ * (@see SharedResources).
  * 
  * @author zanoli
  * 
@@ -18,15 +23,16 @@ public class Preprocessor implements IPreprocessor {
 	private static final Logger LOGGER = Logger.getLogger(Preprocessor.class.getName());
 
 	// the tokenizer
-	TokenizerWrapper tokenizerWrapper;
+	ConcurrentTokenizerWrapper tokenizerWrapper;
 
 	/**
 	 * Class constructor
 	 */
 	public Preprocessor() throws Exception {
 
-		// create an instance of the tokenizer
-		tokenizerWrapper = new TokenizerWrapper();
+		// create an instance of the tokenizer; it can be used from many threads
+		// and runs the OpenNLP model only on the chunks of text that need it
+		tokenizerWrapper = new HybridTokenizerWrapper();
 		// and initializes it
 		tokenizerWrapper.init();
 
@@ -50,6 +56,41 @@ public class Preprocessor implements IPreprocessor {
 
 	}
 
+	public Span[] processPos(String content) throws Exception {
+
+		Span[] tokenizedContent = tokenizerWrapper.tokenizePos(content);
+
+		return tokenizedContent;
+
+	}
+
+	public Span[][] processPos(String[] texts, int size) throws Exception {
+
+		Span[][] tokenizedTexts = tokenizerWrapper.tokenizePos(texts, size);
+
+		return tokenizedTexts;
+
+	}
+
+	public void close() {
+
+		tokenizerWrapper.close();
+
+	}
+
+	/**
+	 * Sets the number of threads used for pre-processing files and arrays of
+	 * texts; 1 (the default) pre-processes them sequentially
+	 * 
+	 * @param parallelism
+	 *            the number of threads
+	 */
+	public void setParallelism(int parallelism) {
+
+		tokenizerWrapper.setParallelism(parallelism);
+
+	}
+
 	/**
 	 * Creates an instance of the preprocessor and runs it on the given example
 	 * 
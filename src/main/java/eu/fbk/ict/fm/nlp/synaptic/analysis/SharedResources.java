@@ -0,0 +1,153 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * SharedResources is the registry of the immutable resources (e.g., the model
+ * for tokenization, the stop words, the list of weighted n-grams) used by the
+ * preprocessors and the feature extractors. Each resource is loaded the first
+ * time it is acquired and then the same instance is given to all the
+ * components of the JVM acquiring it, e.g., the type classifier and the
+ * sentiment classifier running in the same service; a counter keeps the number
+ * of components using the resource and the resource is removed from the
+ * registry (and then it can be garbage collected) when the last of them
+ * releases it, e.g.,
+ *
+ * 		Set&lt;String&gt; stopWords = SharedResources.acquire(SharedResources.STOP_WORDS, loader);
+ * 		...
+ * 		SharedResources.release(SharedResources.STOP_WORDS);
+ *
+ * The resources must not be modified by the components acquiring them.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public final class SharedResources {
+
+	// the logger
+	private static final Logger LOGGER = Logger.getLogger(SharedResources.class.getName());
+
+	// the model for tokenization
+	public static final String TOKENIZER_MODEL = "/de-token.bin";
+	// the list of stop words
+	public static final String STOP_WORDS = "/stopwords-de.txt";
+	// the list of n-grams weighted by their idf values
+	public static final String WEIGHTED_NGRAMS = "/dewiki-20140216-ngram-1M.csv";
+
+	// the resources in use, by name
+	private static final Map<String, Entry> resources = new HashMap<String, Entry>();
+
+	private SharedResources() {
+
+	}
+
+	/**
+	 * Loads a resource the first time it is acquired
+	 *
+	 * @param <T>
+	 *            the type of the resource
+	 */
+	public interface Loader<T> {
+
+		T load() throws Exception;
+
+	}
+
+	/**
+	 * Gets the resource with the given name, loading it if no other component
+	 * is using it; each call has to be followed by a call to
+	 * {@link #release(String)} when the resource is no longer needed.
+	 * Different resources can be loaded at the same time by different threads,
+	 * while the threads acquiring a resource being loaded wait for it.
+	 *
+	 * @param name
+	 *            the name of the resource (e.g., STOP_WORDS)
+	 * @param loader
+	 *            the loader of the resource
+	 * @return the resource
+	 *
+	 * @throws Exception
+	 *             if the resource can't be loaded; in this case the resource
+	 *             is not acquired
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T acquire(String name, Loader<T> loader) throws Exception {
+
+		Entry entry;
+		synchronized (resources) {
+			entry = resources.get(name);
+			if (entry == null) {
+				entry = new Entry();
+				resources.put(name, entry);
+			}
+			entry.references++;
+		}
+
+		try {
+			synchronized (entry) {
+				if (entry.resource == null) {
+					long start = System.currentTimeMillis();
+					entry.resource = loader.load();
+					LOGGER.fine("Loaded " + name + " in " + (System.currentTimeMillis() - start) + " ms");
+				}
+				return (T) entry.resource;
+			}
+		} catch (Exception ex) {
+			release(name);
+			throw (ex);
+		}
+
+	}
+
+	/**
+	 * Releases the resource with the given name; the resource is removed from
+	 * the registry when no other component is using it.
+	 *
+	 * @param name
+	 *            the name of the resource
+	 */
+	public static void release(String name) {
+
+		synchronized (resources) {
+			Entry entry = resources.get(name);
+			if (entry == null)
+				throw new IllegalStateException("The resource " + name + " has not been acquired!");
+			if (--entry.references == 0)
+				resources.remove(name);
+		}
+
+	}
+
+	/**
+	 * Gets the number of components using the resource with the given name
+	 *
+	 * @param name
+	 *            the name of the resource
+	 * @return the number of components; 0 if the resource is not loaded
+	 */
+	public static int getReferences(String name) {
+
+		synchronized (resources) {
+			Entry entry = resources.get(name);
+			return entry == null ? 0 : entry.references;
+		}
+
+	}
+
+	/**
+	 * A resource of the registry and the number of components using it
+	 */
+	private static class Entry {
+
+		// the resource; null until it is loaded
+		private Object resource;
+		// the number of components using the resource
+		private int references;
+
+	}
+
+}
@@ -13,6 +13,7 @@ import opennlp.tools.tokenize.Tokenizer;
 import opennlp.tools.tokenize.TokenizerME;
 import opennlp.tools.tokenize.TokenizerModel;
 import opennlp.tools.util.InvalidFormatException;
+import opennlp.tools.util.Span;
 
 /**
  * TokenizerWrapper implements the interface ITokenizerWrapper for tokenizing
@@ -30,6 +31,9 @@ public class TokenizerWrapper implements ITokenizerWrapper {
 
 	// the OpenNLP tokenizer
 	private Tokenizer tokenizer;
+	// true if the model for tokenization has been acquired from the registry
+	// of the shared resources and then it has to be released
+	private boolean modelAcquired;
 
 	/**
 	 * Initializes the tokenizer by loading the needed resources (e.g., the
@@ -37,14 +41,67 @@ public class TokenizerWrapper implements ITokenizerWrapper {
 	 */
 	public void init() throws Exception {
 
+		// Create an instance of the tokenizer
+		tokenizer = new TokenizerME(acquireModel());
+
+	}
+
+	/**
+	 * Releases the resources acquired by {@link init()}; the tokenizer can't be
+	 * used anymore after calling this method.
+	 */
+	public void close() {
+
+		if (modelAcquired) {
+			modelAcquired = false;
+			SharedResources.release(SharedResources.TOKENIZER_MODEL);
+		}
+
+	}
+
+	/**
+	 * Gets the model for tokenization from the registry of the shared
+	 * resources, so that all the tokenizers of the JVM use the same instance;
+	 * the model is loaded by {@link loadModel()} the first time.
+	 * 
+	 * @return the model for tokenization
+	 * 
+	 * @throws Exception
+	 */
+	protected TokenizerModel acquireModel() throws Exception {
+
+		// release the model acquired by a previous initialization
+		close();
+
+		TokenizerModel model = SharedResources.acquire(SharedResources.TOKENIZER_MODEL,
+				new SharedResources.Loader<TokenizerModel>() {
+					@Override
+					public TokenizerModel load() throws Exception {
+						return loadModel();
+					}
+				});
+		modelAcquired = true;
+
+		return model;
+
+	}
+
+	/**
+	 * Loads the model for tokenization from the resources folder. The model is
+	 * immutable and can be shared among many instances of the tokenizer.
+	 * 
+	 * @return the model for tokenization
+	 * 
+	 * @throws Exception
+	 */
+	protected TokenizerModel loadModel() throws Exception {
+
 		InputStream modelIn = null;
 
 		try {
 			// Get model from resources folder
-			modelIn = getClass().getResourceAsStream("/de-token.bin");
-			TokenizerModel model = new TokenizerModel(modelIn);
-			// Create an instance of the tokenizer
-			tokenizer = new TokenizerME(model);
+			modelIn = getClass().getResourceAsStream(SharedResources.TOKENIZER_MODEL);
+			return new TokenizerModel(modelIn);
 		} finally {
 			if (modelIn != null) {
 				modelIn.close();
@@ -67,6 +124,20 @@ public class TokenizerWrapper implements ITokenizerWrapper {
 
 	}
 
+	public Span[] tokenizePos(String text) throws Exception {
+
+		// the positions of the tokens
+		Span spans[] = null;
+
+		if (text == null)
+			return spans;
+
+		spans = tokenizer.tokenizePos(text);
+
+		return spans;
+
+	}
+
 	public void tokenize(String fileIn, String fileOut) throws Exception {
 
 		// buffer for reading input data (e.g., text to tokenize)
@@ -80,55 +151,11 @@ public class TokenizerWrapper implements ITokenizerWrapper {
 			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileOut), "UTF-8"));
 
 			String str;
+			int lineCounter = 0;
 			while ((str = in.readLine()) != null) {
 
-				// check if the number of fields of the given input file is
-				// correct
-				String[] splitLine = str.split("\t");
-
-				// for (String f : splitLine)
-				// System.out.println(f);
-
-				int lineCounter = 0;
-				if (splitLine.length != FileTSV.FIELDS_NUMBER) {
-					// System.out.println(str);
-					throw new Exception("Error in line " + lineCounter + ": wrong number of fields in the input file!");
-				}
 				lineCounter++;
-
-				// the ID
-				String id = splitLine[FileTSV.ID];
-				out.write(id);
-				out.write("\t");
-
-				// the start/end time
-				String StartEndTime = splitLine[FileTSV.START_END_TIME];
-				out.write(StartEndTime);
-				out.write("\t");
-
-				// the sentiment
-				String sentiment = splitLine[FileTSV.SENTIMENT];
-				out.write(sentiment);
-				out.write("\t");
-
-				// the type
-				String type = splitLine[FileTSV.TYPE];
-				out.write(type);
-				out.write("\t");
-
-				// the content to tokenize
-				String content = splitLine[FileTSV.CONTENT];
-				String[] tokenizedContent = tokenize(content);
-				StringBuilder builder = new StringBuilder();
-				for (int i = 0; i < tokenizedContent.length; i++) {
-					builder.append(tokenizedContent[i]);
-					if (i < tokenizedContent.length - 1) // to avoid an addition
-															// space after the
-															// tokenized content
-						builder.append(" "); // a space character to separate
-												// tokens
-				}
-				out.write(builder.toString());
+				out.write(tokenizeLine(str, lineCounter));
 
 				// end of line
 				out.write("\n");
@@ -146,6 +173,65 @@ public class TokenizerWrapper implements ITokenizerWrapper {
 
 	}
 
+	/**
+	 * Tokenizes the field 'content' of the given line of the tsv input file and
+	 * returns the line as it has to be written into the output file (without the
+	 * end of line)
+	 * 
+	 * @param str
+	 *            the line of the input file
+	 * @param lineCounter
+	 *            the number of the line in the input file (used for reporting
+	 *            errors)
+	 * @return the line with the field 'content' tokenized
+	 * 
+	 * @throws Exception
+	 */
+	protected String tokenizeLine(String str, int lineCounter) throws Exception {
+
+		// check if the number of fields of the given input file is
+		// correct
+		String[] splitLine = str.split("\t");
+
+		if (splitLine.length != FileTSV.FIELDS_NUMBER) {
+			// System.out.println(str);
+			throw new Exception("Error in line " + lineCounter + ": wrong number of fields in the input file!");
+		}
+
+		StringBuilder builder = new StringBuilder(str.length() + 16);
+
+		// the ID
+		builder.append(splitLine[FileTSV.ID]);
+		builder.append("\t");
+
+		// the start/end time
+		builder.append(splitLine[FileTSV.START_END_TIME]);
+		builder.append("\t");
+
+		// the sentiment
+		builder.append(splitLine[FileTSV.SENTIMENT]);
+		builder.append("\t");
+
+		// the type
+		builder.append(splitLine[FileTSV.TYPE]);
+		builder.append("\t");
+
+		// the content to tokenize
+		String content = splitLine[FileTSV.CONTENT];
+		String[] tokenizedContent = tokenize(content);
+		for (int i = 0; i < tokenizedContent.length; i++) {
+			builder.append(tokenizedContent[i]);
+			if (i < tokenizedContent.length - 1) // to avoid an addition
+													// space after the
+													// tokenized content
+				builder.append(" "); // a space character to separate
+										// tokens
+		}
+
+		return builder.toString();
+
+	}
+
 	/*
 	public static void main(String args[]) {
 
@@ -1,52 +1,534 @@
 package eu.fbk.ict.fm.nlp.synaptic.classification;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import eu.fbk.ict.fm.nlp.synaptic.analysis.FeaturesBuffer;
+import eu.fbk.ict.fm.nlp.synaptic.analysis.NGramKey;
 import libsvm.svm;
 import libsvm.svm_model;
 import libsvm.svm_node;
+import opennlp.tools.util.Span;
 
 public abstract class AbstractClassify implements IClassify {
 
-	// the trained model
-	public svm_model model;
+	// the logger
+	private static final Logger LOGGER = Logger.getLogger(AbstractClassify.class.getName());
+
+	// the score of the predicted labels
+	private static final double SCORE = 100d;
+
+	// the snapshot of the trained model and of its indexes; it is replaced as
+	// a whole when the model is reloaded
+	private final AtomicReference<ModelSnapshot> snapshot = new AtomicReference<ModelSnapshot>();
+	// true for enabling stop words removal in the feature extractors of the
+	// snapshots
+	private boolean enableStopWordsRemoval;
+	// true when the classifier has been closed and no snapshot can be loaded
+	private boolean closed;
+	// the labels predicted for the last annotated texts; null when the
+	// cache is disabled
+	private volatile PredictionCache cache;
+	// the thread checking the model file for changes; it is created when the
+	// model file is watched
+	private ScheduledExecutorService watcher;
+	// the runner of the batches of texts
+	private final BatchRunner batchRunner = new BatchRunner();
+
+	// the nodes of the features vectors of each thread using the classifier
+	// (e.g., the threads sharing the same classifier), reused for all the
+	// examples it annotates
+	private final ThreadLocal<Nodes> nodes = new ThreadLocal<Nodes>() {
+		@Override
+		protected Nodes initialValue() {
+			return new Nodes();
+		}
+	};
+
+	/**
+	 * Loads the snapshot of the model generated during the classifier training
+	 * phase and of its indexes (@see ModelSnapshot)
+	 *
+	 * @param modelFileName
+	 *            the model file name
+	 * @param enableStopWordsRemoval
+	 *            true for enabling stop words removal; false otherwise
+	 *
+	 * @throws Exception
+	 */
+	protected void loadModel(String modelFileName, boolean enableStopWordsRemoval) throws Exception {
+
+		this.enableStopWordsRemoval = enableStopWordsRemoval;
+		swap(ModelSnapshot.load(modelFileName, enableStopWordsRemoval));
+
+	}
+
+	/**
+	 * Gets the snapshot of the model currently used for annotating the texts;
+	 * the annotation of a text has to use the same snapshot from the features
+	 * extraction to the label of the prediction
+	 *
+	 * @return the snapshot
+	 */
+	public ModelSnapshot getSnapshot() {
+
+		return snapshot.get();
+
+	}
+
+	/**
+	 * Gets the trained model currently used for annotating the texts
+	 *
+	 * @return the model; null when its quantized weights have been loaded
+	 *         instead (@see ModelSnapshot)
+	 */
+	public svm_model getModel() {
+
+		return snapshot.get().getModel();
+
+	}
+
+	/**
+	 * Reloads the model file currently used, e.g., after the model has been
+	 * trained again (@see reload(String))
+	 *
+	 * @throws Exception
+	 */
+	public void reload() throws Exception {
+
+		reload(snapshot.get().getModelFile().getPath());
+
+	}
+
+	/**
+	 * Loads the snapshot of the given model and of its indexes and replaces
+	 * the snapshot currently used with it. The texts being annotated while
+	 * the new snapshot is loaded keep using the old one without waiting, and
+	 * the old snapshot is released once the new one is in place; the
+	 * tokenizer, the stop words and the list of weighted n-grams are not
+	 * loaded again. If the new snapshot can't be loaded the classifier keeps
+	 * using the old one.
+	 *
+	 * @param modelFileName
+	 *            the model file name
+	 *
+	 * @throws Exception
+	 */
+	public void reload(String modelFileName) throws Exception {
+
+		swap(ModelSnapshot.load(modelFileName, enableStopWordsRemoval));
+
+	}
+
+	/**
+	 * Checks the current model file for changes every given interval and
+	 * reloads it (@see reload()) when it has changed; the model is reloaded
+	 * when it has not changed between 2 checks, so that a model being written
+	 * is not read. An interval of 0 stops checking the model file.
+	 *
+	 * @param interval
+	 *            the interval in milliseconds
+	 */
+	public synchronized void watch(long interval) {
+
+		if (watcher != null) {
+			watcher.shutdownNow();
+			watcher = null;
+		}
+		if (interval <= 0)
+			return;
+
+		watcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "synaptic-model-watcher");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		watcher.scheduleWithFixedDelay(new Runnable() {
+
+			// the time of the change waiting for the next check
+			private long pending = 0;
+			// the time of the change that couldn't be loaded
+			private long failed = 0;
+
+			@Override
+			public void run() {
+				ModelSnapshot current = snapshot.get();
+				File modelFile = current.getModelFile();
+				long lastModified = ModelSnapshot.getLastModified(modelFile);
+				if (lastModified == 0 || lastModified == current.getLastModified() || lastModified == failed) {
+					pending = 0;
+					return;
+				}
+				if (lastModified != pending) {
+					pending = lastModified;
+					return;
+				}
+				pending = 0;
+				try {
+					reload(modelFile.getPath());
+					LOGGER.info("Reloaded the model " + modelFile.getPath());
+				} catch (Exception ex) {
+					failed = lastModified;
+					LOGGER.log(Level.WARNING, "The model " + modelFile.getPath() + " can't be reloaded", ex);
+				}
+			}
+
+		}, interval, interval, TimeUnit.MILLISECONDS);
+
+	}
+
+	/**
+	 * Replaces the snapshot currently used with the given one and releases
+	 * the old snapshot
+	 */
+	private void swap(ModelSnapshot newSnapshot) {
+
+		ModelSnapshot oldSnapshot;
+		synchronized (snapshot) {
+			if (closed) {
+				newSnapshot.close();
+				throw new IllegalStateException("The classifier has been closed!");
+			}
+			oldSnapshot = snapshot.getAndSet(newSnapshot);
+		}
+		// the labels of the old model are never used with the new one; they
+		// are removed for making room
+		PredictionCache predictionCache = cache;
+		if (predictionCache != null)
+			predictionCache.clear();
+		if (oldSnapshot != null)
+			oldSnapshot.close();
+
+	}
+
+	/**
+	 * Classifies the given text; it returns the predicted label and its score
+	 *
+	 * @param text
+	 *            the content text to classify
+	 *
+	 * @return the label assigned to the given text and its score value
+	 *
+	 * @throws Exception
+	 */
+	public abstract String[] run(String text) throws Exception;
+
+	/**
+	 * Classifies the given batch of texts; it returns the predicted label and
+	 * its score of each text (@see run(String)), in the same order of the
+	 * texts. The texts are pre-processed, their features are extracted and
+	 * they are classified in parallel when the parallelism is greater than 1:
+	 * the batch is split into tasks of consecutive texts run by the pool of
+	 * threads and each thread uses its own tokenizer, n-gram key, features
+	 * buffer and nodes, so that all the texts of the batch are classified
+	 * without sharing any state.
+	 *
+	 * @param texts
+	 *            the texts to classify
+	 *
+	 * @return the labels assigned to the given texts and their score values
+	 *
+	 * @throws Exception
+	 */
+	public String[][] run(String[] texts) throws Exception {
+
+		return batchRunner.run(texts, new BatchRunner.Task() {
+			@Override
+			public String[] run(String text) throws Exception {
+				return AbstractClassify.this.run(text);
+			}
+		});
+
+	}
+
+	/**
+	 * Classifies the given batch of texts; it returns the predicted label and
+	 * its score of each text, in the same order of the texts (@see
+	 * run(String[]))
+	 *
+	 * @param texts
+	 *            the texts to classify
+	 *
+	 * @return the labels assigned to the given texts and their score values
+	 *
+	 * @throws Exception
+	 */
+	public List<String[]> run(List<String> texts) throws Exception {
+
+		return Arrays.asList(run(texts.toArray(new String[texts.size()])));
+
+	}
+
+	/**
+	 * Sets the number of threads used for classifying the batches of texts; 1
+	 * (the default) classifies them sequentially in the calling thread
+	 *
+	 * @param parallelism
+	 *            the number of threads
+	 */
+	public void setParallelism(int parallelism) {
+
+		batchRunner.setParallelism(parallelism);
+
+	}
+
+	/**
+	 * Gets the number of threads used for classifying the batches of texts
+	 *
+	 * @return the number of threads
+	 */
+	public int getParallelism() {
+
+		return batchRunner.getParallelism();
+
+	}
+
+	/**
+	 * Stops the pool of threads used for classifying the batches of texts and
+	 * checking the model file, and releases the snapshot of the model
+	 */
+	public void close() {
+
+		batchRunner.close();
+		synchronized (this) {
+			if (watcher != null) {
+				watcher.shutdownNow();
+				watcher = null;
+			}
+		}
+		ModelSnapshot oldSnapshot;
+		synchronized (snapshot) {
+			if (closed)
+				return;
+			closed = true;
+			oldSnapshot = snapshot.get();
+		}
+		if (oldSnapshot != null)
+			oldSnapshot.close();
+
+	}
 
 	/**
-	 * Annotates the example in input and that was produced by the FeatureExtactorClassify component; it 
+	 * Annotates the example in input and that was produced by the FeatureExtactorClassify component; it
 	 * returns the assigned label with its score value
-	 * 
+	 *
 	 * @param example
 	 *            the example to annotate
 	 */
 	public double[] classify(String[] example) {
 
-		//int svm_type = svm.svm_get_svm_type(model);
-	    int nr_class = svm.svm_get_nr_class(model);
-	    int[] labels = new int[nr_class];
-	    svm.svm_get_labels(model, labels);
-	    //boolean support_probabilities = svm.svm_check_probability_model(model) == 1;
-	    double[] prediction = new double[2]; //contains the predicted label and its score
-		
 		// read the features vector in input
-		svm_node[] x = new svm_node[example.length];
+		int[] indexes = new int[example.length];
+		double[] values = new double[example.length];
 		for (int j = 0; j < example.length; j++) {
-			String[] index_value = example[j].split(":");
-			x[j] = new svm_node();
-			x[j].index = atoi(index_value[0]);
-			x[j].value = atof(index_value[1]);
+			int separator = example[j].indexOf(':');
+			indexes[j] = atoi(example[j].substring(0, separator));
+			values[j] = atof(example[j].substring(separator + 1));
 		}
-		
+
+		return classify(indexes, values, example.length);
+
+	}
+
+	/**
+	 * Annotates the example in input given as the parallel arrays of the IDs
+	 * of its features and of their values; it returns the assigned label with
+	 * its score value
+	 *
+	 * @param indexes
+	 *            the IDs of the features, in increasing order
+	 * @param values
+	 *            the values of the features
+	 * @param length
+	 *            the number of features
+	 */
+	public double[] classify(int[] indexes, double[] values, int length) {
+
 		//if(support_probabilities) // returns the real probabilities
 	    //{
 	    // svm.svm_predict_probability(model, x, scores);
 	    //  return scores;
 	    // }
 	    // or gives 100% to the best label
-		
+		double[] prediction = new double[2]; //contains the predicted label and its score
+		prediction[0] = predict(indexes, values, length); //label
+		prediction[1] = SCORE; //score value
+
+		return prediction;
+
+	}
+
+	/**
+	 * Predicts the label of the example in input given as the parallel arrays
+	 * of the IDs of its features and of their values, with the snapshot of
+	 * the model currently used (@see predict(ModelSnapshot, int[], double[],
+	 * int))
+	 *
+	 * @param indexes
+	 *            the IDs of the features, in increasing order
+	 * @param values
+	 *            the values of the features
+	 * @param length
+	 *            the number of features
+	 * @return the ID of the predicted label
+	 */
+	public double predict(int[] indexes, double[] values, int length) {
+
+		return predict(snapshot.get(), indexes, values, length);
+
+	}
+
+	/**
+	 * Predicts the label of the example in input given as the parallel arrays
+	 * of the IDs of its features and of their values, with the model of the
+	 * given snapshot. The models trained with the linear kernel have been
+	 * compiled into weight vectors (@see LinearPredictor) and they predict the
+	 * same labels of svm_predict without going through their support vectors;
+	 * for the other models the features are put into the nodes of the calling
+	 * thread that are reused for all the examples it annotates, so that no
+	 * object is created for them.
+	 *
+	 * @param snapshot
+	 *            the snapshot of the model
+	 * @param indexes
+	 *            the IDs of the features, in increasing order
+	 * @param values
+	 *            the values of the features
+	 * @param length
+	 *            the number of features
+	 * @return the ID of the predicted label
+	 */
+	protected double predict(ModelSnapshot snapshot, int[] indexes, double[] values, int length) {
+
+		LinearPredictor linearPredictor = snapshot.getPredictor();
+		if (linearPredictor.isCompiled())
+			return linearPredictor.predict(indexes, values, length);
+
 		// annotates the current example
-	    int winner = (int)svm.svm_predict(model, x);
-	    prediction[0] = winner; //label
-	    prediction[1] = 100d; //score value
-	    
-	    return prediction;
+		return svm.svm_predict(snapshot.getModel(), nodes.get().set(indexes, values, length));
+
+	}
+
+	/**
+	 * Predicts the label of the given pre-processed text with the model of the
+	 * given snapshot; the label is looked up in the cache first, when the
+	 * cache is enabled (@see setCacheSize(int)).
+	 *
+	 * @param snapshot
+	 *            the snapshot of the model
+	 * @param text
+	 *            the text
+	 * @param spans
+	 *            the spans of the pre-processed tokens in the text
+	 * @return the ID of the predicted label
+	 *
+	 * @throws Exception
+	 */
+	protected double predict(ModelSnapshot snapshot, String text, Span[] spans) throws Exception {
+
+		PredictionCache predictionCache = cache;
+		if (predictionCache == null)
+			return predict(snapshot, snapshot.getFeatureExtractor().extractFeatures(text, spans));
+
+		long key = PredictionCache.hash(text, spans);
+		double prediction = predictionCache.get(key, snapshot);
+		if (Double.isNaN(prediction)) {
+			prediction = predict(snapshot, snapshot.getFeatureExtractor().extractFeatures(text, spans));
+			predictionCache.put(key, snapshot, prediction);
+		}
+
+		return prediction;
+
+	}
+
+	/**
+	 * Predicts the label of a text that has already been normalized by the
+	 * given key (@see FeatureExtractorClassify.extractFeatures(NGramKey)) with
+	 * the model of the given snapshot; the label is looked up in the cache
+	 * first, when the cache is enabled.
+	 *
+	 * @param snapshot
+	 *            the snapshot of the model
+	 * @param tokens
+	 *            the key that has normalized the text
+	 * @param key
+	 *            the hash code of the normalized text (@see
+	 *            PredictionCache.hash(String, Span[])); it is not used when the
+	 *            cache is disabled
+	 * @return the ID of the predicted label
+	 *
+	 * @throws Exception
+	 */
+	protected double predict(ModelSnapshot snapshot, NGramKey tokens, long key) throws Exception {
+
+		PredictionCache predictionCache = cache;
+		if (predictionCache == null)
+			return predict(snapshot, snapshot.getFeatureExtractor().extractFeatures(tokens));
+
+		double prediction = predictionCache.get(key, snapshot);
+		if (Double.isNaN(prediction)) {
+			prediction = predict(snapshot, snapshot.getFeatureExtractor().extractFeatures(tokens));
+			predictionCache.put(key, snapshot, prediction);
+		}
+
+		return prediction;
+
+	}
+
+	/**
+	 * Predicts the label of the given features vector with the model of the
+	 * given snapshot
+	 */
+	private double predict(ModelSnapshot snapshot, FeaturesBuffer featuresVector) {
+
+		return predict(snapshot, featuresVector.getIndexes(), featuresVector.getValues(), featuresVector.size());
+
+	}
+
+	/**
+	 * Gets the score of the predicted labels
+	 *
+	 * @return the score
+	 */
+	public double getScore() {
+
+		return SCORE;
+
+	}
+
+	/**
+	 * Sets the max number of texts whose predicted labels are kept for the
+	 * texts occurring many times (@see PredictionCache); 0 (the default)
+	 * disables the cache. The cache is emptied when the model is reloaded.
+	 *
+	 * @param size
+	 *            the max number of texts
+	 */
+	public void setCacheSize(int size) {
+
+		cache = size > 0 ? new PredictionCache(size) : null;
+
+	}
+
+	/**
+	 * Gets the cache of the predicted labels, e.g., for its statistics
+	 *
+	 * @return the cache; null when the cache is disabled
+	 */
+	public PredictionCache getCache() {
+
+		return cache;
 
 	}
 
@@ -58,4 +540,45 @@ public abstract class AbstractClassify implements IClassify {
 		return Double.valueOf(s).doubleValue();
 	}
 
+	/**
+	 * The nodes of the features vectors of a thread. libsvm goes through all
+	 * the nodes of the array it is given, then the nodes after the features
+	 * of the current example get an index greater than the indexes of all
+	 * the features: they are never matched by the features of the support
+	 * vectors and the dot products don't change.
+	 */
+	private static class Nodes {
+
+		// the nodes
+		private svm_node[] x = new svm_node[0];
+		// the number of nodes used by the current example
+		private int length;
+
+		svm_node[] set(int[] indexes, double[] values, int length) {
+
+			if (x.length < length) {
+				svm_node[] nodes = new svm_node[Math.max(length, 2 * x.length)];
+				System.arraycopy(x, 0, nodes, 0, x.length);
+				for (int i = x.length; i < nodes.length; i++) {
+					nodes[i] = new svm_node();
+					nodes[i].index = Integer.MAX_VALUE;
+				}
+				x = nodes;
+			}
+			for (int i = 0; i < length; i++) {
+				x[i].index = indexes[i];
+				x[i].value = values[i];
+			}
+			for (int i = length; i < this.length; i++) {
+				x[i].index = Integer.MAX_VALUE;
+				x[i].value = 0;
+			}
+			this.length = length;
+
+			return x;
+
+		}
+
+	}
+
 }
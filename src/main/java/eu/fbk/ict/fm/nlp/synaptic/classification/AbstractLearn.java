@@ -1,16 +1,17 @@
 package eu.fbk.ict.fm.nlp.synaptic.classification;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
-import java.util.Vector;
 
+import eu.fbk.ict.fm.nlp.synaptic.analysis.FeaturesConfiguration;
+import eu.fbk.ict.fm.nlp.synaptic.analysis.FeaturesVectors;
 import libsvm.svm;
 import libsvm.svm_model;
 import libsvm.svm_node;
@@ -24,9 +25,24 @@ public abstract class AbstractLearn implements ILearn {
 	private svm_model model; // the model to generate
 	private int crossValidation = 0; // to enable cross validation
 	private int nFold; // number of folds to use in cross-validation
+	private int parallelism = 1; // number of threads to use for preparing the dataset
+	private boolean debugFiles = true; // to save the pre-processed dataset and the features vectors
+	private int hashingBits = 0; // bits of the feature hashing space; 0 to use the features index
+	private int wordNGramsMin = 1; // orders of the word n-grams
+	private int wordNGramsMax = 2;
+	private int charNGramsMin = 0; // orders of the character n-grams; 0 for no character n-grams
+	private int charNGramsMax = 0;
+	private boolean corpusIdf = false; // idf values computed from the training dataset
+	private int minDocumentFrequency = 1; // the vocabulary pruning (1 means no pruning)
+	private int maxFeatures = 0; // the max number of features (0 means no limit)
+	private boolean binaryVectors = false; // to save the features vectors in the binary format
+	private int quantization = LinearPredictor.DOUBLE; // format of the weights saved with the model
 	
 	/**
-	 * Learns a model given the input training dataset.
+	 * Learns a model given the input training dataset, i.e., the file of its
+	 * features vectors in the text format or in the binary one (@see
+	 * FeaturesVectors), which is read much faster, e.g., for training the
+	 * classifier again with other parameters.
 	 * 
 	 * @param inputDataFileName the input training dataset file name
 	 * @param modelFileName the output model file name
@@ -35,6 +51,41 @@ public abstract class AbstractLearn implements ILearn {
 	public void learn(String inputDataFileName, String modelFileName) throws Exception {
 
 		// set basic svm classifier parameters
+		setParameters();
+
+		// load the training dataset that contains the features vectors
+		loadDataSet(inputDataFileName);
+
+		// cross validation or training the classifier
+		train(modelFileName);
+	}
+	
+	/**
+	 * Learns a model given the features vectors of the training dataset that
+	 * are already in memory (e.g., produced by the FeatureExtractorLearn
+	 * component without writing them into a file).
+	 * 
+	 * @param featuresVectors the features vectors of the training dataset
+	 * @param modelFileName the output model file name
+	 * 
+	 */
+	public void learn(FeaturesVectors featuresVectors, String modelFileName) throws Exception {
+
+		// set basic svm classifier parameters
+		setParameters();
+
+		// put the features vectors into the svmlib data structure
+		loadDataSet(featuresVectors);
+
+		// cross validation or training the classifier
+		train(modelFileName);
+	}
+	
+	/**
+	 * Sets the basic svm classifier parameters
+	 */
+	private void setParameters() {
+		
 		param = new svm_parameter();
 		//param.probability = 1;
 		//param.gamma = 0.5;
@@ -47,11 +98,16 @@ public abstract class AbstractLearn implements ILearn {
 		param.cache_size = 20000;
 		param.eps = 0.001;
 		nFold = 10;
-
-		// load the training dataset that contains the features vectors
-		loadDataSet(inputDataFileName);
-
-		// cross validation or training the classifier
+		
+	}
+	
+	/**
+	 * Performs cross validation or trains the classifier on the loaded dataset
+	 * 
+	 * @param modelFileName the output model file name
+	 */
+	private void train(String modelFileName) throws Exception {
+		
 		if (crossValidation != 0) {
 			crossValidation();
 		} else {
@@ -60,7 +116,9 @@ public abstract class AbstractLearn implements ILearn {
 			});
 			model = svm.svm_train(prob, param); //generate the model
 			svm.svm_save_model(modelFileName, model); // save the model
+			saveWeights(modelFileName);
 		}
+		
 	}
 	
 	/**
@@ -86,55 +144,442 @@ public abstract class AbstractLearn implements ILearn {
 		
 	}
 	
+	/**
+	 * Sets the number of threads to use for preparing the dataset (e.g.,
+	 * pre-processing it) before training the classifier
+	 * 
+	 * @param parallelism the number of threads; 1 for sequential processing
+	 */
+	public void setParallelism(int parallelism) {
+		
+		this.parallelism = parallelism;
+		
+	}
+	
+	
+	/**
+	 * Gets the number of threads to use for preparing the dataset
+	 * 
+	 * @return the number of threads
+	 */
+	public int getParallelism() {
+		
+		return this.parallelism;
+		
+	}
+	
+
+	/**
+	 * Sets if the pre-processed dataset and its features vectors have to be
+	 * saved into files for debugging purposes; when they are not saved the
+	 * dataset goes from pre-processing to training without being written into
+	 * any intermediate file
+	 * 
+	 * @param debugFiles true for saving the files; false otherwise
+	 */
+	public void setDebugFiles(boolean debugFiles) {
+		
+		this.debugFiles = debugFiles;
+		
+	}
+	
+	
+	/**
+	 * Gets if the pre-processed dataset and its features vectors have to be
+	 * saved into files for debugging purposes
+	 * 
+	 * @return true for saving the files; false otherwise
+	 */
+	public boolean getDebugFiles() {
+		
+		return this.debugFiles;
+		
+	}
+	
+
+	/**
+	 * Sets the number of bits of the space where the features are hashed into
+	 * (feature hashing): the features get their IDs from their hash codes and
+	 * the features index is neither built nor saved. The setting is saved with
+	 * the model and the classifiers use it when loading the model.
+	 * 
+	 * @param hashingBits the number of bits (e.g., 20); 0 (the default) to use the features index
+	 */
+	public void setHashingBits(int hashingBits) {
+		
+		this.hashingBits = hashingBits;
+		
+	}
+	
+	
+	/**
+	 * Gets the number of bits of the space where the features are hashed into
+	 * 
+	 * @return the number of bits; 0 if feature hashing is disabled
+	 */
+	public int getHashingBits() {
+		
+		return this.hashingBits;
+		
+	}
+	
+
+	/**
+	 * Sets the orders of the word n-grams used as features (e.g., 1 and 3 for
+	 * unigrams, bigrams and trigrams). The setting is saved with the model
+	 * and the classifiers use it when loading the model.
+	 * 
+	 * @param min the min number of tokens of the n-grams (1 by default)
+	 * @param max the max number of tokens of the n-grams (2 by default)
+	 */
+	public void setWordNGrams(int min, int max) {
+		
+		this.wordNGramsMin = min;
+		this.wordNGramsMax = max;
+		
+	}
+	
+	
+	/**
+	 * Gets the min number of tokens of the word n-grams
+	 * 
+	 * @return the min number of tokens
+	 */
+	public int getWordNGramsMin() {
+		
+		return this.wordNGramsMin;
+		
+	}
+	
+	
+	/**
+	 * Gets the max number of tokens of the word n-grams
+	 * 
+	 * @return the max number of tokens
+	 */
+	public int getWordNGramsMax() {
+		
+		return this.wordNGramsMax;
+		
+	}
+	
+
+	/**
+	 * Sets the orders of the character n-grams of the tokens used as features
+	 * (e.g., 3 and 5). The setting is saved with the model and the classifiers
+	 * use it when loading the model.
+	 * 
+	 * @param min the min number of characters of the n-grams
+	 * @param max the max number of characters of the n-grams; 0 and 0 (the default) for no character n-grams
+	 */
+	public void setCharNGrams(int min, int max) {
+		
+		this.charNGramsMin = min;
+		this.charNGramsMax = max;
+		
+	}
+	
+	
+	/**
+	 * Gets the min number of characters of the character n-grams
+	 * 
+	 * @return the min number of characters; 0 if there are no character n-grams
+	 */
+	public int getCharNGramsMin() {
+		
+		return this.charNGramsMin;
+		
+	}
+	
+	
+	/**
+	 * Gets the max number of characters of the character n-grams
+	 * 
+	 * @return the max number of characters; 0 if there are no character n-grams
+	 */
+	public int getCharNGramsMax() {
+		
+		return this.charNGramsMax;
+		
+	}
+	
+
+	/**
+	 * Sets if the features have to be weighted by the idf values computed
+	 * from the training dataset instead of the list of weighted n-grams; the
+	 * document frequencies are counted in a first pass over the dataset and
+	 * they are saved with the model (modelFileName.idf).
+	 * 
+	 * @param corpusIdf true for the idf values of the training dataset
+	 */
+	public void setCorpusIdf(boolean corpusIdf) {
+		
+		this.corpusIdf = corpusIdf;
+		
+	}
+	
+	
+	/**
+	 * Gets if the features have to be weighted by the idf values computed
+	 * from the training dataset
+	 * 
+	 * @return true for the idf values of the training dataset
+	 */
+	public boolean getCorpusIdf() {
+		
+		return this.corpusIdf;
+		
+	}
+	
+
+	/**
+	 * Sets the min number of examples a feature has to occur in not to be
+	 * removed from the vocabulary
+	 * 
+	 * @param minDocumentFrequency the min number of examples; 1 for keeping all the features
+	 */
+	public void setMinDocumentFrequency(int minDocumentFrequency) {
+		
+		this.minDocumentFrequency = minDocumentFrequency;
+		
+	}
+	
+	
+	/**
+	 * Gets the min number of examples a feature has to occur in
+	 * 
+	 * @return the min number of examples
+	 */
+	public int getMinDocumentFrequency() {
+		
+		return this.minDocumentFrequency;
+		
+	}
+	
+	
+	/**
+	 * Sets the max number of features of the vocabulary, chosen by their
+	 * chi-square scores
+	 * 
+	 * @param maxFeatures the max number of features; 0 for no limit
+	 */
+	public void setMaxFeatures(int maxFeatures) {
+		
+		this.maxFeatures = maxFeatures;
+		
+	}
+	
+	
+	/**
+	 * Gets the max number of features of the vocabulary
+	 * 
+	 * @return the max number of features; 0 for no limit
+	 */
+	public int getMaxFeatures() {
+		
+		return this.maxFeatures;
+		
+	}
+	
+
+	/**
+	 * Sets if the features vectors of the dataset have to be saved in the
+	 * binary format (file datasetFileName.token.vectors.bin) for training the
+	 * classifier again on them (@see learn(String, String)); they are saved
+	 * even if the debugging files are not.
+	 * 
+	 * @param binaryVectors true for saving the features vectors in the binary format
+	 */
+	public void setBinaryVectors(boolean binaryVectors) {
+		
+		this.binaryVectors = binaryVectors;
+		
+	}
+	
+	
+	/**
+	 * Gets if the features vectors of the dataset have to be saved in the
+	 * binary format
+	 * 
+	 * @return true for saving the features vectors in the binary format
+	 */
+	public boolean getBinaryVectors() {
+		
+		return this.binaryVectors;
+		
+	}
+	
+
+	/**
+	 * Sets the format of the weights of the model saved with it
+	 * (modelFileName.weights) and used by the classifiers instead of the
+	 * model (@see LinearPredictor); the quantized weights take less memory
+	 * but the predicted labels can differ a little from the ones of the model.
+	 * 
+	 * @param quantization LinearPredictor.FLOAT16 or LinearPredictor.INT8; LinearPredictor.DOUBLE (the default) for no quantized weights
+	 */
+	public void setQuantization(int quantization) {
+		
+		this.quantization = quantization;
+		
+	}
+	
+	
+	/**
+	 * Gets the format of the weights of the model saved with it
+	 * 
+	 * @return the format; LinearPredictor.DOUBLE for no quantized weights
+	 */
+	public int getQuantization() {
+		
+		return this.quantization;
+		
+	}
+	
+
+	/**
+	 * Saves the quantized weights of the trained model next to it, or removes
+	 * the weights of a previous model when there is no quantization
+	 * 
+	 * @param modelFileName the model file name
+	 * 
+	 * @throws Exception
+	 */
+	private void saveWeights(String modelFileName) throws Exception {
+		
+		File weightsFile = new File(modelFileName + LinearPredictor.FILE_EXTENSION);
+		LinearPredictor predictor = new LinearPredictor(model);
+		if (quantization == LinearPredictor.DOUBLE || !predictor.isCompiled()) {
+			weightsFile.delete();
+			return;
+		}
+		predictor.quantize(quantization).save(weightsFile, LinearPredictor.checksum(new File(modelFileName)));
+		
+	}
+	
+
+	/**
+	 * Builds the settings of the feature extraction (e.g., feature hashing,
+	 * orders of the n-grams) to be saved with the model
+	 * 
+	 * @return the settings
+	 */
+	protected FeaturesConfiguration getFeaturesConfiguration() {
+		
+		FeaturesConfiguration configuration = new FeaturesConfiguration();
+		configuration.setHashingBits(hashingBits);
+		configuration.setWordNGrams(wordNGramsMin, wordNGramsMax);
+		configuration.setCharNGrams(charNGramsMin, charNGramsMax);
+		configuration.setCorpusIdf(corpusIdf);
+		
+		return configuration;
+		
+	}
+	
+	
+	/**
+	 * Parses a range of orders of n-grams given from the command line, e.g.,
+	 * '1-3' or '3' (the same as '1-3' for the word n-grams and '3-3' for the
+	 * character n-grams)
+	 * 
+	 * @param range the range
+	 * @param min the min order when the range is a single number
+	 * 
+	 * @return the min and the max order
+	 */
+	protected static int[] parseRange(String range, int min) {
+		
+		int separator = range.indexOf('-');
+		if (separator == -1) {
+			int max = Integer.parseInt(range.trim());
+			return new int[] { min == 0 ? max : min, max };
+		}
+		
+		return new int[] { Integer.parseInt(range.substring(0, separator).trim()),
+				Integer.parseInt(range.substring(separator + 1).trim()) };
+		
+	}
+	
 
 	/**
 	 * Reads the file containing the features vectors produced by the FeatureExtractorLearn component,
-	 * puts the features and their weights into the svmlib data structure.
+	 * in the binary format or in the text one, and puts the features and their weights into the
+	 * svmlib data structure.
 	 * 
 	 * @param inputDataFileName the input dataset
 	 * 
-	 * @throws IOException
+	 * @throws Exception
 	 */
-	private void loadDataSet(String inputDataFileName) throws IOException {
+	private void loadDataSet(String inputDataFileName) throws Exception {
 
-		BufferedReader fp = new BufferedReader(new FileReader(inputDataFileName));
-		Vector<Double> vy = new Vector<Double>();
-		Vector<svm_node[]> vx = new Vector<svm_node[]>();
-		int max_index = 0;
+		File file = new File(inputDataFileName);
+		if (FeaturesVectors.isBinary(file)) {
+			loadDataSet(FeaturesVectors.load(file));
+			return;
+		}
 
-		while (true) {
-			
-			String line = fp.readLine();
-			if (line == null)
-				break;
-
-			// tokenize the features vector in input and put the features and their weights
-			// into the svmlib data structure
-			StringTokenizer st = new StringTokenizer(line, " \t\n\r\f:");
-
-			vy.addElement(atof(st.nextToken()));
-			int m = st.countTokens() / 2;
-			svm_node[] x = new svm_node[m];
-			for (int j = 0; j < m; j++) {
-				x[j] = new svm_node();
-				x[j].index = atoi(st.nextToken());
-				x[j].value = atof(st.nextToken());
+		BufferedReader fp = new BufferedReader(new FileReader(file));
+		FeaturesVectors featuresVectors = new FeaturesVectors();
+		int[] indexes = new int[256];
+		double[] weights = new double[256];
+
+		try {
+
+			String line;
+			while ((line = fp.readLine()) != null) {
+
+				// tokenize the features vector in input and put the features and their weights
+				// into the features vectors
+				StringTokenizer st = new StringTokenizer(line, " \t\n\r\f:");
+
+				double label = atof(st.nextToken());
+				int m = st.countTokens() / 2;
+				if (indexes.length < m) {
+					indexes = new int[m];
+					weights = new double[m];
+				}
+				for (int j = 0; j < m; j++) {
+					indexes[j] = atoi(st.nextToken());
+					// the weights have been written as floats; they get the
+					// same double values of the features vectors in memory
+					weights[j] = Float.parseFloat(st.nextToken());
+				}
+				featuresVectors.add(label, indexes, weights, m);
 			}
-			if (m > 0)
-				max_index = Math.max(max_index, x[m - 1].index);
-			vx.addElement(x);
+
+		} finally {
+			fp.close();
 		}
-		
+
+		loadDataSet(featuresVectors);
+
+	}
+
+	/**
+	 * Puts the features vectors produced by the FeatureExtractorLearn component
+	 * into the svmlib data structure.
+	 * 
+	 * @param featuresVectors the features vectors
+	 */
+	private void loadDataSet(FeaturesVectors featuresVectors) {
+
 		prob = new svm_problem();
-		prob.l = vy.size();
+		prob.l = featuresVectors.size();
 		prob.x = new svm_node[prob.l][];
-		for (int i = 0; i < prob.l; i++)
-			prob.x[i] = vx.elementAt(i);
 		prob.y = new double[prob.l];
-		for (int i = 0; i < prob.l; i++)
-			prob.y[i] = vy.elementAt(i);
+		for (int i = 0; i < prob.l; i++) {
+			int[] indexes = featuresVectors.getIndexes(i);
+			double[] weights = featuresVectors.getWeights(i);
+			svm_node[] x = new svm_node[indexes.length];
+			for (int j = 0; j < x.length; j++) {
+				x[j] = new svm_node();
+				x[j].index = indexes[j];
+				x[j].value = weights[j];
+			}
+			prob.x[i] = x;
+			prob.y[i] = featuresVectors.getLabel(i);
+		}
 
-		fp.close();
 	}
 
 	/**
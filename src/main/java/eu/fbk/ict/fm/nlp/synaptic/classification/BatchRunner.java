@@ -0,0 +1,145 @@
+package eu.fbk.ict.fm.nlp.synaptic.classification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * BatchRunner classifies the batches of texts of a classifier (@see
+ * AbstractClassify, JointClassify): the texts are classified sequentially in
+ * the calling thread when the parallelism is 1, otherwise the batch is split
+ * into tasks of consecutive texts run by a pool of threads. The pool is
+ * created the first time it is needed and it is stopped when the parallelism
+ * changes or the runner is closed.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+class BatchRunner {
+
+	/**
+	 * The classification of a single text
+	 */
+	interface Task {
+
+		String[] run(String text) throws Exception;
+
+	}
+
+	// the number of texts of a batch classified by the same task of the pool
+	private static final int TEXTS_PER_TASK = 64;
+
+	// the number of threads used for classifying the batches of texts (1
+	// means sequential)
+	private int parallelism = 1;
+	// the pool of threads; it is created the first time it is needed
+	private ForkJoinPool pool;
+
+	/**
+	 * Classifies the given batch of texts with the given task; the results
+	 * are in the same order of the texts
+	 *
+	 * @param texts
+	 *            the texts to classify
+	 * @param task
+	 *            the classification of a text
+	 * @return the results of the texts
+	 *
+	 * @throws Exception
+	 */
+	String[][] run(final String[] texts, final Task task) throws Exception {
+
+		final String[][] result = new String[texts.length][];
+
+		if (parallelism <= 1 || texts.length <= TEXTS_PER_TASK) {
+			for (int i = 0; i < texts.length; i++)
+				result[i] = task.run(texts[i]);
+			return result;
+		}
+
+		List<Future<Void>> tasks = new ArrayList<Future<Void>>();
+		for (int start = 0; start < texts.length; start += TEXTS_PER_TASK) {
+			final int from = start;
+			final int to = Math.min(texts.length, start + TEXTS_PER_TASK);
+			tasks.add(getPool().submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					for (int i = from; i < to; i++)
+						result[i] = task.run(texts[i]);
+					return null;
+				}
+			}));
+		}
+
+		try {
+			for (Future<Void> future : tasks)
+				future.get();
+		} catch (ExecutionException ex) {
+			for (Future<Void> future : tasks)
+				future.cancel(false);
+			if (ex.getCause() instanceof Exception)
+				throw (Exception) ex.getCause();
+			throw ex;
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * Sets the number of threads used for classifying the batches of texts
+	 *
+	 * @param parallelism
+	 *            the number of threads; 1 for classifying them sequentially
+	 */
+	synchronized void setParallelism(int parallelism) {
+
+		if (pool != null && pool.getParallelism() != parallelism) {
+			pool.shutdown();
+			pool = null;
+		}
+		this.parallelism = parallelism;
+
+	}
+
+	/**
+	 * Gets the number of threads used for classifying the batches of texts
+	 *
+	 * @return the number of threads
+	 */
+	int getParallelism() {
+
+		return this.parallelism;
+
+	}
+
+	/**
+	 * Stops the pool of threads
+	 */
+	synchronized void close() {
+
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+
+	}
+
+	/**
+	 * Gets the pool of threads, creating it the first time
+	 */
+	private synchronized ForkJoinPool getPool() {
+
+		if (pool == null)
+			pool = new ForkJoinPool(parallelism);
+
+		return pool;
+
+	}
+
+}
@@ -0,0 +1,326 @@
+package eu.fbk.ict.fm.nlp.synaptic.classification;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * ClassifyClient annotates the texts in input with the models loaded by a
+ * ClassifyServer running on the local host, through the line protocol of the
+ * server (@see ClassifyServer). The connection can be used for many texts and
+ * the labels are returned as by the classifiers. The client can be used from
+ * Command Line Interface or its API, e.g.,
+ *
+ * CLI:
+ *
+ * 		java ClassifyClient -c content -m modelFileName [-p port]
+ * 		java ClassifyClient -c content -a type|sentiment|joint [-p port]
+ *
+ * the option '-m' takes the model as the classifiers do (@see TypeClassify,
+ * SentimentClassify), so that their command lines only need to change the
+ * class name, and the server annotates the text with the classifier it has
+ * loaded from that model file; the option '-a' chooses the classifier by its
+ * name instead. Without the option '-c' the texts are read from the standard
+ * input, one for each line, and their labels and scores are written to the
+ * standard output separated by tabs, one line for each text; the option '-x'
+ * shuts the server down.
+ *
+ * API:
+ *
+ * 		ClassifyClient client = new ClassifyClient(port);
+ * 		String[] annotation = client.run(ClassifyServer.TYPE, content);
+ * 		// or client.runModel(modelFileName, content)
+ * 		String label = annotation[0]; // the predicted label
+ * 		String score = annotation[1]; // and its score
+ * 		...
+ * 		client.close(); // when the connection is no longer needed
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class ClassifyClient {
+
+	// the logger
+	private static final Logger LOGGER = Logger.getLogger(ClassifyClient.class.getName());
+
+	// the connection to the server
+	private Socket socket;
+	private BufferedReader in;
+	private Writer out;
+
+	/**
+	 * Class constructor; it connects to the server running on the given port
+	 * of the loopback address
+	 *
+	 * @param port
+	 *            the port of the server
+	 *
+	 * @throws IOException
+	 */
+	public ClassifyClient(int port) throws IOException {
+
+		socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF8"));
+		out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), "UTF8"));
+
+	}
+
+	/**
+	 * Classifies the given text with the given classifier of the server
+	 *
+	 * @param classifier
+	 *            the classifier: ClassifyServer.TYPE, ClassifyServer.SENTIMENT
+	 *            or ClassifyServer.JOINT
+	 * @param text
+	 *            the content text to classify; its line breaks are sent as
+	 *            spaces
+	 *
+	 * @return the label assigned to the given text and its score value; the
+	 *         type, its score, the sentiment and its score for
+	 *         ClassifyServer.JOINT
+	 *
+	 * @throws Exception
+	 */
+	public String[] run(String classifier, String text) throws Exception {
+
+		return request(classifier + "\t" + text.replaceAll("[\r\n]", " "));
+
+	}
+
+	/**
+	 * Classifies the given text with the classifier the server has loaded
+	 * from the given model file
+	 *
+	 * @param modelFileName
+	 *            the model file name, as given to the classifier (@see
+	 *            TypeClassify, SentimentClassify)
+	 * @param text
+	 *            the content text to classify; its line breaks are sent as
+	 *            spaces
+	 *
+	 * @return the label assigned to the given text and its score value
+	 *
+	 * @throws Exception
+	 *             if the server has not loaded the model
+	 */
+	public String[] runModel(String modelFileName, String text) throws Exception {
+
+		// the server runs on the same host, the relative paths are resolved
+		// here
+		String path = new File(modelFileName).getCanonicalPath();
+
+		return request(ClassifyServer.MODEL + "\t" + path + "\t" + text.replaceAll("[\r\n]", " "));
+
+	}
+
+	/**
+	 * Checks that the server is answering
+	 *
+	 * @throws Exception
+	 */
+	public void ping() throws Exception {
+
+		request(ClassifyServer.PING);
+
+	}
+
+	/**
+	 * Shuts the server down; the requests of the other connections being
+	 * annotated are completed first
+	 *
+	 * @throws Exception
+	 */
+	public void shutdown() throws Exception {
+
+		request(ClassifyServer.SHUTDOWN);
+
+	}
+
+	/**
+	 * Closes the connection to the server
+	 */
+	public void close() {
+
+		try {
+			socket.close();
+		} catch (IOException ex) {
+			LOGGER.log(Level.WARNING, ex.getMessage());
+		}
+
+	}
+
+	/**
+	 * Sends the given request and reads its response
+	 *
+	 * @return the fields of the response after the status
+	 */
+	private String[] request(String request) throws Exception {
+
+		out.write(request);
+		out.write('\n');
+		out.flush();
+		String response = in.readLine();
+		if (response == null)
+			throw new IOException("The connection has been closed by the server!");
+
+		String[] fields = response.split("\t", -1);
+		if (fields[0].equals(ClassifyServer.ERROR))
+			throw new Exception(fields.length > 1 ? fields[1] : response);
+		if (!fields[0].equals(ClassifyServer.OK))
+			throw new IOException("Unexpected response: " + response);
+
+		return Arrays.copyOfRange(fields, 1, fields.length);
+
+	}
+
+	/**
+	 * Joins the given fields by tabs
+	 */
+	private static String join(String[] fields) {
+
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0)
+				result.append('\t');
+			result.append(fields[i]);
+		}
+
+		return result.toString();
+
+	}
+
+	/**
+	 * The client entry point
+	 *
+	 * Usage: java ClassifyClient [-c content] [-m model | -a classifier] [-p port] [-x]
+	 *
+	 * WHERE: content is the text to classify (the texts of the standard input
+	 * when it is not given), model is the model file the server has loaded
+	 * for the classifier to use, classifier is the classifier of the server to
+	 * use by name (type, sentiment or joint; type by default), port is the
+	 * port of the server (5757 by default) and '-x' shuts the server down
+	 *
+	 */
+	public static void main(String[] args) {
+
+		// create Options object
+		Options options = new Options();
+
+		// add data set option
+		Option content = new Option("c", "content", true, "content to classify (standard input otherwise)");
+		content.setRequired(false);
+		options.addOption(content);
+
+		// add model option
+		Option model = new Option("m", "model", true, "generated model loaded by the server");
+		model.setRequired(false);
+		options.addOption(model);
+
+		// add classifier option
+		Option classifier = new Option("a", "classifier", true,
+				"classifier to use: type (default), sentiment or joint");
+		classifier.setRequired(false);
+		options.addOption(classifier);
+
+		// add port option
+		Option port = new Option("p", "port", true, "port of the server (default " + ClassifyServer.DEFAULT_PORT + ")");
+		port.setRequired(false);
+		options.addOption(port);
+
+		// add shutdown option
+		Option shutdown = new Option("x", "shutdown", false, "shut the server down");
+		shutdown.setRequired(false);
+		options.addOption(shutdown);
+
+		// create the command line parser
+		CommandLineParser parser = new BasicParser();
+		// the formatter for parse exception
+		HelpFormatter formatter = new HelpFormatter();
+		StringWriter out = new StringWriter();
+		PrintWriter pw = new PrintWriter(out);
+
+		ClassifyClient client = null;
+		int status = 0;
+
+		try {
+
+			// parse the command line arguments
+			CommandLine cmd = parser.parse(options, args);
+			if (cmd.hasOption("model") && cmd.hasOption("classifier"))
+				throw new ParseException("The options model and classifier can't be used together");
+
+			// connect to the server
+			client = new ClassifyClient(cmd.hasOption("port") ? Integer.parseInt(cmd.getOptionValue("port"))
+					: ClassifyServer.DEFAULT_PORT);
+
+			if (cmd.hasOption("shutdown")) {
+				client.shutdown();
+				LOGGER.info("The server is shutting down");
+			} else {
+				String name = cmd.hasOption("classifier") ? cmd.getOptionValue("classifier") : ClassifyServer.TYPE;
+				String modelFileName = cmd.getOptionValue("model");
+				if (cmd.hasOption("content")) {
+					// run the classifier on the text
+					String text = cmd.getOptionValue("content");
+					String[] result = modelFileName != null ? client.runModel(modelFileName, text)
+							: client.run(name, text);
+					System.out.println(join(result));
+				} else {
+					// run the classifier on the texts of the standard input
+					BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in, "UTF8"));
+					PrintWriter stdout = new PrintWriter(new OutputStreamWriter(System.out, "UTF8"));
+					String text;
+					while ((text = stdin.readLine()) != null)
+						stdout.println(join(modelFileName != null ? client.runModel(modelFileName, text)
+								: client.run(name, text)));
+					stdout.flush();
+				}
+			}
+
+		} catch (ParseException e) {
+
+			formatter.printHelp(pw, 80, "", "ClassifyClient", options, formatter.getLeftPadding(),
+					formatter.getDescPadding(), "");
+			pw.flush();
+			LOGGER.log(Level.WARNING, out.toString());
+			status = 2;
+
+		} catch (Exception ex) {
+
+			LOGGER.log(Level.SEVERE, ex.getMessage());
+			status = 1;
+
+		} finally {
+			if (client != null)
+				client.close();
+		}
+
+		// the exit status tells the calling scripts if the texts have been
+		// classified
+		if (status != 0)
+			System.exit(status);
+
+	}
+
+}
@@ -0,0 +1,565 @@
+package eu.fbk.ict.fm.nlp.synaptic.classification;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import eu.fbk.ict.fm.nlp.synaptic.classification.sa.SentimentClassify;
+import eu.fbk.ict.fm.nlp.synaptic.classification.tc.TypeClassify;
+
+/**
+ * ClassifyServer loads the models of the type classifier and/or of the
+ * sentiment classifier once and annotates the texts sent by its clients (@see
+ * ClassifyClient) over a TCP connection to the local host, so that the
+ * programs calling the classifiers many times (e.g., from shell scripts) don't
+ * pay for starting a JVM and loading the tokenizer, the list of weighted
+ * n-grams and the models at each call. The server listens on the loopback
+ * address only and serves many connections at the same time, each one by its
+ * own thread.
+ *
+ * The protocol is line based (UTF-8): each request is a line made of the name
+ * of the classifier and of the text to annotate separated by a tab, and the
+ * server answers with a line made of 'OK' followed by the predicted labels and
+ * their scores, or 'ERROR' followed by a message, separated by tabs, e.g.,
+ *
+ * 		type	Der Kessel funktioniert schlecht		OK	label	score
+ * 		sentiment	Der Kessel funktioniert schlecht	OK	label	score
+ * 		joint	Der Kessel funktioniert schlecht	OK	type	score	sentiment	score
+ * 		model	modelFileName	Der Kessel funktioniert schlecht	OK	label	score
+ * 		ping					OK
+ * 		shutdown				OK
+ *
+ * The command 'model' annotates the text with the classifier loaded from the
+ * given model file (its canonical path), so that the clients can name the
+ * model as the classifiers do on the command line (@see ClassifyClient); a
+ * model file that has not been loaded by the server gets an error.
+ *
+ * The requests of a connection are answered in order; the connection is
+ * closed by the client when it has no more requests. The command 'shutdown'
+ * (or stopping the JVM, e.g., with Ctrl-C) shuts the server down gracefully:
+ * it stops accepting new connections, completes the requests being annotated
+ * and then closes the connections and releases the models.
+ *
+ * CLI:
+ *
+ * 		java ClassifyServer [-t typeModelFileName] [-s sentimentModelFileName] [-p port] [-w interval]
+ *
+ * API:
+ *
+ * 		ClassifyServer server = new ClassifyServer(typeModelFileName, sentimentModelFileName);
+ * 		server.start(port);
+ * 		...
+ * 		server.close(); // when the server is no longer needed
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class ClassifyServer {
+
+	// the logger
+	private static final Logger LOGGER = Logger.getLogger(ClassifyServer.class.getName());
+
+	// the default port of the server
+	public static final int DEFAULT_PORT = 5757;
+	// the names of the classifiers and the commands of the protocol
+	public static final String TYPE = "type";
+	public static final String SENTIMENT = "sentiment";
+	public static final String JOINT = "joint";
+	public static final String MODEL = "model";
+	public static final String PING = "ping";
+	public static final String SHUTDOWN = "shutdown";
+	// the status of the responses
+	public static final String OK = "OK";
+	public static final String ERROR = "ERROR";
+
+	// the max time in milliseconds for completing the requests being
+	// annotated when the server is shut down
+	private static final long SHUTDOWN_TIMEOUT = 10000;
+
+	// the classifiers; null for the models that have not been given
+	private TypeClassify typeClassify;
+	private SentimentClassify sentimentClassify;
+	private JointClassify jointClassify;
+	// the canonical paths of the model files of the classifiers; null for
+	// the models that have not been given
+	private String typeModelPath;
+	private String sentimentModelPath;
+	// the socket accepting the connections
+	private ServerSocket serverSocket;
+	// the threads serving the connections
+	private ExecutorService connections;
+	// the sockets of the open connections
+	private final Set<Socket> sockets = new HashSet<Socket>();
+	// true when the server has been shut down
+	private volatile boolean closed;
+	// released when the server has been shut down
+	private final CountDownLatch terminated = new CountDownLatch(1);
+
+	/**
+	 * Class constructor; it loads the given models (@see TypeClassify,
+	 * SentimentClassify); the texts can be annotated with both only when both
+	 * the models are given
+	 *
+	 * @param typeModelFileName
+	 *            the model of the type classifier; null for no type model
+	 * @param sentimentModelFileName
+	 *            the model of the sentiment classifier; null for no sentiment
+	 *            model
+	 *
+	 * @throws Exception
+	 */
+	public ClassifyServer(String typeModelFileName, String sentimentModelFileName) throws Exception {
+
+		if (typeModelFileName == null && sentimentModelFileName == null)
+			throw new IllegalArgumentException("At least one model is needed!");
+
+		if (typeModelFileName != null)
+			typeModelPath = new File(typeModelFileName).getCanonicalPath();
+		if (sentimentModelFileName != null)
+			sentimentModelPath = new File(sentimentModelFileName).getCanonicalPath();
+
+		if (typeModelFileName != null && sentimentModelFileName != null) {
+			jointClassify = new JointClassify(typeModelFileName, sentimentModelFileName);
+			typeClassify = jointClassify.getTypeClassify();
+			sentimentClassify = jointClassify.getSentimentClassify();
+		} else if (typeModelFileName != null) {
+			typeClassify = new TypeClassify(typeModelFileName);
+		} else {
+			sentimentClassify = new SentimentClassify(sentimentModelFileName);
+		}
+
+	}
+
+	/**
+	 * Starts accepting the connections on the given port of the loopback
+	 * address
+	 *
+	 * @param port
+	 *            the port; 0 for any free port (@see getPort())
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void start(int port) throws IOException {
+
+		if (closed)
+			throw new IllegalStateException("The server has been shut down!");
+		if (serverSocket != null)
+			throw new IllegalStateException("The server has already been started!");
+
+		serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		final AtomicInteger counter = new AtomicInteger();
+		connections = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "synaptic-connection-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		Thread acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				accept();
+			}
+		}, "synaptic-server");
+		acceptor.start();
+
+	}
+
+	/**
+	 * Gets the port the server is listening on
+	 *
+	 * @return the port; -1 if the server has not been started
+	 */
+	public synchronized int getPort() {
+
+		return serverSocket == null ? -1 : serverSocket.getLocalPort();
+
+	}
+
+	/**
+	 * Gets the type classifier
+	 *
+	 * @return the type classifier; null if there is no type model
+	 */
+	public TypeClassify getTypeClassify() {
+
+		return typeClassify;
+
+	}
+
+	/**
+	 * Gets the sentiment classifier
+	 *
+	 * @return the sentiment classifier; null if there is no sentiment model
+	 */
+	public SentimentClassify getSentimentClassify() {
+
+		return sentimentClassify;
+
+	}
+
+	/**
+	 * Answers the given request of the protocol
+	 *
+	 * @param request
+	 *            the request, i.e., the name of the classifier (or 'model'
+	 *            and the model file name) and the text separated by a tab, or
+	 *            a command
+	 * @return the response, without the line terminator
+	 */
+	public String process(String request) {
+
+		try {
+
+			int separator = request.indexOf('\t');
+			String command = (separator == -1 ? request : request.substring(0, separator)).trim();
+			String text = separator == -1 ? "" : request.substring(separator + 1);
+
+			// the classifier of the given model file
+			if (command.equalsIgnoreCase(MODEL)) {
+				separator = text.indexOf('\t');
+				if (separator == -1)
+					return ERROR + "\tMissing model file name!";
+				String modelFileName = text.substring(0, separator);
+				String path = new File(modelFileName).getCanonicalPath();
+				text = text.substring(separator + 1);
+				if (path.equals(typeModelPath))
+					command = TYPE;
+				else if (path.equals(sentimentModelPath))
+					command = SENTIMENT;
+				else
+					return ERROR + "\tThe model '" + modelFileName + "' has not been loaded!";
+			}
+
+			String[] result;
+			if (command.equalsIgnoreCase(PING) || command.equalsIgnoreCase(SHUTDOWN))
+				return OK;
+			else if (command.equalsIgnoreCase(TYPE) && typeClassify != null)
+				result = typeClassify.run(text);
+			else if (command.equalsIgnoreCase(SENTIMENT) && sentimentClassify != null)
+				result = sentimentClassify.run(text);
+			else if (command.equalsIgnoreCase(JOINT) && jointClassify != null)
+				result = jointClassify.run(text);
+			else if (command.equalsIgnoreCase(TYPE) || command.equalsIgnoreCase(SENTIMENT)
+					|| command.equalsIgnoreCase(JOINT))
+				return ERROR + "\tThe model of the classifier '" + command + "' has not been loaded!";
+			else
+				return ERROR + "\tUnknown command '" + command + "'!";
+
+			StringBuilder response = new StringBuilder(OK);
+			for (String field : result)
+				response.append('\t').append(field);
+
+			return response.toString();
+
+		} catch (Exception ex) {
+
+			LOGGER.log(Level.WARNING, "The request can't be processed", ex);
+			return ERROR + "\t" + String.valueOf(ex.getMessage()).replaceAll("[\t\r\n]+", " ");
+
+		}
+
+	}
+
+	/**
+	 * Waits for the server to be shut down
+	 *
+	 * @throws InterruptedException
+	 */
+	public void await() throws InterruptedException {
+
+		terminated.await();
+
+	}
+
+	/**
+	 * Shuts the server down: it stops accepting new connections, waits for
+	 * the requests being annotated to be completed and then closes the
+	 * connections and releases the models; the server can't be used anymore
+	 * after calling this method.
+	 */
+	public synchronized void close() {
+
+		if (closed)
+			return;
+		closed = true;
+
+		try {
+
+			// stop accepting new connections
+			if (serverSocket != null) {
+				try {
+					serverSocket.close();
+				} catch (IOException ex) {
+					LOGGER.log(Level.WARNING, ex.getMessage());
+				}
+			}
+
+			if (connections != null) {
+				// the connections waiting for their next request are ended,
+				// the others end after answering their current request
+				connections.shutdown();
+				for (Socket socket : getSockets()) {
+					try {
+						socket.shutdownInput();
+					} catch (IOException ex) {
+						// already closed by the client
+					}
+				}
+				try {
+					if (!connections.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS))
+						LOGGER.warning("Some requests have not been completed before the shutdown");
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				for (Socket socket : getSockets())
+					closeQuietly(socket);
+				connections.shutdownNow();
+			}
+
+			// release the models
+			if (jointClassify != null) {
+				jointClassify.close();
+			} else {
+				if (typeClassify != null)
+					typeClassify.close();
+				if (sentimentClassify != null)
+					sentimentClassify.close();
+			}
+
+		} finally {
+			terminated.countDown();
+		}
+
+	}
+
+	/**
+	 * Accepts the connections until the server is shut down
+	 */
+	private void accept() {
+
+		while (!closed) {
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException ex) {
+				if (!closed)
+					LOGGER.log(Level.SEVERE, ex.getMessage());
+				return;
+			}
+			synchronized (sockets) {
+				sockets.add(socket);
+			}
+			try {
+				connections.execute(new Runnable() {
+					@Override
+					public void run() {
+						serve(socket);
+					}
+				});
+			} catch (RejectedExecutionException ex) {
+				// the server is being shut down
+				synchronized (sockets) {
+					sockets.remove(socket);
+				}
+				closeQuietly(socket);
+			}
+		}
+
+	}
+
+	/**
+	 * Answers the requests of the given connection until it is closed by the
+	 * client or the server is shut down
+	 */
+	private void serve(Socket socket) {
+
+		boolean shutdown = false;
+
+		try {
+
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF8"));
+			Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), "UTF8"));
+			String request;
+			while (!closed && (request = in.readLine()) != null) {
+				out.write(process(request));
+				out.write('\n');
+				out.flush();
+				if (request.trim().equalsIgnoreCase(SHUTDOWN)) {
+					shutdown = true;
+					break;
+				}
+			}
+
+		} catch (IOException ex) {
+			if (!closed)
+				LOGGER.log(Level.WARNING, "The connection has been interrupted: " + ex.getMessage());
+		} finally {
+			synchronized (sockets) {
+				sockets.remove(socket);
+			}
+			closeQuietly(socket);
+		}
+
+		// the shutdown waits for this connection to be completed, then it is
+		// done by another thread
+		if (shutdown) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					close();
+				}
+			}, "synaptic-shutdown").start();
+		}
+
+	}
+
+	/**
+	 * Gets a copy of the sockets of the open connections
+	 */
+	private List<Socket> getSockets() {
+
+		synchronized (sockets) {
+			return new ArrayList<Socket>(sockets);
+		}
+
+	}
+
+	/**
+	 * Closes the given socket ignoring the errors
+	 */
+	private static void closeQuietly(Socket socket) {
+
+		try {
+			socket.close();
+		} catch (IOException ex) {
+			// nothing to do
+		}
+
+	}
+
+	/**
+	 * The server entry point
+	 *
+	 * Usage: java ClassifyServer [-t typeModel] [-s sentimentModel] [-p port]
+	 * [-w interval]
+	 *
+	 * WHERE: typeModel and sentimentModel are the models generated during the
+	 * training phases of the type classifier and of the sentiment classifier
+	 * (at least one of them), port is the port of the loopback address to
+	 * listen on (5757 by default) and interval is the number of milliseconds
+	 * between the checks of the model files for reloading them when they
+	 * change (@see AbstractClassify.watch(long))
+	 *
+	 */
+	public static void main(String[] args) {
+
+		// create Options object
+		Options options = new Options();
+
+		// add model set options
+		Option typeModel = new Option("t", "type-model", true, "generated type model");
+		typeModel.setRequired(false);
+		options.addOption(typeModel);
+		Option sentimentModel = new Option("s", "sentiment-model", true, "generated sentiment model");
+		sentimentModel.setRequired(false);
+		options.addOption(sentimentModel);
+
+		// add port option
+		Option port = new Option("p", "port", true, "port to listen on (default " + DEFAULT_PORT + ")");
+		port.setRequired(false);
+		options.addOption(port);
+
+		// add watch option
+		Option watch = new Option("w", "watch", true, "milliseconds between the checks for changed models");
+		watch.setRequired(false);
+		options.addOption(watch);
+
+		// create the command line parser
+		CommandLineParser parser = new BasicParser();
+		// the formatter for parse exception
+		HelpFormatter formatter = new HelpFormatter();
+		StringWriter out = new StringWriter();
+		PrintWriter pw = new PrintWriter(out);
+
+		try {
+
+			// parse the command line arguments
+			CommandLine cmd = parser.parse(options, args);
+			if (!cmd.hasOption("type-model") && !cmd.hasOption("sentiment-model"))
+				throw new ParseException("Missing model");
+
+			// load the models
+			final ClassifyServer server = new ClassifyServer(cmd.getOptionValue("type-model"),
+					cmd.getOptionValue("sentiment-model"));
+			// reload the models when they change
+			if (cmd.hasOption("watch")) {
+				long interval = Long.parseLong(cmd.getOptionValue("watch"));
+				if (server.getTypeClassify() != null)
+					server.getTypeClassify().watch(interval);
+				if (server.getSentimentClassify() != null)
+					server.getSentimentClassify().watch(interval);
+			}
+			// shut the server down gracefully when the JVM is stopped
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					server.close();
+				}
+			}, "synaptic-shutdown-hook"));
+
+			server.start(cmd.hasOption("port") ? Integer.parseInt(cmd.getOptionValue("port")) : DEFAULT_PORT);
+			LOGGER.info("Listening on port " + server.getPort());
+			server.await();
+			LOGGER.info("The server has been shut down");
+
+		} catch (ParseException e) {
+
+			formatter.printHelp(pw, 80, "", "ClassifyServer", options, formatter.getLeftPadding(),
+					formatter.getDescPadding(), "");
+			pw.flush();
+			LOGGER.log(Level.WARNING, out.toString());
+
+		} catch (Exception ex) {
+
+			LOGGER.log(Level.SEVERE, ex.getMessage());
+
+		}
+
+	}
+
+}
@@ -22,4 +22,22 @@ public interface IClassify {
 	 */
 	double[] classify(String[] example);
 
+	/**
+	 * Classifies a new given example consisting of a vector of features
+	 * extracted by the FeatureExtractorClassify component, given as the
+	 * parallel arrays of the IDs of the features and of their values; no
+	 * string is parsed.
+	 * 
+	 * @param indexes
+	 *            the IDs of the features, in increasing order
+	 * @param values
+	 *            the values of the features
+	 * @param length
+	 *            the number of features
+	 * 
+	 * @return an array where the first element is the assigned label and the
+	 *         second element is the score assigned to that label.
+	 */
+	double[] classify(int[] indexes, double[] values, int length);
+
 }
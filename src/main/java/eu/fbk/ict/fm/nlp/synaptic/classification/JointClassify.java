@@ -0,0 +1,320 @@
+package eu.fbk.ict.fm.nlp.synaptic.classification;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import eu.fbk.ict.fm.nlp.synaptic.analysis.FeaturesConfiguration;
+import eu.fbk.ict.fm.nlp.synaptic.analysis.NGramKey;
+import eu.fbk.ict.fm.nlp.synaptic.analysis.Preprocessor;
+import eu.fbk.ict.fm.nlp.synaptic.classification.sa.SentimentClassify;
+import eu.fbk.ict.fm.nlp.synaptic.classification.tc.TypeClassify;
+import opennlp.tools.util.Span;
+
+/**
+ * JointClassify annotates an example in input with both its 'type' category
+ * and its 'sentiment' in a single pass over its text: the text is tokenized
+ * once and its tokens are normalized to lower case once, then the pipelines of
+ * the 2 classifiers differ only in the removal of the stop words (done by the
+ * type classifier only) and in the features looked up in their indexes. The
+ * labels are the same labels of TypeClassify and SentimentClassify run on the
+ * same text. The classifier can be used from Command Line Interface or its API
+ * by calling the method 'run', e.g.,
+ *
+ * CLI:
+ *
+ * 		java JointClassify -c content -t typeModelFileName -s sentimentModelFileName
+ *
+ * API:
+ *
+ * 		JointClassify jointClassify = new JointClassify(typeModelFileName, sentimentModelFileName);
+ * 		String[] annotation = jointClassify.run(content);
+ * 		String type = annotation[0]; // the predicted type
+ * 		String typeScore = annotation[1]; // and its score
+ * 		String sentiment = annotation[2]; // the predicted sentiment
+ * 		String sentimentScore = annotation[3]; // and its score
+ * 		...
+ * 		jointClassify.close(); // when the classifier is no longer needed
+ *
+ * The models can be reloaded and the caches of the predicted labels can be
+ * enabled through the type and sentiment classifiers (@see
+ * getTypeClassify(), getSentimentClassify()), e.g.,
+ * jointClassify.getTypeClassify().watch(10000).
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class JointClassify {
+
+	// the logger
+	private static final Logger LOGGER = Logger.getLogger(JointClassify.class.getName());
+
+	// the settings of the keys normalizing the texts; their n-grams are not
+	// used
+	private static final FeaturesConfiguration TOKENS_CONFIGURATION = new FeaturesConfiguration();
+
+	// the type classifier and the sentiment classifier holding the models
+	private TypeClassify typeClassify;
+	private SentimentClassify sentimentClassify;
+	// the preprocessor of the type classifier, used for both the
+	// classifiers
+	private Preprocessor preprocessor;
+	// the key normalizing the texts of each thread using the classifier,
+	// reused for all the texts it annotates
+	private final ThreadLocal<NGramKey> tokens = new ThreadLocal<NGramKey>() {
+		@Override
+		protected NGramKey initialValue() {
+			return new NGramKey();
+		}
+	};
+	// the runner of the batches of texts
+	private final BatchRunner batchRunner = new BatchRunner();
+
+	/**
+	 * Class constructor; it loads the models generated during the training
+	 * phases of the type classifier and of the sentiment classifier with the
+	 * other files produced with them (@see TypeClassify, SentimentClassify)
+	 *
+	 * @param typeModelFileName
+	 *            the model of the type classifier
+	 * @param sentimentModelFileName
+	 *            the model of the sentiment classifier
+	 */
+	public JointClassify(String typeModelFileName, String sentimentModelFileName) throws Exception {
+
+		typeClassify = new TypeClassify(typeModelFileName);
+		sentimentClassify = new SentimentClassify(sentimentModelFileName);
+		// the texts are pre-processed once for both the classifiers
+		preprocessor = typeClassify.getPreprocessor();
+
+	}
+
+	/**
+	 * Classifies the given text; it returns the predicted type and its score
+	 * and the predicted sentiment and its score
+	 *
+	 * @param text
+	 *            the content text to classify
+	 *
+	 * @return the type assigned to the given text, its score value, the
+	 *         sentiment assigned to the text and its score value
+	 *
+	 * @throws Exception
+	 */
+	public String[] run(String text) throws Exception {
+
+		// the snapshots of the models used for the whole text
+		ModelSnapshot typeSnapshot = typeClassify.getSnapshot();
+		ModelSnapshot sentimentSnapshot = sentimentClassify.getSnapshot();
+
+		// pre-process the text once; the tokens are given as spans of the text
+		Span[] preprocessedContent = preprocessor.processPos(text);
+		// and normalize its tokens once, keeping the stop words
+		NGramKey key = tokens.get();
+		key.reset(text, preprocessedContent, null, TOKENS_CONFIGURATION);
+
+		// the hash code of the normalized text for the caches of the
+		// predicted labels, when they are enabled
+		long hash = PredictionCache.hash(text, preprocessedContent);
+
+		String[] result = new String[4];
+
+		// the type, without the stop words
+		double prediction = typeClassify.predict(typeSnapshot, key, hash);
+		result[0] = typeSnapshot.getFeatureExtractor().getLabel(prediction);
+		result[1] = String.valueOf(typeClassify.getScore());
+
+		// the sentiment
+		prediction = sentimentClassify.predict(sentimentSnapshot, key, hash);
+		result[2] = sentimentSnapshot.getFeatureExtractor().getLabel(prediction);
+		result[3] = String.valueOf(sentimentClassify.getScore());
+
+		return result;
+
+	}
+
+	/**
+	 * Classifies the given batch of texts; it returns the predicted type and
+	 * sentiment with their scores of each text (@see run(String)), in the
+	 * same order of the texts. The texts are classified in parallel when the
+	 * parallelism is greater than 1, each thread with its own tokenizer,
+	 * n-gram keys and features buffers.
+	 *
+	 * @param texts
+	 *            the texts to classify
+	 *
+	 * @return the types and the sentiments assigned to the given texts and
+	 *         their score values
+	 *
+	 * @throws Exception
+	 */
+	public String[][] run(String[] texts) throws Exception {
+
+		return batchRunner.run(texts, new BatchRunner.Task() {
+			@Override
+			public String[] run(String text) throws Exception {
+				return JointClassify.this.run(text);
+			}
+		});
+
+	}
+
+	/**
+	 * Classifies the given batch of texts; it returns the predicted type and
+	 * sentiment with their scores of each text, in the same order of the
+	 * texts (@see run(String[]))
+	 *
+	 * @param texts
+	 *            the texts to classify
+	 *
+	 * @return the types and the sentiments assigned to the given texts and
+	 *         their score values
+	 *
+	 * @throws Exception
+	 */
+	public List<String[]> run(List<String> texts) throws Exception {
+
+		return Arrays.asList(run(texts.toArray(new String[texts.size()])));
+
+	}
+
+	/**
+	 * Sets the number of threads used for classifying the batches of texts; 1
+	 * (the default) classifies them sequentially in the calling thread
+	 *
+	 * @param parallelism
+	 *            the number of threads
+	 */
+	public void setParallelism(int parallelism) {
+
+		batchRunner.setParallelism(parallelism);
+
+	}
+
+	/**
+	 * Gets the number of threads used for classifying the batches of texts
+	 *
+	 * @return the number of threads
+	 */
+	public int getParallelism() {
+
+		return batchRunner.getParallelism();
+
+	}
+
+	/**
+	 * Gets the type classifier holding the type model
+	 *
+	 * @return the type classifier
+	 */
+	public TypeClassify getTypeClassify() {
+
+		return typeClassify;
+
+	}
+
+	/**
+	 * Gets the sentiment classifier holding the sentiment model
+	 *
+	 * @return the sentiment classifier
+	 */
+	public SentimentClassify getSentimentClassify() {
+
+		return sentimentClassify;
+
+	}
+
+	/**
+	 * Releases the resources shared with the other classifiers of the JVM and
+	 * stops the pool of threads; the classifier can't be used anymore after
+	 * calling this method.
+	 */
+	public void close() {
+
+		batchRunner.close();
+		// the preprocessor is closed by the type classifier
+		typeClassify.close();
+		sentimentClassify.close();
+
+	}
+
+	/**
+	 * The classifier entry point
+	 *
+	 * Usage: java JointClassify -c content -t typeModel -s sentimentModel
+	 *
+	 * WHERE: content is the text to classify, typeModel and sentimentModel
+	 * are the models generated during the training phases of the type
+	 * classifier and of the sentiment classifier
+	 *
+	 */
+	public static void main(String[] args) {
+
+		// create Options object
+		Options options = new Options();
+
+		// add data set option
+		Option content = new Option("c", "content", true, "content to classify");
+		content.setRequired(true);
+		options.addOption(content);
+
+		// add model set options
+		Option typeModel = new Option("t", "type-model", true, "generated type model");
+		typeModel.setRequired(true);
+		options.addOption(typeModel);
+		Option sentimentModel = new Option("s", "sentiment-model", true, "generated sentiment model");
+		sentimentModel.setRequired(true);
+		options.addOption(sentimentModel);
+
+		// create the command line parser
+		CommandLineParser parser = new BasicParser();
+		// the formatter for parse exception
+		HelpFormatter formatter = new HelpFormatter();
+		StringWriter out = new StringWriter();
+		PrintWriter pw = new PrintWriter(out);
+
+		try {
+
+			// parse the command line arguments
+			CommandLine cmd = parser.parse(options, args);
+
+			// the text to classify
+			String text = cmd.getOptionValue("content");
+			// create an instance of the classifier
+			JointClassify jointClassify = new JointClassify(cmd.getOptionValue("type-model"),
+					cmd.getOptionValue("sentiment-model"));
+			// run the classifier
+			String[] result = jointClassify.run(text);
+
+			LOGGER.info("predicted type:" + result[0] + " score:" + result[1] + "\tpredicted sentiment:"
+					+ result[2] + " score:" + result[3]);
+
+		} catch (ParseException e) {
+
+			formatter.printHelp(pw, 80, "", "JointClassify", options, formatter.getLeftPadding(),
+					formatter.getDescPadding(), "");
+			pw.flush();
+			LOGGER.log(Level.WARNING, out.toString());
+
+		} catch (Exception ex) {
+
+			LOGGER.log(Level.SEVERE, ex.getMessage());
+
+		}
+
+	}
+
+}
@@ -0,0 +1,692 @@
+package eu.fbk.ict.fm.nlp.synaptic.classification;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import libsvm.svm_model;
+import libsvm.svm_node;
+import libsvm.svm_parameter;
+
+/**
+ * LinearPredictor predicts the labels of the examples with a model trained
+ * with the linear kernel (@see AbstractLearn) without going through its
+ * support vectors. libsvm learns a classifier for each pair of labels (one
+ * versus one) and its decision value is the sum of the dot products between
+ * the example and the support vectors of the 2 labels, weighted by their
+ * coefficients, minus the bias (rho) of the pair. With the linear kernel this
+ * sum is the dot product between the example and one weight vector, i.e., the
+ * support vectors summed by their coefficients, that is computed once when
+ * the model is loaded:
+ *
+ * 		w(i,j) = sum of coef(s) * s for each support vector s of the labels i and j
+ * 		decision value(i,j) = w(i,j) * x - rho(i,j)
+ *
+ * Then predicting a label costs the number of features of the example times
+ * the number of pairs of labels instead of the number of support vectors
+ * times the number of features. The label is voted by the pairs as done by
+ * svm_predict: a positive decision value votes for the first label of the
+ * pair, otherwise for the second one, and the first label with the most
+ * votes wins.
+ *
+ * The weights of the pairs are kept for the features occurring in the support
+ * vectors only, one row of weights for each of them, e.g.,
+ *
+ * 		LinearPredictor predictor = new LinearPredictor(model);
+ * 		if (predictor.isCompiled())
+ * 			label = predictor.predict(indexes, values, length);
+ *
+ * The weights can be quantized for taking less memory (@see quantize(int)):
+ * the weights of each pair are divided by their max absolute value (the scale
+ * of the pair) and kept as 16-bit floats (FLOAT16) or as 8-bit integers
+ * between -127 and 127 (INT8), i.e., 1/4 or 1/8 of the memory of the double
+ * values; the labels predicted with the quantized weights can differ from the
+ * ones of svm_predict for the examples close to the boundaries between the
+ * labels. The quantized weights are saved into a binary file next to the
+ * model (modelFileName.weights) and the classifiers read them instead of the
+ * model (@see ModelSnapshot); they are used only with the model file they
+ * come from, recognized by the CRC32 checksum of its bytes (@see
+ * checksum(File)):
+ *
+ * 		int		magic number
+ * 		int		version
+ * 		int		format of the weights (DOUBLE, FLOAT16, INT8)
+ * 		long		CRC32 checksum of the model file
+ * 		int		number of labels (k)
+ * 		int		number of rows (r)
+ * 		int[k]		the IDs of the labels
+ * 		double[k(k-1)/2]	the biases of the pairs of labels
+ * 		float[k(k-1)/2]	the scales of the pairs of labels
+ * 		int[r]		the ID of the feature of each row
+ * 		r * k(k-1)/2 weights	8-byte doubles, 2-byte floats or 1-byte integers
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class LinearPredictor {
+
+	// the extension of the file of the weights
+	public static final String FILE_EXTENSION = ".weights";
+
+	// the formats of the weights
+	public static final int DOUBLE = 0;
+	public static final int FLOAT16 = 1;
+	public static final int INT8 = 2;
+
+	// the first bytes of the file of the weights
+	private static final int MAGIC = 0x5359_4C57; // 'SYLW'
+	// the version of the format of the file
+	private static final int VERSION = 2;
+	// the max absolute value of the weights in the INT8 format
+	private static final int INT8_MAX = 127;
+
+	// the model the weights come from; null for the weights read from their
+	// file
+	private final svm_model model;
+	// the number of labels, their IDs and the number of pairs of labels
+	private final int nrClass;
+	private final int[] labels;
+	private final int pairs;
+	// the format of the weights
+	private int format = DOUBLE;
+	// the row of the weights of each feature; -1 for the features that are
+	// not in the support vectors
+	private int[] rows;
+	// the weights of the pairs of labels for each row, i.e.,
+	// weights[row * pairs + pair], in the format of the predictor
+	private double[] weights;
+	private short[] halfWeights;
+	private byte[] byteWeights;
+	// the scales of the quantized weights of the pairs of labels
+	private float[] scales;
+	// the biases of the pairs of labels
+	private double[] biases;
+
+	// the decision values and the votes of each thread using the predictor,
+	// reused for all the examples it annotates
+	private final ThreadLocal<Votes> votes = new ThreadLocal<Votes>() {
+		@Override
+		protected Votes initialValue() {
+			return new Votes(nrClass, pairs);
+		}
+	};
+
+	/**
+	 * Class constructor; it compiles the weight vectors of the given model
+	 * when it has been trained with the linear kernel for classification
+	 *
+	 * @param model
+	 *            the model
+	 */
+	public LinearPredictor(svm_model model) {
+
+		this.model = model;
+		this.nrClass = model.nr_class;
+		this.labels = model.label;
+		this.pairs = nrClass * (nrClass - 1) / 2;
+
+		if (isLinear(model))
+			compile();
+
+	}
+
+	/**
+	 * Class constructor for the weights read from their file or quantized
+	 */
+	private LinearPredictor(int nrClass, int[] labels) {
+
+		this.model = null;
+		this.nrClass = nrClass;
+		this.labels = labels;
+		this.pairs = nrClass * (nrClass - 1) / 2;
+
+	}
+
+	/**
+	 * Checks if the given model can be compiled into weight vectors, i.e., it
+	 * is a classification model trained with the linear kernel
+	 *
+	 * @param model
+	 *            the model
+	 * @return true if the model can be compiled
+	 */
+	public static boolean isLinear(svm_model model) {
+
+		return model.param.kernel_type == svm_parameter.LINEAR
+				&& (model.param.svm_type == svm_parameter.C_SVC || model.param.svm_type == svm_parameter.NU_SVC);
+
+	}
+
+	/**
+	 * Checks if the weight vectors have been compiled; otherwise the model
+	 * has to be used by svm_predict
+	 *
+	 * @return true if the weight vectors have been compiled
+	 */
+	public boolean isCompiled() {
+
+		return rows != null;
+
+	}
+
+	/**
+	 * Gets the model the weight vectors come from
+	 *
+	 * @return the model; null for the weights read from their file
+	 */
+	public svm_model getModel() {
+
+		return model;
+
+	}
+
+	/**
+	 * Gets the format of the weights
+	 *
+	 * @return DOUBLE, FLOAT16 or INT8
+	 */
+	public int getFormat() {
+
+		return format;
+
+	}
+
+	/**
+	 * Gets the number of bytes taken by the weights, the biases and the rows
+	 * of the features
+	 *
+	 * @return the number of bytes
+	 */
+	public long getMemorySize() {
+
+		long size = 4L * rows.length + 8L * biases.length;
+		if (weights != null)
+			size += 8L * weights.length;
+		if (halfWeights != null)
+			size += 2L * halfWeights.length;
+		if (byteWeights != null)
+			size += byteWeights.length;
+		if (scales != null)
+			size += 4L * scales.length;
+
+		return size;
+
+	}
+
+	/**
+	 * Predicts the label of the example in input given as the parallel arrays
+	 * of the IDs of its features and of their values
+	 *
+	 * @param indexes
+	 *            the IDs of the features
+	 * @param values
+	 *            the values of the features
+	 * @param length
+	 *            the number of features
+	 * @return the ID of the predicted label
+	 */
+	public double predict(int[] indexes, double[] values, int length) {
+
+		Votes votes = this.votes.get();
+		double[] decisionValues = votes.decisionValues;
+		int[] vote = votes.vote;
+
+		for (int p = 0; p < pairs; p++)
+			decisionValues[p] = 0;
+		for (int i = 0; i < length; i++) {
+			int index = indexes[i];
+			if (index < 0 || index >= rows.length || rows[index] == -1)
+				continue;
+			double value = values[i];
+			int offset = rows[index] * pairs;
+			switch (format) {
+			case FLOAT16:
+				for (int p = 0; p < pairs; p++)
+					decisionValues[p] += value * Half.TO_FLOAT[halfWeights[offset + p] & 0xffff];
+				break;
+			case INT8:
+				for (int p = 0; p < pairs; p++)
+					decisionValues[p] += value * byteWeights[offset + p];
+				break;
+			default:
+				for (int p = 0; p < pairs; p++)
+					decisionValues[p] += value * weights[offset + p];
+			}
+		}
+		if (scales != null)
+			for (int p = 0; p < pairs; p++)
+				decisionValues[p] *= scales[p];
+
+		// the same votes of svm_predict
+		for (int c = 0; c < vote.length; c++)
+			vote[c] = 0;
+		int p = 0;
+		for (int i = 0; i < nrClass; i++) {
+			for (int j = i + 1; j < nrClass; j++) {
+				if (decisionValues[p] - biases[p] > 0)
+					++vote[i];
+				else
+					++vote[j];
+				p++;
+			}
+		}
+		int winner = 0;
+		for (int c = 1; c < vote.length; c++)
+			if (vote[c] > vote[winner])
+				winner = c;
+
+		return labels[winner];
+
+	}
+
+	/**
+	 * Quantizes the weights of the predictor into the given format; the
+	 * weights of each pair of labels are divided by their max absolute value
+	 *
+	 * @param format
+	 *            FLOAT16 or INT8
+	 * @return the predictor with the quantized weights
+	 */
+	public LinearPredictor quantize(int format) {
+
+		if (format != FLOAT16 && format != INT8)
+			throw new IllegalArgumentException("Unsupported format of the weights: " + format + "!");
+		if (this.format != DOUBLE || !isCompiled())
+			throw new IllegalStateException("Only the compiled double weights can be quantized!");
+
+		LinearPredictor result = new LinearPredictor(nrClass, labels);
+		result.format = format;
+		result.rows = rows;
+		result.biases = biases;
+		result.scales = new float[pairs];
+		for (int i = 0; i < weights.length; i++) {
+			int p = i % pairs;
+			result.scales[p] = Math.max(result.scales[p], (float) Math.abs(weights[i]));
+		}
+		for (int p = 0; p < pairs; p++) {
+			if (result.scales[p] == 0)
+				result.scales[p] = 1;
+			if (format == INT8)
+				result.scales[p] /= INT8_MAX;
+		}
+		if (format == FLOAT16) {
+			result.halfWeights = new short[weights.length];
+			for (int i = 0; i < weights.length; i++)
+				result.halfWeights[i] = Half.toHalf((float) (weights[i] / result.scales[i % pairs]));
+		} else {
+			result.byteWeights = new byte[weights.length];
+			for (int i = 0; i < weights.length; i++) {
+				long q = Math.round(weights[i] / result.scales[i % pairs]);
+				result.byteWeights[i] = (byte) Math.max(-INT8_MAX, Math.min(INT8_MAX, q));
+			}
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * Saves the weights into the given file
+	 *
+	 * @param file
+	 *            the file of the weights (e.g., modelFileName.weights)
+	 * @param modelChecksum
+	 *            the checksum of the model file the weights come from, for
+	 *            recognizing the weights of an old model (@see checksum(File))
+	 *
+	 * @throws Exception
+	 */
+	public void save(File file, long modelChecksum) throws Exception {
+
+		// the features of the rows
+		int nRows = 0;
+		for (int index = 0; index < rows.length; index++)
+			nRows = Math.max(nRows, rows[index] + 1);
+		int[] features = new int[nRows];
+		for (int index = 0; index < rows.length; index++)
+			if (rows[index] != -1)
+				features[rows[index]] = index;
+
+		File tmpFile = new File(file.getPath() + ".tmp");
+		DataOutputStream out = null;
+
+		try {
+
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(format);
+			out.writeLong(modelChecksum);
+			out.writeInt(nrClass);
+			out.writeInt(nRows);
+			for (int c = 0; c < nrClass; c++)
+				out.writeInt(labels[c]);
+			for (int p = 0; p < pairs; p++)
+				out.writeDouble(biases[p]);
+			for (int p = 0; p < pairs; p++)
+				out.writeFloat(scales == null ? 1 : scales[p]);
+			for (int r = 0; r < nRows; r++)
+				out.writeInt(features[r]);
+			int size = nRows * pairs;
+			for (int i = 0; i < size; i++) {
+				if (format == FLOAT16)
+					out.writeShort(halfWeights[i]);
+				else if (format == INT8)
+					out.writeByte(byteWeights[i]);
+				else
+					out.writeDouble(weights[i]);
+			}
+			out.close();
+			out = null;
+
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+
+		} finally {
+			if (out != null)
+				out.close();
+			tmpFile.delete();
+		}
+
+	}
+
+	/**
+	 * Loads the weights from the given file
+	 *
+	 * @param file
+	 *            the file of the weights
+	 * @param modelChecksum
+	 *            the checksum of the current model file (@see checksum(File))
+	 * @return the predictor; null if the weights come from another model
+	 *         file (e.g., the model has been trained again) or they have been
+	 *         saved by a previous version
+	 *
+	 * @throws Exception
+	 */
+	public static LinearPredictor load(File file, long modelChecksum) throws Exception {
+
+		RandomAccessFile in = null;
+
+		try {
+
+			in = new RandomAccessFile(file, "r");
+			ByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+			if (buffer.getInt() != MAGIC)
+				throw new Exception("The file " + file + " doesn't contain the weights of a model!");
+			int version = buffer.getInt();
+			// the weights of the previous versions can't be matched with
+			// their model file
+			if (version < VERSION)
+				return null;
+			if (version != VERSION)
+				throw new Exception("Unsupported version of the weights: " + version + "!");
+			int format = buffer.getInt();
+			if (buffer.getLong() != modelChecksum)
+				return null;
+			int nrClass = buffer.getInt();
+			int nRows = buffer.getInt();
+			int[] labels = new int[nrClass];
+			buffer.asIntBuffer().get(labels);
+			buffer.position(buffer.position() + 4 * nrClass);
+
+			LinearPredictor result = new LinearPredictor(nrClass, labels);
+			int pairs = result.pairs;
+			result.format = format;
+			result.biases = new double[pairs];
+			buffer.asDoubleBuffer().get(result.biases);
+			buffer.position(buffer.position() + 8 * pairs);
+			float[] scales = new float[pairs];
+			buffer.asFloatBuffer().get(scales);
+			buffer.position(buffer.position() + 4 * pairs);
+			if (format != DOUBLE)
+				result.scales = scales;
+			int[] features = new int[nRows];
+			buffer.asIntBuffer().get(features);
+			buffer.position(buffer.position() + 4 * nRows);
+			int maxIndex = 0;
+			for (int r = 0; r < nRows; r++)
+				maxIndex = Math.max(maxIndex, features[r]);
+			result.rows = new int[maxIndex + 1];
+			Arrays.fill(result.rows, -1);
+			for (int r = 0; r < nRows; r++)
+				result.rows[features[r]] = r;
+			if (format == FLOAT16) {
+				result.halfWeights = new short[nRows * pairs];
+				buffer.asShortBuffer().get(result.halfWeights);
+			} else if (format == INT8) {
+				result.byteWeights = new byte[nRows * pairs];
+				buffer.get(result.byteWeights);
+			} else {
+				result.weights = new double[nRows * pairs];
+				buffer.asDoubleBuffer().get(result.weights);
+			}
+
+			return result;
+
+		} finally {
+			if (in != null)
+				in.close();
+		}
+
+	}
+
+	/**
+	 * Computes the CRC32 checksum of the given model file, saved with its
+	 * weights for loading them with the same model file only
+	 *
+	 * @param modelFile
+	 *            the model file
+	 * @return the checksum of the bytes of the file
+	 *
+	 * @throws Exception
+	 */
+	public static long checksum(File modelFile) throws Exception {
+
+		CRC32 crc = new CRC32();
+		InputStream in = null;
+
+		try {
+
+			in = new FileInputStream(modelFile);
+			byte[] buffer = new byte[1 << 16];
+			int n;
+			while ((n = in.read(buffer)) != -1)
+				crc.update(buffer, 0, n);
+
+		} finally {
+			if (in != null)
+				in.close();
+		}
+
+		return crc.getValue();
+
+	}
+
+	/**
+	 * Gets the format of the weights given its name
+	 *
+	 * @param name
+	 *            double, float16 or int8
+	 * @return the format
+	 */
+	public static int getFormat(String name) {
+
+		if (name.equalsIgnoreCase("float16"))
+			return FLOAT16;
+		if (name.equalsIgnoreCase("int8"))
+			return INT8;
+		if (name.equalsIgnoreCase("double"))
+			return DOUBLE;
+
+		throw new IllegalArgumentException("Unsupported format of the weights: " + name + "!");
+
+	}
+
+	/**
+	 * Folds the support vectors of each pair of labels and their coefficients
+	 * into the weight vector of the pair
+	 */
+	private void compile() {
+
+		// the first support vector of each label
+		int[] start = new int[nrClass];
+		for (int c = 1; c < nrClass; c++)
+			start[c] = start[c - 1] + model.nSV[c - 1];
+
+		// a row for each feature in the support vectors
+		int maxIndex = 0;
+		for (svm_node[] sv : model.SV)
+			for (svm_node node : sv)
+				maxIndex = Math.max(maxIndex, node.index);
+		int[] rows = new int[maxIndex + 1];
+		Arrays.fill(rows, -1);
+		int size = 0;
+		for (svm_node[] sv : model.SV)
+			for (svm_node node : sv)
+				if (node.index >= 0 && rows[node.index] == -1)
+					rows[node.index] = size++;
+
+		weights = new double[size * pairs];
+		biases = new double[pairs];
+		this.rows = rows;
+		int p = 0;
+		for (int i = 0; i < nrClass; i++) {
+			for (int j = i + 1; j < nrClass; j++) {
+				// the support vectors of the label i have their coefficients
+				// for the label j in sv_coef[j - 1] and the ones of the label j
+				// have their coefficients for the label i in sv_coef[i]
+				fold(p, start[i], model.nSV[i], model.sv_coef[j - 1]);
+				fold(p, start[j], model.nSV[j], model.sv_coef[i]);
+				biases[p] = model.rho[p];
+				p++;
+			}
+		}
+
+	}
+
+	/**
+	 * Adds the given support vectors weighted by their coefficients to the
+	 * weight vector of the given pair of labels
+	 *
+	 * @param pair
+	 *            the pair of labels
+	 * @param start
+	 *            the first support vector
+	 * @param length
+	 *            the number of support vectors
+	 * @param coefficients
+	 *            the coefficients of the support vectors
+	 */
+	private void fold(int pair, int start, int length, double[] coefficients) {
+
+		for (int k = start; k < start + length; k++)
+			for (svm_node node : model.SV[k])
+				if (node.index >= 0)
+					weights[rows[node.index] * pairs + pair] += coefficients[k] * node.value;
+
+	}
+
+	/**
+	 * The decision values of the pairs of labels and the votes of the labels
+	 * of a thread
+	 */
+	private static class Votes {
+
+		private final int[] vote;
+		private final double[] decisionValues;
+
+		Votes(int labels, int pairs) {
+			vote = new int[labels];
+			decisionValues = new double[pairs];
+		}
+
+	}
+
+	/**
+	 * The conversions between floats and 16-bit floats (IEEE 754 half
+	 * precision); the 16-bit floats are converted back through a table of all
+	 * their values, that is built the first time it is used
+	 */
+	static class Half {
+
+		// the float value of each 16-bit float
+		static final float[] TO_FLOAT = new float[1 << 16];
+
+		static {
+			for (int h = 0; h < TO_FLOAT.length; h++)
+				TO_FLOAT[h] = toFloat((short) h);
+		}
+
+		/**
+		 * Converts the given float into the nearest 16-bit float; the values
+		 * beyond the range of the 16-bit floats become the max 16-bit float
+		 */
+		static short toHalf(float value) {
+
+			int bits = Float.floatToIntBits(value);
+			int sign = (bits >>> 16) & 0x8000;
+			// the rounding bit added to the mantissa
+			int rounded = (bits & 0x7fffffff) + 0x1000;
+
+			if (rounded >= 0x47800000) {
+				// NaN stays NaN, the others become the max value
+				if ((bits & 0x7fffffff) > 0x7f800000)
+					return (short) (sign | 0x7e00);
+				return (short) (sign | 0x7bff);
+			}
+			// normalized values
+			if (rounded >= 0x38800000)
+				return (short) (sign | (rounded - 0x38000000) >>> 13);
+			// too small, becomes 0
+			if (rounded < 0x33000000)
+				return (short) sign;
+			// denormalized values
+			int exponent = (bits & 0x7fffffff) >>> 23;
+			return (short) (sign
+					| ((bits & 0x7fffff | 0x800000) + (0x800000 >>> (exponent - 102)) >>> (126 - exponent)));
+
+		}
+
+		/**
+		 * Converts the given 16-bit float into a float
+		 */
+		static float toFloat(short half) {
+
+			int mantissa = half & 0x03ff;
+			int exponent = half & 0x7c00;
+
+			if (exponent == 0x7c00) {
+				// infinity or NaN
+				exponent = 0x3fc00;
+			} else if (exponent != 0) {
+				// normalized values
+				exponent += 0x1c000;
+			} else if (mantissa != 0) {
+				// denormalized values
+				exponent = 0x1c400;
+				do {
+					mantissa <<= 1;
+					exponent -= 0x400;
+				} while ((mantissa & 0x400) == 0);
+				mantissa &= 0x3ff;
+			}
+
+			return Float.intBitsToFloat((half & 0x8000) << 16 | (exponent | mantissa) << 13);
+
+		}
+
+	}
+
+}
@@ -0,0 +1,204 @@
+package eu.fbk.ict.fm.nlp.synaptic.classification;
+
+import java.io.File;
+
+import eu.fbk.ict.fm.nlp.synaptic.analysis.CorpusIdf;
+import eu.fbk.ict.fm.nlp.synaptic.analysis.FeatureExtractorClassify;
+import eu.fbk.ict.fm.nlp.synaptic.analysis.FeaturesConfiguration;
+import libsvm.svm;
+import libsvm.svm_model;
+
+/**
+ * ModelSnapshot bundles all the files produced during the classifier training
+ * phase that are needed to annotate new examples: the model itself
+ * (modelFileName), compiled into weight vectors when it uses the linear kernel
+ * (@see LinearPredictor), the features index (modelFileName.features.index),
+ * the labels index (modelFileName.labels.index), the settings of the feature
+ * extraction (modelFileName.features.properties) and the idf values of the
+ * training dataset (modelFileName.idf). When the model has been saved with
+ * its quantized weights (modelFileName.weights), the weights are loaded
+ * instead of the model, that is not kept in memory. A snapshot is never changed after it
+ * has been loaded, then a classifier (@see AbstractClassify) can replace its
+ * snapshot with a new one (e.g., a model trained again) while the texts being
+ * annotated keep using the snapshot they started with.
+ *
+ * The tokenizer, the stop words and the list of weighted n-grams don't depend
+ * on the model and they are not part of the snapshot.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class ModelSnapshot {
+
+	// the file of the model
+	private final File modelFile;
+	// the time of the last change of the model file or of its weights when
+	// they have been loaded
+	private final long lastModified;
+	// the trained model; null when its quantized weights have been loaded
+	private final svm_model model;
+	// the weight vectors compiled from the trained model
+	private final LinearPredictor predictor;
+	// the feature extractor using the features index and the labels index of
+	// the model
+	private final FeatureExtractorClassify featureExtractor;
+
+	private ModelSnapshot(File modelFile, long lastModified, svm_model model, LinearPredictor predictor,
+			FeatureExtractorClassify featureExtractor) {
+
+		this.modelFile = modelFile;
+		this.lastModified = lastModified;
+		this.model = model;
+		this.predictor = predictor;
+		this.featureExtractor = featureExtractor;
+
+	}
+
+	/**
+	 * Loads the snapshot of the given model and of the other files produced
+	 * with it during the classifier training phase
+	 *
+	 * @param modelFileName
+	 *            the model file name
+	 * @param enableStopWordsRemoval
+	 *            true for enabling stop words removal; false otherwise
+	 * @return the snapshot
+	 *
+	 * @throws Exception
+	 */
+	public static ModelSnapshot load(String modelFileName, boolean enableStopWordsRemoval) throws Exception {
+
+		File modelFile = new File(modelFileName);
+		long lastModified = getLastModified(modelFile);
+
+		// load the quantized weights saved with the model, unless they come
+		// from a previous model
+		svm_model model = null;
+		LinearPredictor predictor = null;
+		File weightsFile = new File(modelFileName + LinearPredictor.FILE_EXTENSION);
+		if (weightsFile.exists())
+			predictor = LinearPredictor.load(weightsFile, LinearPredictor.checksum(modelFile));
+		if (predictor == null) {
+			// load the model generated during the classifier training phase
+			model = svm.svm_load_model(modelFileName);
+			if (model == null)
+				throw new Exception("The model " + modelFileName + " can't be loaded!");
+			predictor = new LinearPredictor(model);
+		}
+		// the index of the features and labels generated during the training
+		// phase to produce the model
+		String featuresIndexFileName = modelFileName + ".features.index";
+		String labelsIndexFileName = modelFileName + ".labels.index";
+		// the settings of the feature extraction saved with the model (e.g.,
+		// feature hashing)
+		FeaturesConfiguration configuration = FeaturesConfiguration
+				.load(modelFileName + FeaturesConfiguration.FILE_EXTENSION);
+		FeatureExtractorClassify featureExtractor = new FeatureExtractorClassify(configuration,
+				featuresIndexFileName, labelsIndexFileName, enableStopWordsRemoval);
+		try {
+			// the idf values computed from the training dataset weight the
+			// hashed features, while the features index already contains the
+			// weights of its features
+			if (configuration.isCorpusIdf() && configuration.isHashing())
+				featureExtractor.setCorpusIdf(CorpusIdf.load(modelFileName + CorpusIdf.FILE_EXTENSION));
+		} catch (Exception ex) {
+			featureExtractor.close();
+			throw ex;
+		}
+
+		return new ModelSnapshot(modelFile, lastModified, model, predictor, featureExtractor);
+
+	}
+
+	/**
+	 * Gets the time of the last change of the given model file or of its
+	 * quantized weights
+	 *
+	 * @param modelFile
+	 *            the model file
+	 * @return the time in milliseconds; 0 if the model file doesn't exist
+	 */
+	public static long getLastModified(File modelFile) {
+
+		long lastModified = modelFile.lastModified();
+		if (lastModified == 0)
+			return 0;
+
+		return Math.max(lastModified, new File(modelFile.getPath() + LinearPredictor.FILE_EXTENSION).lastModified());
+
+	}
+
+	/**
+	 * Gets the file of the model
+	 *
+	 * @return the file of the model
+	 */
+	public File getModelFile() {
+
+		return modelFile;
+
+	}
+
+	/**
+	 * Gets the time of the last change of the model file or of its weights
+	 * when they have been loaded
+	 *
+	 * @return the time in milliseconds
+	 */
+	public long getLastModified() {
+
+		return lastModified;
+
+	}
+
+	/**
+	 * Gets the trained model
+	 *
+	 * @return the model; null when its quantized weights have been loaded
+	 *         (@see getPredictor())
+	 */
+	public svm_model getModel() {
+
+		return model;
+
+	}
+
+	/**
+	 * Gets the weight vectors compiled from the trained model or loaded from
+	 * its quantized weights; they are not compiled when the model doesn't use
+	 * the linear kernel
+	 *
+	 * @return the compiled weight vectors
+	 */
+	public LinearPredictor getPredictor() {
+
+		return predictor;
+
+	}
+
+	/**
+	 * Gets the feature extractor for producing the features vectors of the
+	 * texts to annotate with the model
+	 *
+	 * @return the feature extractor
+	 */
+	public FeatureExtractorClassify getFeatureExtractor() {
+
+		return featureExtractor;
+
+	}
+
+	/**
+	 * Releases the resources shared with the other snapshots and classifiers
+	 * (e.g., the stop words); the texts still being annotated with the
+	 * snapshot can be completed.
+	 */
+	public void close() {
+
+		featureExtractor.close();
+
+	}
+
+}
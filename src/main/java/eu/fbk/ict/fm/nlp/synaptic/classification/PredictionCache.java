@@ -0,0 +1,270 @@
+package eu.fbk.ict.fm.nlp.synaptic.classification;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import opennlp.tools.util.Span;
+
+/**
+ * PredictionCache keeps the labels predicted for the last annotated texts, so
+ * that the texts occurring many times (e.g., greetings, boilerplate) are not
+ * classified again. The texts are identified by a 64-bit hash code of their
+ * normalized tokens, i.e., the tokens converted to lower case as done by the
+ * feature extractors, then 2 texts differing only in the case of their
+ * letters or in the spaces between their tokens share the same entry.
+ *
+ * The cache holds at most the given number of entries (and at least one for
+ * each segment): the entries are split into segments by their hash codes and
+ * each segment removes its least recently used entries; the threads using
+ * the cache lock only the segment of the text they look up. Each entry keeps
+ * the snapshot of the model that predicted its label (@see ModelSnapshot) and
+ * it is used only with the same snapshot, so that no label of a replaced
+ * model is ever returned.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class PredictionCache {
+
+	// the number of segments
+	private static final int SEGMENTS = 16;
+	// the FNV-1a offset basis and prime
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	// the segments of the entries
+	private final Segment[] segments = new Segment[SEGMENTS];
+	// the max number of entries
+	private final int capacity;
+	// the statistics of the cache
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Class constructor
+	 *
+	 * @param capacity
+	 *            the max number of entries
+	 */
+	public PredictionCache(int capacity) {
+
+		this.capacity = capacity;
+		for (int i = 0; i < SEGMENTS; i++)
+			segments[i] = new Segment(Math.max(1, capacity / SEGMENTS));
+
+	}
+
+	/**
+	 * Gets the hash code of the normalized tokens of the given text
+	 *
+	 * @param text
+	 *            the text
+	 * @param spans
+	 *            the spans of the tokens in the text
+	 * @return the hash code
+	 */
+	public static long hash(String text, Span[] spans) {
+
+		long h = FNV_OFFSET;
+		for (Span span : spans) {
+			for (int i = span.getStart(); i < span.getEnd(); i++) {
+				char c = Character.toLowerCase(text.charAt(i));
+				h = (h ^ (c & 0xff)) * FNV_PRIME;
+				h = (h ^ (c >>> 8)) * FNV_PRIME;
+			}
+			// the end of the token
+			h = (h ^ 0xff) * FNV_PRIME;
+			h = (h ^ 0xff) * FNV_PRIME;
+		}
+
+		return h;
+
+	}
+
+	/**
+	 * Gets the label predicted by the given snapshot of the model for the
+	 * text with the given hash code
+	 *
+	 * @param key
+	 *            the hash code of the text
+	 * @param snapshot
+	 *            the snapshot of the model
+	 * @return the ID of the label; NaN if it is not in the cache
+	 */
+	public double get(long key, ModelSnapshot snapshot) {
+
+		Entry entry;
+		Segment segment = getSegment(key);
+		synchronized (segment) {
+			entry = segment.get(key);
+		}
+		if (entry == null || entry.snapshot != snapshot) {
+			misses.incrementAndGet();
+			return Double.NaN;
+		}
+		hits.incrementAndGet();
+
+		return entry.label;
+
+	}
+
+	/**
+	 * Puts the label predicted by the given snapshot of the model for the
+	 * text with the given hash code
+	 *
+	 * @param key
+	 *            the hash code of the text
+	 * @param snapshot
+	 *            the snapshot of the model
+	 * @param label
+	 *            the ID of the label
+	 */
+	public void put(long key, ModelSnapshot snapshot, double label) {
+
+		Segment segment = getSegment(key);
+		synchronized (segment) {
+			segment.put(key, new Entry(snapshot, label));
+		}
+
+	}
+
+	/**
+	 * Removes all the entries, e.g., when the model has been replaced; the
+	 * statistics are kept
+	 */
+	public void clear() {
+
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+
+	}
+
+	/**
+	 * Gets the number of entries
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+
+		return size;
+
+	}
+
+	/**
+	 * Gets the max number of entries
+	 *
+	 * @return the max number of entries
+	 */
+	public int getCapacity() {
+
+		return capacity;
+
+	}
+
+	/**
+	 * Gets the number of texts whose labels have been found in the cache
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+
+		return hits.get();
+
+	}
+
+	/**
+	 * Gets the number of texts whose labels have not been found in the cache
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+
+		return misses.get();
+
+	}
+
+	/**
+	 * Gets the number of entries removed to make room for the new ones
+	 *
+	 * @return the number of evictions
+	 */
+	public long getEvictions() {
+
+		return evictions.get();
+
+	}
+
+	@Override
+	public String toString() {
+
+		long hits = getHits();
+		long lookups = hits + getMisses();
+
+		return "size:" + size() + "/" + capacity + " hits:" + hits + " misses:" + getMisses() + " hit rate:"
+				+ (lookups == 0 ? 0 : (double) hits / lookups) + " evictions:" + getEvictions();
+
+	}
+
+	/**
+	 * Gets the segment of the given hash code
+	 */
+	private Segment getSegment(long key) {
+
+		return segments[(int) (key ^ (key >>> 32)) & (SEGMENTS - 1)];
+
+	}
+
+	/**
+	 * An entry of the cache
+	 */
+	private static class Entry {
+
+		private final ModelSnapshot snapshot;
+		private final double label;
+
+		Entry(ModelSnapshot snapshot, double label) {
+			this.snapshot = snapshot;
+			this.label = label;
+		}
+
+	}
+
+	/**
+	 * A segment of the cache, in access order
+	 */
+	@SuppressWarnings("serial")
+	private class Segment extends LinkedHashMap<Long, Entry> {
+
+		// the max number of entries of the segment
+		private final int capacity;
+
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+			if (size() <= capacity)
+				return false;
+			evictions.incrementAndGet();
+			return true;
+		}
+
+	}
+
+}
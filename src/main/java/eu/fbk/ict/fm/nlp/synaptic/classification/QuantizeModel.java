@@ -0,0 +1,282 @@
+package eu.fbk.ict.fm.nlp.synaptic.classification;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import eu.fbk.ict.fm.nlp.synaptic.analysis.FeatureExtractorClassify;
+import eu.fbk.ict.fm.nlp.synaptic.analysis.FeaturesBuffer;
+import eu.fbk.ict.fm.nlp.synaptic.analysis.FileTSV;
+import eu.fbk.ict.fm.nlp.synaptic.analysis.Preprocessor;
+import libsvm.svm;
+import libsvm.svm_model;
+import opennlp.tools.util.Span;
+
+/**
+ * QuantizeModel saves the quantized weights of a model trained with the
+ * linear kernel next to it (modelFileName.weights), so that the classifiers
+ * load them instead of the model (@see LinearPredictor, ModelSnapshot), and
+ * it reports how much the quantization changes the predicted labels: given a
+ * labeled dataset (in the same tsv format of the training dataset), the
+ * accuracy of the model with the full precision weights and with the
+ * quantized ones and the number of examples whose labels differ. The
+ * quantization can be done from Command Line Interface or its API, e.g.,
+ *
+ * CLI:
+ *
+ * 		java QuantizeModel -m modelFileName -q int8 [-f datasetFileName -c type|sentiment]
+ *
+ * API:
+ *
+ * 		QuantizeModel quantizeModel = new QuantizeModel(modelFileName, LinearPredictor.INT8);
+ * 		int[] counts = quantizeModel.evaluate(datasetFileName, FileTSV.TYPE, true);
+ * 		quantizeModel.save();
+ *
+ * The quantized weights of the model can be saved during the training phase
+ * too (@see AbstractLearn.setQuantization(int)).
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class QuantizeModel {
+
+	// the logger
+	private static final Logger LOGGER = Logger.getLogger(QuantizeModel.class.getName());
+
+	// the model file name
+	private String modelFileName;
+	// the weights of the model with full precision and the quantized ones
+	private LinearPredictor predictor;
+	private LinearPredictor quantizedPredictor;
+
+	/**
+	 * Class constructor; it loads the model and quantizes its weights
+	 *
+	 * @param modelFileName
+	 *            the model file name
+	 * @param format
+	 *            the format of the quantized weights (LinearPredictor.FLOAT16
+	 *            or LinearPredictor.INT8)
+	 *
+	 * @throws Exception
+	 */
+	public QuantizeModel(String modelFileName, int format) throws Exception {
+
+		this.modelFileName = modelFileName;
+		svm_model model = svm.svm_load_model(modelFileName);
+		if (model == null)
+			throw new Exception("The model " + modelFileName + " can't be loaded!");
+		predictor = new LinearPredictor(model);
+		if (!predictor.isCompiled())
+			throw new Exception("The model " + modelFileName + " has not been trained with the linear kernel!");
+		quantizedPredictor = predictor.quantize(format);
+
+	}
+
+	/**
+	 * Gets the weights of the model with full precision
+	 *
+	 * @return the weights
+	 */
+	public LinearPredictor getPredictor() {
+
+		return predictor;
+
+	}
+
+	/**
+	 * Gets the quantized weights of the model
+	 *
+	 * @return the quantized weights
+	 */
+	public LinearPredictor getQuantizedPredictor() {
+
+		return quantizedPredictor;
+
+	}
+
+	/**
+	 * Classifies the examples of the given labeled dataset with the full
+	 * precision weights and with the quantized ones
+	 *
+	 * @param datasetFileName
+	 *            the dataset in the tsv format; the first line contains the
+	 *            fields names
+	 * @param labelPosition
+	 *            the field of the labels (FileTSV.TYPE or FileTSV.SENTIMENT)
+	 * @param enableStopWordsRemoval
+	 *            true for removing the stop words as done by the classifier
+	 *            of the model; false otherwise
+	 * @return the number of examples, the number of examples correctly
+	 *         classified with the full precision weights and with the
+	 *         quantized ones and the number of examples whose labels differ
+	 *
+	 * @throws Exception
+	 */
+	public int[] evaluate(String datasetFileName, int labelPosition, boolean enableStopWordsRemoval)
+			throws Exception {
+
+		int[] counts = new int[4];
+
+		ModelSnapshot snapshot = ModelSnapshot.load(modelFileName, enableStopWordsRemoval);
+		Preprocessor preprocessor = new Preprocessor();
+		BufferedReader in = null;
+
+		try {
+
+			FeatureExtractorClassify featureExtractor = snapshot.getFeatureExtractor();
+			in = new BufferedReader(new InputStreamReader(new FileInputStream(datasetFileName), "UTF8"));
+			// the first line contains the fields names
+			String str = in.readLine();
+			int lineCounter = 1;
+			while ((str = in.readLine()) != null) {
+
+				lineCounter++;
+				String[] splitLine = str.split("\t");
+				if (splitLine.length != FileTSV.FIELDS_NUMBER)
+					throw new Exception("Error in line " + lineCounter + ": wrong number of fields in the input file!");
+				String text = splitLine[FileTSV.CONTENT];
+				String label = splitLine[labelPosition];
+
+				Span[] spans = preprocessor.processPos(text);
+				FeaturesBuffer featuresVector = featureExtractor.extractFeatures(text, spans);
+				double prediction = predictor.predict(featuresVector.getIndexes(), featuresVector.getValues(),
+						featuresVector.size());
+				double quantizedPrediction = quantizedPredictor.predict(featuresVector.getIndexes(),
+						featuresVector.getValues(), featuresVector.size());
+
+				counts[0]++;
+				if (label.equals(featureExtractor.getLabel(prediction)))
+					counts[1]++;
+				if (label.equals(featureExtractor.getLabel(quantizedPrediction)))
+					counts[2]++;
+				if (prediction != quantizedPrediction)
+					counts[3]++;
+
+			}
+
+		} finally {
+			if (in != null)
+				in.close();
+			preprocessor.close();
+			snapshot.close();
+		}
+
+		return counts;
+
+	}
+
+	/**
+	 * Saves the quantized weights next to the model
+	 * (modelFileName.weights)
+	 *
+	 * @throws Exception
+	 */
+	public void save() throws Exception {
+
+		quantizedPredictor.save(new File(modelFileName + LinearPredictor.FILE_EXTENSION),
+				LinearPredictor.checksum(new File(modelFileName)));
+
+	}
+
+	/**
+	 * The quantization entry point
+	 *
+	 * Usage: java QuantizeModel -m model -q format [-f dataSet -c classifier]
+	 *
+	 * WHERE: model is the model generated during the classifier training
+	 * phase, format is the format of the quantized weights (float16 or int8),
+	 * dataSet is a labeled dataset for comparing the quantized weights with
+	 * the full precision ones and classifier is the classifier of the model
+	 * (type or sentiment)
+	 *
+	 */
+	public static void main(String[] args) {
+
+		// create Options object
+		Options options = new Options();
+
+		// add model option
+		Option model = new Option("m", "model", true, "model to quantize");
+		model.setRequired(true);
+		options.addOption(model);
+
+		// add format option
+		Option quantization = new Option("q", "quantization", true, "format of the weights: float16 or int8");
+		quantization.setRequired(true);
+		options.addOption(quantization);
+
+		// add data set option
+		Option file = new Option("f", "file", true, "labeled dataset for comparing the quantized weights");
+		file.setRequired(false);
+		options.addOption(file);
+
+		// add classifier option
+		Option classifier = new Option("c", "classifier", true,
+				"classifier of the model: type (default) or sentiment");
+		classifier.setRequired(false);
+		options.addOption(classifier);
+
+		// create the command line parser
+		CommandLineParser parser = new BasicParser();
+		// the formatter for parse exception
+		HelpFormatter formatter = new HelpFormatter();
+		StringWriter out = new StringWriter();
+		PrintWriter pw = new PrintWriter(out);
+
+		try {
+
+			// parse the command line arguments
+			CommandLine cmd = parser.parse(options, args);
+
+			QuantizeModel quantizeModel = new QuantizeModel(cmd.getOptionValue("model"),
+					LinearPredictor.getFormat(cmd.getOptionValue("quantization")));
+			LOGGER.info("weights:" + quantizeModel.getPredictor().getMemorySize() + " bytes\tquantized weights:"
+					+ quantizeModel.getQuantizedPredictor().getMemorySize() + " bytes");
+
+			// compare the quantized weights with the full precision ones
+			if (cmd.hasOption("file")) {
+				boolean sentiment = "sentiment".equals(cmd.getOptionValue("classifier"));
+				int[] counts = quantizeModel.evaluate(cmd.getOptionValue("file"),
+						sentiment ? FileTSV.SENTIMENT : FileTSV.TYPE, !sentiment);
+				double accuracy = counts[0] == 0 ? 0 : (double) counts[1] / counts[0];
+				double quantizedAccuracy = counts[0] == 0 ? 0 : (double) counts[2] / counts[0];
+				LOGGER.info("examples:" + counts[0] + "\taccuracy:" + accuracy + "\tquantized accuracy:"
+						+ quantizedAccuracy + "\tdifference:" + (quantizedAccuracy - accuracy)
+						+ "\tdifferent labels:" + counts[3]);
+			}
+
+			// save the quantized weights
+			quantizeModel.save();
+
+		} catch (ParseException e) {
+
+			formatter.printHelp(pw, 80, "", "QuantizeModel", options, formatter.getLeftPadding(),
+					formatter.getDescPadding(), "");
+			pw.flush();
+			LOGGER.log(Level.WARNING, out.toString());
+
+		} catch (Exception ex) {
+
+			LOGGER.log(Level.SEVERE, ex.getMessage());
+
+		}
+
+	}
+
+}
@@ -13,10 +13,14 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
+import eu.fbk.ict.fm.nlp.synaptic.analysis.CorpusIdf;
 import eu.fbk.ict.fm.nlp.synaptic.analysis.FeatureExtractorLearn;
+import eu.fbk.ict.fm.nlp.synaptic.analysis.FeaturesConfiguration;
+import eu.fbk.ict.fm.nlp.synaptic.analysis.FeaturesVectors;
 import eu.fbk.ict.fm.nlp.synaptic.analysis.FileTSV;
 import eu.fbk.ict.fm.nlp.synaptic.analysis.Preprocessor;
 import eu.fbk.ict.fm.nlp.synaptic.classification.AbstractLearn;
+import eu.fbk.ict.fm.nlp.synaptic.classification.LinearPredictor;
 
 /**
  * SentimentLearn is the class that implements the classifier for training a new
@@ -25,7 +29,7 @@ import eu.fbk.ict.fm.nlp.synaptic.classification.AbstractLearn;
  * 
  * CLI:
  * 
- * 		java SentimentLearn -f datasetFileName -m modelFileName
+ * 		java SentimentLearn -f datasetFileName -m modelFileName [-t threads] [-n] [-b bits] [-w min-max] [-g min-max] [-i] [-d min] [-k features] [-v] [-q format]
  * 
  * API: 
  * 
@@ -42,10 +46,51 @@ import eu.fbk.ict.fm.nlp.synaptic.classification.AbstractLearn;
  * 
  * 		modelFileName							the generated model to use for annotating new examples
  * 		modelFileName.features.index			the features index to use for annotating new examples
+ * 		modelFileName.features.properties		the settings of the feature extraction (e.g., feature hashing)
  *      modelFileName.labels.index				the labels index to use for annotating new examples
+ * 		modelFileName.features.index.txt		the features index in the text format to use for debugging
+ * 		modelFileName.labels.index.txt			the labels index in the text format to use for debugging
  * 		datasetFileName.sa.token				the pre-processed dataset in input to use for debugging
  * 		datasetFileName.sa.token.vectors		the features vectors of the dataset in input to use for debugging
  * 
+ * The features index and the labels index are binary files mapped into memory
+ * by the classifiers (@see MappedFeaturesIndex); the files for debugging (the
+ * last four ones) are not produced when the option '-n' is given (API:
+ * setDebugFiles(false)).
+ * 
+ * With the option '-b bits' (API: setHashingBits(bits)) the features are
+ * hashed into a space of 2^bits IDs and the features index is not produced;
+ * the classifiers read this setting from modelFileName.features.properties.
+ * 
+ * The features are the word unigrams and bigrams of the examples; the option
+ * '-w min-max' (API: setWordNGrams(min, max)) sets other orders of the word
+ * n-grams (e.g., '-w 1-3' for trigrams too) and the option '-g min-max' (API:
+ * setCharNGrams(min, max)) adds the character n-grams of the tokens (e.g.,
+ * '-g 3-5'). These settings are saved into modelFileName.features.properties
+ * as well.
+ * 
+ * With the option '-i' (API: setCorpusIdf(true)) the features are weighted by
+ * the idf values computed from the dataset, instead of the list of weighted
+ * n-grams, and the document frequencies of the n-grams are saved into
+ * modelFileName.idf.
+ * 
+ * The options '-d min' (API: setMinDocumentFrequency(int)) and '-k features'
+ * (API: setMaxFeatures(int)) prune the vocabulary: the features occurring in
+ * less than 'min' examples are removed and only the 'features' features with
+ * the highest chi-square scores are kept; the remaining features get new IDs
+ * without holes (not in the feature hashing mode).
+ * 
+ * With the option '-v' (API: setBinaryVectors(true)) the features vectors are
+ * saved in a binary format instead of the text one
+ * (datasetFileName.sa.token.vectors.bin), also when the option '-n' is given;
+ * learn(featuresVectorsFileName, modelFileName) reads them back much faster
+ * for training the classifier again with other parameters.
+ * 
+ * With the option '-q format' (API: setQuantization(int)) the weights of the
+ * model are quantized into 16-bit floats (float16) or 8-bit integers (int8)
+ * and saved with the model (modelFileName.weights): the classifiers load them
+ * instead of the model and take less memory (@see LinearPredictor).
+ * 
  * 
  * @author zanoli
  * 
@@ -94,31 +139,72 @@ public class SentimentLearn extends AbstractLearn {
 	 */
 	public void run(String dataSetFileName, String modelFileName) throws Exception {
 
-		// pre-process the given dataset and puts the output in the file with
-		// extension '.token'
-		String preprocessedDataSetFileName = dataSetFileName + ".sa.token";
-		preprocessor.process(dataSetFileName, preprocessedDataSetFileName);
-		// extract the features from the pre-processed dataset and produces 3
-		// files:
-		// --the features vectors
+		// the pre-processed dataset (extension '.token') and its features
+		// vectors (extension '.token.vectors') are saved for debugging purposes
+		// only
+		String preprocessedDataSetFileName = null;
+		String feacturesVectorFileName = null;
+		if (getDebugFiles()) {
+			preprocessedDataSetFileName = dataSetFileName + ".sa.token";
+			feacturesVectorFileName = preprocessedDataSetFileName + ".vectors";
+		}
+		// the features vectors in the binary format are saved for training
+		// the classifier again on them (extension '.token.vectors.bin')
+		if (getBinaryVectors())
+			feacturesVectorFileName = dataSetFileName + ".sa.token.vectors" + FeaturesVectors.FILE_EXTENSION;
+		featureExtractor.setBinaryVectors(getBinaryVectors());
+		// pre-process the given dataset and extract its features in a single
+		// pass; it produces the features vectors in memory and 2 files:
 		// --the features index containing the mapping between the features and
 		// their indexes used by the classifier
 		// --the labels index containing the mapping between the labels and
 		// their indexes used by the classifier
-		String feacturesVectorFileName = preprocessedDataSetFileName + ".vectors";
-		String featuresIndexFileName = modelFileName + ".features.index";
+		preprocessor.setParallelism(getParallelism());
+		featureExtractor.setParallelism(getParallelism());
+		featureExtractor.setMinDocumentFrequency(getMinDocumentFrequency());
+		featureExtractor.setMaxFeatures(getMaxFeatures());
+		// the text exports of the indexes are saved for debugging purposes
+		// only
+		featureExtractor.setTextIndexes(getDebugFiles());
+		// the features index is not produced in the feature hashing mode
+		FeaturesConfiguration configuration = getFeaturesConfiguration();
+		featureExtractor.setConfiguration(configuration);
+		// the document frequencies of the n-grams are counted in a first
+		// pass over the dataset
+		CorpusIdf corpusIdf = null;
+		if (configuration.isCorpusIdf())
+			corpusIdf = featureExtractor.countDocumentFrequencies(dataSetFileName, preprocessor);
+		featureExtractor.setCorpusIdf(corpusIdf);
+		String featuresIndexFileName = configuration.isHashing() ? null : modelFileName + ".features.index";
 		String labelsIndexFileName = modelFileName + ".labels.index";
 		int datasetLabelPosition = FileTSV.SENTIMENT;
-		featureExtractor.extract(preprocessedDataSetFileName, feacturesVectorFileName, featuresIndexFileName,
-				labelsIndexFileName, datasetLabelPosition);
+		FeaturesVectors featuresVectors = featureExtractor.extract(dataSetFileName, preprocessor,
+				preprocessedDataSetFileName, feacturesVectorFileName, featuresIndexFileName, labelsIndexFileName,
+				datasetLabelPosition);
 		
 		LOGGER.info("Learning...");
 		// learn the classifier
-		learn(feacturesVectorFileName, modelFileName);
+		learn(featuresVectors, modelFileName);
+		// save the settings of the feature extraction with the model
+		configuration.save(modelFileName + FeaturesConfiguration.FILE_EXTENSION);
+		if (corpusIdf != null)
+			corpusIdf.save(modelFileName + CorpusIdf.FILE_EXTENSION);
 		LOGGER.info("done.");
 
 	}
 
+	/**
+	 * Releases the resources shared with the other classifiers of the JVM
+	 * (e.g., the model for tokenization, the stop words); the classifier can't
+	 * be used anymore after calling this method.
+	 */
+	public void close() {
+
+		preprocessor.close();
+		featureExtractor.close();
+
+	}
+
 	/**
 	 * The classifier entry point
 	 * 
@@ -150,6 +236,61 @@ public class SentimentLearn extends AbstractLearn {
 		crossValidation.setRequired(false);
 		options.addOption(crossValidation);
 
+		// add threads option
+		Option threads = new Option("t", "threads", true,
+				"number of threads for pre-processing the dataset and extracting its features");
+		threads.setRequired(false);
+		options.addOption(threads);
+
+		// add debug files option
+		Option noDebugFiles = new Option("n", "no_debug_files", false,
+				"don't save the pre-processed dataset and its features vectors");
+		noDebugFiles.setRequired(false);
+		options.addOption(noDebugFiles);
+
+		// add feature hashing option
+		Option hashingBits = new Option("b", "hashing_bits", true,
+				"number of bits of the feature hashing space (no features index)");
+		hashingBits.setRequired(false);
+		options.addOption(hashingBits);
+
+		// add the orders of the n-grams options
+		Option wordNGrams = new Option("w", "word_ngrams", true, "orders of the word n-grams, e.g., 1-3 (default 1-2)");
+		wordNGrams.setRequired(false);
+		options.addOption(wordNGrams);
+		Option charNGrams = new Option("g", "char_ngrams", true,
+				"orders of the character n-grams, e.g., 3-5 (default none)");
+		charNGrams.setRequired(false);
+		options.addOption(charNGrams);
+
+		// add the idf values of the dataset option
+		Option corpusIdf = new Option("i", "corpus_idf", false,
+				"weight the features by the idf values computed from the dataset");
+		corpusIdf.setRequired(false);
+		options.addOption(corpusIdf);
+
+		// add the vocabulary pruning options
+		Option minDocumentFrequency = new Option("d", "min_df", true,
+				"min number of examples a feature has to occur in (e.g., 2)");
+		minDocumentFrequency.setRequired(false);
+		options.addOption(minDocumentFrequency);
+		Option maxFeatures = new Option("k", "max_features", true,
+				"max number of features, chosen by their chi-square scores (e.g., 100000)");
+		maxFeatures.setRequired(false);
+		options.addOption(maxFeatures);
+
+		// add the binary features vectors option
+		Option binaryVectors = new Option("v", "binary_vectors", false,
+				"save the features vectors in the binary format for training again on them");
+		binaryVectors.setRequired(false);
+		options.addOption(binaryVectors);
+
+		// add the quantization option
+		Option quantization = new Option("q", "quantization", true,
+				"save the weights of the model quantized into float16 or int8");
+		quantization.setRequired(false);
+		options.addOption(quantization);
+
 		// create the command line parser
 		CommandLineParser parser = new BasicParser();
 		// the formatter for parse exception
@@ -171,6 +312,38 @@ public class SentimentLearn extends AbstractLearn {
 			boolean enableCrossValidation = cmd.hasOption("cross_validation");
 			if (enableCrossValidation)
 				sentimentLearn.setCrossValidation(1);	
+			// set the number of threads
+			if (cmd.hasOption("threads"))
+				sentimentLearn.setParallelism(Integer.parseInt(cmd.getOptionValue("threads")));
+			// don't save the files for debugging
+			if (cmd.hasOption("no_debug_files"))
+				sentimentLearn.setDebugFiles(false);
+			// enable feature hashing
+			if (cmd.hasOption("hashing_bits"))
+				sentimentLearn.setHashingBits(Integer.parseInt(cmd.getOptionValue("hashing_bits")));
+			// set the orders of the n-grams
+			if (cmd.hasOption("word_ngrams")) {
+				int[] range = parseRange(cmd.getOptionValue("word_ngrams"), 1);
+				sentimentLearn.setWordNGrams(range[0], range[1]);
+			}
+			if (cmd.hasOption("char_ngrams")) {
+				int[] range = parseRange(cmd.getOptionValue("char_ngrams"), 0);
+				sentimentLearn.setCharNGrams(range[0], range[1]);
+			}
+			// weight the features by the idf values of the dataset
+			if (cmd.hasOption("corpus_idf"))
+				sentimentLearn.setCorpusIdf(true);
+			// prune the vocabulary
+			if (cmd.hasOption("min_df"))
+				sentimentLearn.setMinDocumentFrequency(Integer.parseInt(cmd.getOptionValue("min_df")));
+			if (cmd.hasOption("max_features"))
+				sentimentLearn.setMaxFeatures(Integer.parseInt(cmd.getOptionValue("max_features")));
+			// save the features vectors in the binary format
+			if (cmd.hasOption("binary_vectors"))
+				sentimentLearn.setBinaryVectors(true);
+			// save the quantized weights of the model
+			if (cmd.hasOption("quantization"))
+				sentimentLearn.setQuantization(LinearPredictor.getFormat(cmd.getOptionValue("quantization")));
 			// run the classifier
 			sentimentLearn.run(dataSetFileName, modelFileName);
 
@@ -16,7 +16,8 @@ import org.apache.commons.cli.ParseException;
 import eu.fbk.ict.fm.nlp.synaptic.analysis.FeatureExtractorClassify;
 import eu.fbk.ict.fm.nlp.synaptic.analysis.Preprocessor;
 import eu.fbk.ict.fm.nlp.synaptic.classification.AbstractClassify;
-import libsvm.svm;
+import eu.fbk.ict.fm.nlp.synaptic.classification.ModelSnapshot;
+import opennlp.tools.util.Span;
 
 /**
  * TypeClassify is the class that implements the classifier for annotating an
@@ -34,6 +35,8 @@ import libsvm.svm;
  * 		String label = annotation[0]; // the predicted label
  * 		String score = annotation[1]; // and its score
  * 		System.out.println("predicted label:" + label + " score:" + score);
+ * 		...
+ * 		typeClassify.close(); // when the classifier is no longer needed
  *
  *
  * WHERE: 
@@ -42,6 +45,14 @@ import libsvm.svm;
  * 		modelFileName is the model generated during the classifier training phase
  * 
  * 
+ * The same instance of the classifier can be shared among many threads, e.g.,
+ * the threads serving the requests of a web service. The resources that don't
+ * depend on the model (i.e., the model for tokenization, the stop words and the
+ * weighted n-grams) are loaded only once and shared with the other classifiers
+ * of the JVM, e.g., TypeClassify and SentimentClassify running in the same
+ * service (@see eu.fbk.ict.fm.nlp.synaptic.analysis.SharedResources).
+ * 
+ * 
  * @author zanoli
  * 
  * @since December 2017
@@ -57,33 +68,28 @@ public class TypeClassify extends AbstractClassify {
 
 	// the preprocessor for pre-processing data
 	private Preprocessor preprocessor;
-	// the feature extractor for producing the features vectors
-	private FeatureExtractorClassify featureExtractor;
 
 	/**
 	 * Class constructor; it uses the model generated during the classifier
 	 * training phase and the two other files (modelFileName.features.index,
 	 * modelFileName.labels.index) always produced by the classifier while
 	 * training to initializes the classifier itself as well as the pipeline for
-	 * pre-processing data to be annotated.
+	 * pre-processing data to be annotated. The settings of the feature
+	 * extraction are read from modelFileName.features.properties when it
+	 * exists; the features index is not needed by the models trained with
+	 * feature hashing.
 	 * 
 	 * @param modelFileName
 	 *            the model to use for classifying data
 	 */
 	public TypeClassify(String modelFileName) throws Exception {
 
-		// load the model generated during the classifier training phase
-		model = svm.svm_load_model(modelFileName);
+		// load the model generated during the classifier training phase with
+		// its features index, labels index and settings of the feature
+		// extraction (e.g., feature hashing)
+		loadModel(modelFileName, enableStopWordsRemoval);
 		// initialize the preprocessor for pre-processing data
 		preprocessor = new Preprocessor();
-		// the index of the features and labels generated during the training
-		// phase to produce the model
-		String featuresIndexFileName = modelFileName + ".features.index";
-		String labelsIndexFileName = modelFileName + ".labels.index";
-		// initialize the feature extractor for generating the features from the
-		// dataset
-		featureExtractor = new FeatureExtractorClassify(featuresIndexFileName, labelsIndexFileName,
-				enableStopWordsRemoval);
 
 	}
 
@@ -104,16 +110,19 @@ public class TypeClassify extends AbstractClassify {
 
 		try {
 
-			// pre-process the text
-			String[] preprocessedContent = preprocessor.process(text);
-			// extract the features vector
-			String[] featuresVector = featureExtractor.extract(preprocessedContent);
-			// classify
-			double[] prediction = classify(featuresVector);
+			// the snapshot of the model used for the whole text, even if the
+			// model is reloaded in the meantime
+			ModelSnapshot snapshot = getSnapshot();
+			FeatureExtractorClassify featureExtractor = snapshot.getFeatureExtractor();
+			// pre-process the text; the tokens are given as spans of the text
+			Span[] preprocessedContent = preprocessor.processPos(text);
+			// extract the features vector and classify it; the label is
+			// looked up in the cache first, when the cache is enabled
+			double prediction = predict(snapshot, text, preprocessedContent);
 			// get the predicted label
-			String label = featureExtractor.getLabel(prediction[0]);
+			String label = featureExtractor.getLabel(prediction);
 			// and its score
-			String score = String.valueOf(prediction[1]);
+			String score = String.valueOf(getScore());
 			result = new String[2]; // label and its score
 			result[0] = label;
 			result[1] = score;
@@ -126,6 +135,32 @@ public class TypeClassify extends AbstractClassify {
 
 	}
 
+	/**
+	 * Gets the preprocessor of the texts to classify, e.g., for sharing it
+	 * with the classifiers annotating the same texts (@see JointClassify)
+	 * 
+	 * @return the preprocessor
+	 */
+	public Preprocessor getPreprocessor() {
+
+		return preprocessor;
+
+	}
+
+	/**
+	 * Releases the resources shared with the other classifiers of the JVM
+	 * (e.g., the model for tokenization, the stop words); the classifier can't
+	 * be used anymore after calling this method. The pool of threads used for
+	 * classifying the batches of texts is stopped too.
+	 */
+	@Override
+	public void close() {
+
+		super.close();
+		preprocessor.close();
+
+	}
+
 	/**
 	 * The classifier entry point
 	 * 
@@ -0,0 +1,145 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test the parallel tokenization of the files: the output file has to be
+ * byte-identical to the one of the sequential tokenization, with small chunks
+ * and few chunks in flight so that the lines cross many chunks, and the
+ * errors have to report the real number of the line in the input file.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class ConcurrentTokenizerWrapperTest {
+
+	// the number of lines of the generated file
+	private static final int LINES = 500;
+	// the malformed line of the file with an error
+	private static final int MALFORMED_LINE = 123;
+	// the words of the generated lines
+	private static final String[] WORDS = { "Der", "Kessel", "funktioniert", "schlecht;", "gut,", "Das",
+			"Befehlsmodul", "antwortet", "nicht!", "k\u00f6nnte", "schneller", "M\u00fcnchen", "Stra\u00dfe",
+			"12a", "3.5.2016", "50%", "(z.B.", "E-Mail", "info@example.de", "\"Danke\"", "..." };
+
+	@Test
+	public void sameOutputTest() throws Exception {
+
+		File dir = Files.createTempDirectory("synaptic-tokenizer-").toFile();
+
+		try {
+
+			File fileIn = new File(dir, "dataset.tsv");
+			generate(fileIn, -1);
+			File sequentialFile = new File(dir, "sequential.token");
+			File parallelFile = new File(dir, "parallel.token");
+
+			tokenize(1, fileIn, sequentialFile);
+			tokenize(4, fileIn, parallelFile);
+
+			assertArrayEquals(Files.readAllBytes(sequentialFile.toPath()), Files.readAllBytes(parallelFile.toPath()));
+
+		} finally {
+			delete(dir);
+		}
+
+	}
+
+	@Test
+	public void lineNumberTest() throws Exception {
+
+		File dir = Files.createTempDirectory("synaptic-tokenizer-").toFile();
+
+		try {
+
+			File fileIn = new File(dir, "dataset.tsv");
+			generate(fileIn, MALFORMED_LINE);
+
+			try {
+				tokenize(4, fileIn, new File(dir, "parallel.token"));
+				fail("The malformed line has not been reported");
+			} catch (Exception ex) {
+				assertEquals("Error in line " + MALFORMED_LINE + ": wrong number of fields in the input file!",
+						ex.getMessage());
+			}
+
+		} finally {
+			delete(dir);
+		}
+
+	}
+
+	/**
+	 * Tokenizes the given file with the given number of threads
+	 */
+	private static void tokenize(int parallelism, File fileIn, File fileOut) throws Exception {
+
+		ConcurrentTokenizerWrapper tokenizer = new ConcurrentTokenizerWrapper();
+		tokenizer.init();
+		try {
+			tokenizer.setParallelism(parallelism);
+			tokenizer.setChunkSize(7);
+			tokenizer.setMaxChunksInFlight(2);
+			tokenizer.tokenize(fileIn.getAbsolutePath(), fileOut.getAbsolutePath());
+		} finally {
+			tokenizer.close();
+		}
+
+	}
+
+	/**
+	 * Generates the tsv file to tokenize; the given line (-1 for none) misses
+	 * the field 'content'
+	 */
+	private static void generate(File file, int malformedLine) throws Exception {
+
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()), "UTF8"));
+		try {
+			Random random = new Random(7);
+			out.print("ID\tstart/end time\tsentiment\ttype\tContent\n");
+			// the header is the first line
+			for (int line = 2; line <= LINES; line++) {
+				StringBuilder text = new StringBuilder();
+				int length = 1 + random.nextInt(20);
+				for (int w = 0; w < length; w++) {
+					if (w > 0)
+						text.append(' ');
+					text.append(WORDS[random.nextInt(WORDS.length)]);
+				}
+				if (line == malformedLine)
+					out.print("#" + line + "\t2016\tneutral\tother\n");
+				else
+					out.print("#" + line + "\t2016\tneutral\tother\t" + text + "\n");
+			}
+		} finally {
+			out.close();
+		}
+
+	}
+
+	/**
+	 * Deletes the given directory with its files
+	 */
+	private static void delete(File dir) {
+
+		File[] files = dir.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		dir.delete();
+
+	}
+
+}
@@ -0,0 +1,64 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Test the vocabulary pruning: the features are removed by their document
+ * frequencies and their chi-square scores and the remaining ones are
+ * re-indexed without holes.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class FeaturesSelectionTest {
+
+	@Test
+	public void minDocumentFrequencyTest() throws Exception {
+
+		FeaturesVectors featuresVectors = getFeaturesVectors();
+		int[] newIndexes = new FeaturesSelection(2, 0).select(featuresVectors, 5);
+
+		// feature 3 occurs in one example only (twice) and feature 5 in none
+		assertArrayEquals(new int[] { 0, 1, 2, 0, 3, 0 }, newIndexes);
+
+		featuresVectors.reindex(newIndexes);
+		assertArrayEquals(new int[] { 1, 2 }, featuresVectors.getIndexes(0));
+		assertArrayEquals(new double[] { 0.5, 0.1 }, featuresVectors.getWeights(0), 0);
+		assertArrayEquals(new int[] { 2, 3 }, featuresVectors.getIndexes(3));
+		assertEquals(3, featuresVectors.getMaxIndex());
+
+	}
+
+	@Test
+	public void maxFeaturesTest() throws Exception {
+
+		// features 1 and 4 tell the labels apart while feature 2 occurs in
+		// all the examples
+		int[] newIndexes = new FeaturesSelection(1, 2).select(getFeaturesVectors(), 5);
+
+		assertArrayEquals(new int[] { 0, 1, 0, 0, 2, 0 }, newIndexes);
+
+	}
+
+	/**
+	 * Gets the features vectors of 2 examples of label 1 and 2 examples of
+	 * label 2
+	 */
+	private static FeaturesVectors getFeaturesVectors() {
+
+		FeaturesVectors result = new FeaturesVectors();
+		result.add(1, new int[] { 1, 3, 2, 3 }, new double[] { 0.5, 0.2, 0.1, 0.2 }, 4);
+		result.add(1, new int[] { 2, 1 }, new double[] { 0.1, 0.5 }, 2);
+		result.add(2, new int[] { 4, 2 }, new double[] { 0.7, 0.1 }, 2);
+		result.add(2, new int[] { 2, 4 }, new double[] { 0.1, 0.7 }, 2);
+
+		return result;
+
+	}
+
+}
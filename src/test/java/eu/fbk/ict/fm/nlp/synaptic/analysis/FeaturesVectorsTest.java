@@ -0,0 +1,47 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+/**
+ * Test the binary file of the features vectors: the features vectors read
+ * back have to be the same as the saved ones, with the weights given as the
+ * exact double values of their float weights.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class FeaturesVectorsTest {
+
+	@Test
+	public void binaryFileTest() throws Exception {
+
+		FeaturesVectors featuresVectors = new FeaturesVectors();
+		featuresVectors.add(2, new int[] { 1, 127, 128, 70000 }, new double[] { 1.3478495f, 0.5f, 2.0f, 0.1f }, 4);
+		featuresVectors.add(1, new int[0], new double[0], 0);
+		featuresVectors.add(3, new int[] { 5 }, new double[] { 0.7f }, 1);
+
+		File file = File.createTempFile("synaptic-vectors-", FeaturesVectors.FILE_EXTENSION);
+		file.deleteOnExit();
+		featuresVectors.save(file);
+		assertTrue(FeaturesVectors.isBinary(file));
+
+		FeaturesVectors result = FeaturesVectors.load(file);
+		assertEquals(3, result.size());
+		assertEquals(70000, result.getMaxIndex());
+		for (int e = 0; e < result.size(); e++) {
+			assertEquals(featuresVectors.getLabel(e), result.getLabel(e), 0);
+			assertArrayEquals(featuresVectors.getIndexes(e), result.getIndexes(e));
+			assertArrayEquals(featuresVectors.getWeights(e), result.getWeights(e), 0);
+		}
+
+	}
+
+}
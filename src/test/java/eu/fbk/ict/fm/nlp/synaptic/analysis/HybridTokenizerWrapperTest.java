@@ -0,0 +1,126 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+/**
+ * Test the hybrid tokenizer: it has to produce exactly the same tokens of the
+ * OpenNLP tokenizer. The benchmark reporting the throughput of both the
+ * tokenizers is not part of the unit tests; it is run by the method main,
+ * e.g., java -cp testClasses:classes:dependencies
+ * eu.fbk.ict.fm.nlp.synaptic.analysis.HybridTokenizerWrapperTest
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class HybridTokenizerWrapperTest {
+
+	// the logger
+	private static final Logger LOGGER = Logger.getLogger(HybridTokenizerWrapperTest.class.getName());
+
+	// texts with the cases that the fast path must not change
+	private static final String[] TEXTS = { "Der Kessel funktioniert schlecht; Das Befehlsmodul antwortet nicht",
+			"Dieser Kessel funktioniert gut, aber die Steuerung k\u00f6nnte schneller sein",
+			"Gro\u00dfe Stra\u00dfe 12a, 80331 M\u00fcnchen (z.B. am 3.5.2016 um 14:30 Uhr)!",
+			"E-Mail an info@example.de oder www.example.de - \"Danke\" und 'bitte'...",
+			"  Mehrere   Leerzeichen\tund\u00a0Tabulatoren  ", "a b c \u00e4 \u00f6 \u00fc \u00df", "", "\u00dcberpr\u00fcfung: 50% billiger?!" };
+
+	@Test
+	public void agreementTest() throws Exception {
+
+		TokenizerWrapper tokenizer = new TokenizerWrapper();
+		tokenizer.init();
+		HybridTokenizerWrapper hybridTokenizer = new HybridTokenizerWrapper();
+		hybridTokenizer.init();
+
+		for (String text : loadTexts())
+			assertArrayEquals(text, tokenizer.tokenize(text), hybridTokenizer.tokenize(text));
+
+	}
+
+	/**
+	 * Runs the benchmark of the tokenizers
+	 */
+	public static void main(String[] args) throws Exception {
+
+		TokenizerWrapper tokenizer = new TokenizerWrapper();
+		tokenizer.init();
+		HybridTokenizerWrapper hybridTokenizer = new HybridTokenizerWrapper();
+		hybridTokenizer.init();
+
+		List<String> texts = loadTexts();
+		int iterations = 2000;
+
+		// warm up both the tokenizers
+		run(tokenizer, texts, iterations);
+		run(hybridTokenizer, texts, iterations);
+
+		long tokenizerTime = run(tokenizer, texts, iterations);
+		long hybridTokenizerTime = run(hybridTokenizer, texts, iterations);
+
+		LOGGER.info("TokenizerWrapper: " + (texts.size() * iterations * 1000000000L / Math.max(tokenizerTime, 1))
+				+ " texts/s; HybridTokenizerWrapper: "
+				+ (texts.size() * iterations * 1000000000L / Math.max(hybridTokenizerTime, 1)) + " texts/s; speed-up: "
+				+ (float) tokenizerTime / Math.max(hybridTokenizerTime, 1));
+
+	}
+
+	/**
+	 * Tokenizes the given texts many times and returns the elapsed time in
+	 * nanoseconds
+	 */
+	private static long run(ITokenizerWrapper tokenizer, List<String> texts, int iterations) throws Exception {
+
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			for (String text : texts)
+				tokenizer.tokenize(text);
+
+		return System.nanoTime() - start;
+
+	}
+
+	/**
+	 * Loads the texts of the test dataset together with the texts with the
+	 * difficult cases
+	 */
+	private static List<String> loadTexts() throws Exception {
+
+		List<String> texts = new ArrayList<String>();
+		for (String text : TEXTS)
+			texts.add(text);
+
+		BufferedReader in = null;
+
+		try {
+
+			in = new BufferedReader(
+					new InputStreamReader(new FileInputStream(new File("src/test/resources/dataset.tsv")), "UTF8"));
+			String str;
+			while ((str = in.readLine()) != null) {
+				String[] splitLine = str.split("\t");
+				if (splitLine.length == FileTSV.FIELDS_NUMBER)
+					texts.add(splitLine[FileTSV.CONTENT]);
+			}
+
+		} finally {
+			if (in != null)
+				in.close();
+		}
+
+		return texts;
+
+	}
+
+}
@@ -0,0 +1,77 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import opennlp.tools.tokenize.WhitespaceTokenizer;
+import opennlp.tools.util.Span;
+
+/**
+ * Test the n-grams generated by the key: their hash codes, combined from the
+ * hash codes of the tokens and rolled over the characters, have to be the
+ * hash codes of their strings.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class NGramKeyTest {
+
+	@Test
+	public void defaultNGramsTest() throws Exception {
+
+		List<String> features = generate("Der Kessel funktioniert", new FeaturesConfiguration());
+
+		assertArrayEquals(new String[] { "der", "kessel", "funktioniert", "der___kessel", "kessel___funktioniert" },
+				features.toArray(new String[features.size()]));
+
+	}
+
+	@Test
+	public void charNGramsTest() throws Exception {
+
+		FeaturesConfiguration configuration = new FeaturesConfiguration();
+		configuration.setWordNGrams(2, 3);
+		configuration.setCharNGrams(3, 4);
+		List<String> features = generate("Der Kessel \u00dcnd", configuration);
+
+		assertEquals("der___kessel", features.get(0));
+		assertEquals("der___kessel___\u00fcnd", features.get(2));
+		assertEquals("c <de", features.get(3));
+		assertEquals("c \u00fcnd>", features.get(features.size() - 1));
+		assertTrue(features.contains("c sel>"));
+
+	}
+
+	/**
+	 * Generates the features of the given text and checks their hash codes
+	 */
+	private static List<String> generate(String text, FeaturesConfiguration configuration) {
+
+		Span[] spans = WhitespaceTokenizer.INSTANCE.tokenizePos(text);
+		int[] tokens = new int[spans.length];
+		for (int i = 0; i < spans.length; i++)
+			tokens[i] = i;
+
+		List<String> result = new ArrayList<String>();
+		NGramKey key = new NGramKey();
+		key.reset(text, spans, tokens, tokens.length, configuration);
+		while (key.next()) {
+			String feature = key.toString();
+			assertEquals(feature.hashCode(), key.hashCode());
+			assertTrue(key.equals(feature));
+			result.add(feature);
+		}
+
+		return result;
+
+	}
+
+}
@@ -0,0 +1,102 @@
+package eu.fbk.ict.fm.nlp.synaptic.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+/**
+ * Test the registry of the shared resources: the feature extractors and the
+ * preprocessors of the JVM have to use the same instances of the resources and
+ * the resources have to be released when they are closed. The references are
+ * counted from the ones held by the other tests of the JVM. The benchmark
+ * reporting the time and the heap needed for initializing the first and the
+ * second pair of preprocessor and feature extractor is not part of the unit
+ * tests; it is run by the method main.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class SharedResourcesTest {
+
+	// the logger
+	private static final Logger LOGGER = Logger.getLogger(SharedResourcesTest.class.getName());
+
+	@Test
+	public void sharingTest() throws Exception {
+
+		// the references held by the classifiers of the other tests
+		int stopWords = SharedResources.getReferences(SharedResources.STOP_WORDS);
+		int weightedNGrams = SharedResources.getReferences(SharedResources.WEIGHTED_NGRAMS);
+		int tokenizerModel = SharedResources.getReferences(SharedResources.TOKENIZER_MODEL);
+
+		FeatureExtractorLearn first = new FeatureExtractorLearn(true);
+		FeatureExtractorLearn second = new FeatureExtractorLearn(true);
+		Preprocessor preprocessor = new Preprocessor();
+
+		assertSame(first.stopWords, second.stopWords);
+		assertSame(first.weightedWords, second.weightedWords);
+		assertEquals(stopWords + 2, SharedResources.getReferences(SharedResources.STOP_WORDS));
+		assertEquals(weightedNGrams + 2, SharedResources.getReferences(SharedResources.WEIGHTED_NGRAMS));
+		assertEquals(tokenizerModel + 1, SharedResources.getReferences(SharedResources.TOKENIZER_MODEL));
+
+		first.close();
+		// closing twice must not release the resources of the others
+		first.close();
+		assertEquals(weightedNGrams + 1, SharedResources.getReferences(SharedResources.WEIGHTED_NGRAMS));
+
+		second.close();
+		preprocessor.close();
+		assertEquals(stopWords, SharedResources.getReferences(SharedResources.STOP_WORDS));
+		assertEquals(weightedNGrams, SharedResources.getReferences(SharedResources.WEIGHTED_NGRAMS));
+		assertEquals(tokenizerModel, SharedResources.getReferences(SharedResources.TOKENIZER_MODEL));
+
+	}
+
+	/**
+	 * Runs the benchmark of the initialization
+	 */
+	public static void main(String[] args) throws Exception {
+
+		long heap = usedHeap();
+		long start = System.nanoTime();
+		Preprocessor firstPreprocessor = new Preprocessor();
+		FeatureExtractorLearn firstExtractor = new FeatureExtractorLearn(true);
+		long firstTime = System.nanoTime() - start;
+		long firstHeap = usedHeap() - heap;
+
+		heap = usedHeap();
+		start = System.nanoTime();
+		Preprocessor secondPreprocessor = new Preprocessor();
+		FeatureExtractorLearn secondExtractor = new FeatureExtractorLearn(true);
+		long secondTime = System.nanoTime() - start;
+		long secondHeap = usedHeap() - heap;
+
+		LOGGER.info(String.format("first initialization: %d ms, %d KB; second initialization: %d ms, %d KB",
+				firstTime / 1000000, firstHeap / 1024, secondTime / 1000000, secondHeap / 1024));
+
+		firstPreprocessor.close();
+		firstExtractor.close();
+		secondPreprocessor.close();
+		secondExtractor.close();
+
+	}
+
+	/**
+	 * Gets the heap used after a garbage collection
+	 */
+	private static long usedHeap() {
+
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+			System.gc();
+
+		return runtime.totalMemory() - runtime.freeMemory();
+
+	}
+
+}
@@ -0,0 +1,157 @@
+package eu.fbk.ict.fm.nlp.synaptic.classification;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import eu.fbk.ict.fm.nlp.synaptic.analysis.FileTSV;
+import eu.fbk.ict.fm.nlp.synaptic.classification.tc.TypeClassify;
+import eu.fbk.ict.fm.nlp.synaptic.classification.tc.TypeLearn;
+
+/**
+ * Test the classification server: the clients connected at the same time get
+ * the same labels of the type classifier, also when they name it by its model
+ * file, the requests for a model that has not been loaded get an error and the
+ * server can be shut down by a client.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class ClassifyServerTest {
+
+	@Test
+	public void serverTest() throws Exception {
+
+		File dir = Files.createTempDirectory("synaptic-server-").toFile();
+
+		try {
+			serverTest(dir);
+		} finally {
+			delete(dir);
+		}
+
+	}
+
+	/**
+	 * Trains the model into the given directory and runs the server on it
+	 */
+	private static void serverTest(File dir) throws Exception {
+
+		File dataSet = new File("src/test/resources/dataset.tsv");
+		final File model = new File(dir, "model");
+		TypeLearn typeLearn = new TypeLearn();
+		typeLearn.setDebugFiles(false);
+		typeLearn.run(dataSet.getAbsolutePath(), model.getAbsolutePath());
+		typeLearn.close();
+
+		final List<String> texts = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(dataSet), "UTF8"));
+		try {
+			String str = in.readLine();
+			while ((str = in.readLine()) != null)
+				texts.add(str.split("\t")[FileTSV.CONTENT]);
+		} finally {
+			in.close();
+		}
+
+		TypeClassify typeClassify = new TypeClassify(model.getAbsolutePath());
+		final List<String[]> expected = typeClassify.run(texts);
+		typeClassify.close();
+
+		final ClassifyServer server = new ClassifyServer(model.getAbsolutePath(), null);
+		server.start(0);
+		try {
+
+			// the clients connected at the same time
+			ExecutorService executor = Executors.newFixedThreadPool(3);
+			List<Future<Void>> tasks = new ArrayList<Future<Void>>();
+			for (int c = 0; c < 3; c++) {
+				tasks.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						ClassifyClient client = new ClassifyClient(server.getPort());
+						try {
+							for (int i = 0; i < texts.size(); i++) {
+								assertArrayEquals(expected.get(i), client.run(ClassifyServer.TYPE, texts.get(i)));
+								assertArrayEquals(expected.get(i), client.runModel(model.getPath(), texts.get(i)));
+							}
+						} finally {
+							client.close();
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> task : tasks)
+				task.get();
+			executor.shutdown();
+
+			ClassifyClient client = new ClassifyClient(server.getPort());
+			client.ping();
+			try {
+				client.run(ClassifyServer.SENTIMENT, texts.get(0));
+				fail();
+			} catch (Exception ex) {
+				assertTrue(ex.getMessage().contains(ClassifyServer.SENTIMENT));
+			}
+			File otherModel = new File(dir, "other.model");
+			try {
+				client.runModel(otherModel.getPath(), texts.get(0));
+				fail();
+			} catch (Exception ex) {
+				assertTrue(ex.getMessage().contains(otherModel.getCanonicalPath()));
+			}
+			// the connection still works after an error
+			assertArrayEquals(expected.get(0), client.run(ClassifyServer.TYPE, texts.get(0)));
+
+			// an idle connection doesn't hold the shutdown
+			ClassifyClient idleClient = new ClassifyClient(server.getPort());
+			idleClient.ping();
+			client.shutdown();
+			client.close();
+			server.await();
+			idleClient.close();
+
+		} finally {
+			server.close();
+		}
+
+		try {
+			new ClassifyClient(server.getPort()).ping();
+			fail();
+		} catch (Exception ex) {
+			// the server doesn't accept connections anymore
+		}
+
+	}
+
+	/**
+	 * Deletes the given directory with its files
+	 */
+	private static void delete(File dir) {
+
+		File[] files = dir.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		dir.delete();
+
+	}
+
+}
@@ -0,0 +1,155 @@
+package eu.fbk.ict.fm.nlp.synaptic.classification;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Test;
+
+import eu.fbk.ict.fm.nlp.synaptic.classification.sa.SentimentClassify;
+import eu.fbk.ict.fm.nlp.synaptic.classification.sa.SentimentLearn;
+import eu.fbk.ict.fm.nlp.synaptic.classification.tc.TypeClassify;
+import eu.fbk.ict.fm.nlp.synaptic.classification.tc.TypeLearn;
+
+/**
+ * Test the joint classifier: the labels and the scores it annotates have to be
+ * the same of the ones of TypeClassify and SentimentClassify run separately on
+ * the same texts, both for single texts and for batches classified in
+ * parallel. The models are trained on a generated dataset.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class JointClassifyTest {
+
+	// the number of examples of the dataset
+	private static final int EXAMPLES = 600;
+	// the number of threads classifying the batch of texts
+	private static final int THREADS = 4;
+	// the words of the generated examples
+	private static final String[] WORDS = { "Der", "Kessel", "funktioniert", "schlecht", "gut", "Das",
+			"Befehlsmodul", "antwortet", "nicht", "Dieser", "aber", "die", "Steuerung", "k\u00f6nnte", "schneller",
+			"sein", "Heizung", "Wasser", "warm", "kalt", "Fehler", "Anzeige", "zeigt", "E-Mail", "M\u00fcnchen",
+			"Stra\u00dfe", "12a", "3.5.2016", "50%", "bitte", "danke", "!", "?", ",", ";", "und" };
+	// the labels of the generated examples
+	private static final String[] TYPES = { "bug report", "feature request", "other" };
+	private static final String[] SENTIMENTS = { "positive", "negative", "neutral" };
+
+	@Test
+	public void sameLabelsTest() throws Exception {
+
+		File dir = Files.createTempDirectory("synaptic-joint-").toFile();
+
+		try {
+
+			String[] texts = generate(new File(dir, "dataset.tsv"));
+			String typeModel = new File(dir, "type.model").getAbsolutePath();
+			String sentimentModel = new File(dir, "sentiment.model").getAbsolutePath();
+
+			TypeLearn typeLearn = new TypeLearn();
+			typeLearn.run(new File(dir, "dataset.tsv").getAbsolutePath(), typeModel);
+			typeLearn.close();
+			SentimentLearn sentimentLearn = new SentimentLearn();
+			sentimentLearn.run(new File(dir, "dataset.tsv").getAbsolutePath(), sentimentModel);
+			sentimentLearn.close();
+
+			TypeClassify typeClassify = new TypeClassify(typeModel);
+			SentimentClassify sentimentClassify = new SentimentClassify(sentimentModel);
+			JointClassify jointClassify = new JointClassify(typeModel, sentimentModel);
+
+			try {
+
+				String[][] expected = new String[texts.length][];
+				for (int i = 0; i < texts.length; i++) {
+					String[] type = typeClassify.run(texts[i]);
+					String[] sentiment = sentimentClassify.run(texts[i]);
+					expected[i] = new String[] { type[0], type[1], sentiment[0], sentiment[1] };
+					assertArrayEquals(texts[i], expected[i], jointClassify.run(texts[i]));
+				}
+
+				jointClassify.setParallelism(THREADS);
+				String[][] result = jointClassify.run(texts);
+				assertEquals(texts.length, result.length);
+				for (int i = 0; i < texts.length; i++)
+					assertArrayEquals(texts[i], expected[i], result[i]);
+
+			} finally {
+				jointClassify.close();
+				sentimentClassify.close();
+				typeClassify.close();
+			}
+
+		} finally {
+			delete(dir);
+		}
+
+	}
+
+	/**
+	 * Generates the dataset into the given file
+	 *
+	 * @return the texts of the examples
+	 */
+	private static String[] generate(File dataSet) throws Exception {
+
+		String[] texts = new String[EXAMPLES];
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(Files.newOutputStream(dataSet.toPath()), "UTF8"));
+		try {
+			Random random = new Random(17);
+			out.print("ID\tstart/end time\tsentiment\ttype\tContent\n");
+			for (int e = 0; e < EXAMPLES; e++) {
+				int type = random.nextInt(TYPES.length);
+				int sentiment = random.nextInt(SENTIMENTS.length);
+				StringBuilder text = new StringBuilder();
+				int length = 3 + random.nextInt(12);
+				for (int w = 0; w < length; w++) {
+					// each type prefers a part of the words and each
+					// sentiment another part
+					int word;
+					switch (random.nextInt(3)) {
+					case 0:
+						word = random.nextInt(WORDS.length);
+						break;
+					case 1:
+						word = type * WORDS.length / TYPES.length + random.nextInt(WORDS.length / TYPES.length);
+						break;
+					default:
+						word = (sentiment * 5 + 3 + random.nextInt(5)) % WORDS.length;
+						break;
+					}
+					if (w > 0)
+						text.append(' ');
+					text.append(WORDS[word]);
+				}
+				texts[e] = text.toString();
+				out.print("#" + e + "\t2016\t" + SENTIMENTS[sentiment] + "\t" + TYPES[type] + "\t" + text + "\n");
+			}
+		} finally {
+			out.close();
+		}
+
+		return texts;
+
+	}
+
+	/**
+	 * Deletes the given directory with its files
+	 */
+	private static void delete(File dir) {
+
+		File[] files = dir.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		dir.delete();
+
+	}
+
+}
@@ -0,0 +1,146 @@
+package eu.fbk.ict.fm.nlp.synaptic.classification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import eu.fbk.ict.fm.nlp.synaptic.analysis.FeaturesVectors;
+import libsvm.svm;
+import libsvm.svm_model;
+import libsvm.svm_node;
+
+/**
+ * Test the compiled linear models: the labels predicted with the weight
+ * vectors of the pairs of labels have to be the same labels predicted by
+ * svm_predict with the support vectors. The test dataset in the resources has
+ * one label only, then the model is trained on a dataset of 4 labels whose
+ * features overlap, so that it has many support vectors for each pair of
+ * labels. The quantized weights have to predict almost always the same labels
+ * and they have to be read back from their file unchanged.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class LinearPredictorTest {
+
+	// the number of labels
+	private static final int LABELS = 4;
+	// the number of features
+	private static final int FEATURES = 300;
+
+	@Test
+	public void sameLabelsTest() throws Exception {
+
+		File modelFile = File.createTempFile("synaptic-model-", ".model");
+		modelFile.deleteOnExit();
+		new AbstractLearn() {
+		}.learn(getFeaturesVectors(new Random(17), 400), modelFile.getAbsolutePath());
+
+		svm_model model = svm.svm_load_model(modelFile.getAbsolutePath());
+		LinearPredictor predictor = new LinearPredictor(model);
+		assertTrue(predictor.isCompiled());
+
+		FeaturesVectors testSet = getFeaturesVectors(new Random(23), 400);
+		Set<Double> labels = new HashSet<Double>();
+		for (int e = 0; e < testSet.size(); e++) {
+			int[] indexes = testSet.getIndexes(e);
+			double[] weights = testSet.getWeights(e);
+			svm_node[] x = new svm_node[indexes.length];
+			for (int i = 0; i < x.length; i++) {
+				x[i] = new svm_node();
+				x[i].index = indexes[i];
+				x[i].value = weights[i];
+			}
+			double label = svm.svm_predict(model, x);
+			assertEquals(label, predictor.predict(indexes, weights, indexes.length), 0);
+			labels.add(label);
+		}
+		// all the pairs of labels have been involved
+		assertEquals(LABELS, labels.size());
+
+	}
+
+	@Test
+	public void quantizedWeightsTest() throws Exception {
+
+		File modelFile = File.createTempFile("synaptic-model-", ".model");
+		modelFile.deleteOnExit();
+		new AbstractLearn() {
+		}.learn(getFeaturesVectors(new Random(17), 400), modelFile.getAbsolutePath());
+		LinearPredictor predictor = new LinearPredictor(svm.svm_load_model(modelFile.getAbsolutePath()));
+
+		FeaturesVectors testSet = getFeaturesVectors(new Random(23), 400);
+		for (int format : new int[] { LinearPredictor.FLOAT16, LinearPredictor.INT8 }) {
+			LinearPredictor quantized = predictor.quantize(format);
+			assertTrue(quantized.getMemorySize() < predictor.getMemorySize());
+
+			File weightsFile = new File(modelFile.getPath() + LinearPredictor.FILE_EXTENSION);
+			weightsFile.deleteOnExit();
+			long checksum = LinearPredictor.checksum(modelFile);
+			quantized.save(weightsFile, checksum);
+			LinearPredictor loaded = LinearPredictor.load(weightsFile, checksum);
+			assertEquals(format, loaded.getFormat());
+			// the weights of another model file are not used
+			assertNull(LinearPredictor.load(weightsFile, checksum + 1));
+
+			int differences = 0;
+			for (int e = 0; e < testSet.size(); e++) {
+				int[] indexes = testSet.getIndexes(e);
+				double[] weights = testSet.getWeights(e);
+				double label = quantized.predict(indexes, weights, indexes.length);
+				assertEquals(label, loaded.predict(indexes, weights, indexes.length), 0);
+				if (label != predictor.predict(indexes, weights, indexes.length))
+					differences++;
+			}
+			assertTrue(differences <= testSet.size() / 50);
+		}
+
+		for (float value : new float[] { 0, 1, -0.5f, 0.333f, 65504, 1e-6f })
+			assertEquals(value, LinearPredictor.Half.toFloat(LinearPredictor.Half.toHalf(value)),
+					Math.abs(value) / 1024 + 1e-7);
+
+	}
+
+	/**
+	 * Gets the features vectors of the given number of examples: each label
+	 * prefers a range of the features but the examples have features of the
+	 * other labels too
+	 */
+	private static FeaturesVectors getFeaturesVectors(Random random, int size) {
+
+		FeaturesVectors result = new FeaturesVectors();
+		for (int e = 0; e < size; e++) {
+			int label = 1 + random.nextInt(LABELS);
+			Map<Integer, Double> features = new TreeMap<Integer, Double>();
+			for (int f = 0; f < 20; f++) {
+				int index = random.nextInt(3) == 0 ? 1 + random.nextInt(FEATURES)
+						: 1 + (label - 1) * FEATURES / LABELS + random.nextInt(FEATURES / LABELS);
+				features.put(index, (double) random.nextFloat());
+			}
+			int[] indexes = new int[features.size()];
+			double[] weights = new double[features.size()];
+			int i = 0;
+			for (Map.Entry<Integer, Double> feature : features.entrySet()) {
+				indexes[i] = feature.getKey();
+				weights[i] = feature.getValue();
+				i++;
+			}
+			result.add(label, indexes, weights, indexes.length);
+		}
+
+		return result;
+
+	}
+
+}
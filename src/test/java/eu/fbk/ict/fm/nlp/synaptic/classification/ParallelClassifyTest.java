@@ -0,0 +1,209 @@
+package eu.fbk.ict.fm.nlp.synaptic.classification;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import eu.fbk.ict.fm.nlp.synaptic.classification.tc.TypeClassify;
+import eu.fbk.ict.fm.nlp.synaptic.classification.tc.TypeLearn;
+
+/**
+ * Test the parallel classification of the batches of texts: the labels and
+ * the scores annotated by many threads have to be the same of the ones
+ * annotated sequentially, in the order of the texts. The benchmark reporting
+ * the throughput with 1, 2, 4 and 8 threads is not part of the unit tests; it
+ * is run by the method main, e.g., java -cp testClasses:classes:dependencies
+ * eu.fbk.ict.fm.nlp.synaptic.classification.ParallelClassifyTest
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class ParallelClassifyTest {
+
+	// the logger
+	private static final Logger LOGGER = Logger.getLogger(ParallelClassifyTest.class.getName());
+
+	// the number of examples of the training dataset
+	private static final int EXAMPLES = 600;
+	// the number of texts of the batch, many tasks of the pool
+	private static final int TEXTS = 2000;
+	// the number of threads classifying the batch
+	private static final int THREADS = 4;
+	// the words of the generated texts
+	private static final String[] WORDS = { "Der", "Kessel", "funktioniert", "schlecht", "gut", "Das",
+			"Befehlsmodul", "antwortet", "nicht", "Dieser", "aber", "die", "Steuerung", "k\u00f6nnte", "schneller",
+			"sein", "Heizung", "Wasser", "warm", "kalt", "Fehler", "Anzeige", "zeigt", "E-Mail", "M\u00fcnchen",
+			"Stra\u00dfe", "12a", "3.5.2016", "50%", "bitte", "danke", "!", "?", ",", ";", "und" };
+	// the labels of the generated examples
+	private static final String[] LABELS = { "bug report", "feature request", "other" };
+
+	@Test
+	public void sameLabelsTest() throws Exception {
+
+		File dir = Files.createTempDirectory("synaptic-classify-").toFile();
+
+		try {
+
+			TypeClassify typeClassify = new TypeClassify(train(dir));
+
+			try {
+
+				String[] texts = generateTexts(new Random(5), TEXTS);
+				String[][] expected = typeClassify.run(texts);
+				assertEquals(1, typeClassify.getParallelism());
+
+				typeClassify.setParallelism(THREADS);
+				String[][] result = typeClassify.run(texts);
+				assertEquals(texts.length, result.length);
+				for (int i = 0; i < texts.length; i++) {
+					assertArrayEquals(texts[i], expected[i], typeClassify.run(texts[i]));
+					assertArrayEquals(texts[i], expected[i], result[i]);
+				}
+
+				List<String[]> listResult = typeClassify.run(Arrays.asList(texts));
+				for (int i = 0; i < texts.length; i++)
+					assertArrayEquals(texts[i], expected[i], listResult.get(i));
+
+			} finally {
+				typeClassify.close();
+			}
+
+		} finally {
+			delete(dir);
+		}
+
+	}
+
+	/**
+	 * Runs the benchmark of the parallel classification: the throughput of
+	 * the classifier on the same batch with 1, 2, 4 and 8 threads
+	 */
+	public static void main(String[] args) throws Exception {
+
+		File dir = Files.createTempDirectory("synaptic-classify-").toFile();
+
+		try {
+
+			TypeClassify typeClassify = new TypeClassify(train(dir));
+			String[] texts = generateTexts(new Random(5), 20000);
+
+			try {
+
+				// warm up
+				for (int r = 0; r < 20; r++)
+					typeClassify.run(texts);
+
+				LOGGER.info("available processors:" + Runtime.getRuntime().availableProcessors());
+				double sequential = 0;
+				for (int threads : new int[] { 1, 2, 4, 8 }) {
+					typeClassify.setParallelism(threads);
+					typeClassify.run(texts);
+					long start = System.nanoTime();
+					for (int r = 0; r < 5; r++)
+						typeClassify.run(texts);
+					double throughput = 5.0 * texts.length / ((System.nanoTime() - start) / 1e9);
+					if (threads == 1)
+						sequential = throughput;
+					LOGGER.info("threads:" + threads + "\ttexts/s:" + Math.round(throughput) + "\tspeedup:"
+							+ String.format("%.2f", throughput / sequential));
+				}
+
+			} finally {
+				typeClassify.close();
+			}
+
+		} finally {
+			delete(dir);
+		}
+
+	}
+
+	/**
+	 * Generates the dataset into the given directory and trains the type
+	 * classifier on it
+	 *
+	 * @return the model file name
+	 */
+	private static String train(File dir) throws Exception {
+
+		File dataSet = new File(dir, "dataset.tsv");
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(Files.newOutputStream(dataSet.toPath()), "UTF8"));
+		try {
+			Random random = new Random(31);
+			out.print("ID\tstart/end time\tsentiment\ttype\tContent\n");
+			for (int e = 0; e < EXAMPLES; e++) {
+				int label = random.nextInt(LABELS.length);
+				out.print("#" + e + "\t2016\tneutral\t" + LABELS[label] + "\t" + generateText(random, label) + "\n");
+			}
+		} finally {
+			out.close();
+		}
+
+		String modelFileName = new File(dir, "model").getAbsolutePath();
+		TypeLearn typeLearn = new TypeLearn();
+		typeLearn.run(dataSet.getAbsolutePath(), modelFileName);
+		typeLearn.close();
+
+		return modelFileName;
+
+	}
+
+	/**
+	 * Generates the given number of texts of random labels
+	 */
+	private static String[] generateTexts(Random random, int size) {
+
+		String[] texts = new String[size];
+		for (int i = 0; i < size; i++)
+			texts[i] = generateText(random, random.nextInt(LABELS.length));
+
+		return texts;
+
+	}
+
+	/**
+	 * Generates a text of the given label; each label prefers a part of the
+	 * words
+	 */
+	private static String generateText(Random random, int label) {
+
+		StringBuilder text = new StringBuilder();
+		int length = 3 + random.nextInt(12);
+		for (int w = 0; w < length; w++) {
+			int word = random.nextInt(2) == 0 ? random.nextInt(WORDS.length)
+					: (label * WORDS.length / LABELS.length + random.nextInt(WORDS.length / LABELS.length));
+			if (w > 0)
+				text.append(' ');
+			text.append(WORDS[word]);
+		}
+
+		return text.toString();
+
+	}
+
+	/**
+	 * Deletes the given directory with its files
+	 */
+	private static void delete(File dir) {
+
+		File[] files = dir.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		dir.delete();
+
+	}
+
+}
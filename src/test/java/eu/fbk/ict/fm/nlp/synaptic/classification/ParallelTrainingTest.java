@@ -0,0 +1,122 @@
+package eu.fbk.ict.fm.nlp.synaptic.classification;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Test;
+
+import eu.fbk.ict.fm.nlp.synaptic.classification.tc.TypeLearn;
+
+/**
+ * Test the parallel training: the files produced by training the classifier
+ * with many threads have to be byte-identical to the ones produced by a
+ * sequential run. The dataset is generated, so that it has enough examples
+ * for splitting them among all the threads (at least 256 examples for each
+ * thread).
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class ParallelTrainingTest {
+
+	// the number of threads of the parallel run
+	private static final int THREADS = 4;
+	// the number of examples of the dataset
+	private static final int EXAMPLES = 1500;
+	// the words of the generated examples
+	private static final String[] WORDS = { "Der", "Kessel", "funktioniert", "schlecht", "gut", "Das",
+			"Befehlsmodul", "antwortet", "nicht", "Dieser", "aber", "die", "Steuerung", "k\u00f6nnte", "schneller",
+			"sein", "Heizung", "Wasser", "warm", "kalt", "Fehler", "Anzeige", "zeigt", "E-Mail", "M\u00fcnchen",
+			"Stra\u00dfe", "12a", "3.5.2016", "50%", "bitte", "danke", "!", "?", ",", ";" };
+	// the labels of the generated examples
+	private static final String[] LABELS = { "bug report", "feature request", "other" };
+
+	@Test
+	public void sameFilesTest() throws Exception {
+
+		File sequentialDir = Files.createTempDirectory("synaptic-sequential-").toFile();
+		File parallelDir = Files.createTempDirectory("synaptic-parallel-").toFile();
+
+		try {
+
+			train(sequentialDir, 1);
+			train(parallelDir, THREADS);
+
+			String[] fileNames = { "dataset.tsv.tc.token", "dataset.tsv.tc.token.vectors", "model",
+					"model.features.index", "model.labels.index", "model.features.index.txt",
+					"model.labels.index.txt", "model.idf" };
+			for (String fileName : fileNames) {
+				File sequentialFile = new File(sequentialDir, fileName);
+				File parallelFile = new File(parallelDir, fileName);
+				assertTrue(fileName, sequentialFile.exists() && parallelFile.exists());
+				assertArrayEquals(fileName, Files.readAllBytes(sequentialFile.toPath()),
+						Files.readAllBytes(parallelFile.toPath()));
+			}
+
+		} finally {
+			delete(sequentialDir);
+			delete(parallelDir);
+		}
+
+	}
+
+	/**
+	 * Generates the dataset into the given directory and trains the type
+	 * classifier on it with the given number of threads
+	 */
+	private static void train(File dir, int parallelism) throws Exception {
+
+		File dataSet = new File(dir, "dataset.tsv");
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(Files.newOutputStream(dataSet.toPath()), "UTF8"));
+		try {
+			// the same examples for both the runs
+			Random random = new Random(31);
+			out.print("ID\tstart/end time\tsentiment\ttype\tContent\n");
+			for (int e = 0; e < EXAMPLES; e++) {
+				int label = random.nextInt(LABELS.length);
+				StringBuilder text = new StringBuilder();
+				int length = 3 + random.nextInt(12);
+				for (int w = 0; w < length; w++) {
+					// each label prefers a part of the words
+					int word = random.nextInt(2) == 0 ? random.nextInt(WORDS.length)
+							: (label * WORDS.length / LABELS.length + random.nextInt(WORDS.length / LABELS.length));
+					if (w > 0)
+						text.append(' ');
+					text.append(WORDS[word]);
+				}
+				out.print("#" + e + "\t2016\tneutral\t" + LABELS[label] + "\t" + text + "\n");
+			}
+		} finally {
+			out.close();
+		}
+
+		TypeLearn typeLearn = new TypeLearn();
+		typeLearn.setParallelism(parallelism);
+		typeLearn.setCorpusIdf(true);
+		typeLearn.run(dataSet.getAbsolutePath(), new File(dir, "model").getAbsolutePath());
+		typeLearn.close();
+
+	}
+
+	/**
+	 * Deletes the given directory with its files
+	 */
+	private static void delete(File dir) {
+
+		File[] files = dir.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		dir.delete();
+
+	}
+
+}
@@ -0,0 +1,57 @@
+package eu.fbk.ict.fm.nlp.synaptic.classification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import opennlp.tools.util.Span;
+
+/**
+ * Test the cache of the predicted labels: the texts with the same normalized
+ * tokens share the same entry, the least recently used entries are removed
+ * when the cache is full and the lookups are counted.
+ *
+ * @author giuliano
+ *
+ * @since October 2026
+ *
+ */
+public class PredictionCacheTest {
+
+	@Test
+	public void hashTest() throws Exception {
+
+		long hash = PredictionCache.hash("Guten Tag", new Span[] { new Span(0, 5), new Span(6, 9) });
+
+		assertEquals(hash, PredictionCache.hash("guten  TAG", new Span[] { new Span(0, 5), new Span(7, 10) }));
+		assertNotEquals(hash, PredictionCache.hash("gutenTag", new Span[] { new Span(0, 8) }));
+
+	}
+
+	@Test
+	public void evictionTest() throws Exception {
+
+		// one entry for each segment
+		PredictionCache cache = new PredictionCache(1);
+		cache.put(1, null, 2);
+		assertEquals(2, cache.get(1, null), 0);
+		assertTrue(Double.isNaN(cache.get(2, null)));
+
+		// the key 17 goes into the segment of the key 1
+		cache.put(17, null, 3);
+		assertTrue(Double.isNaN(cache.get(1, null)));
+		assertEquals(3, cache.get(17, null), 0);
+
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(1, cache.getEvictions());
+		assertEquals(1, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+
+	}
+
+}